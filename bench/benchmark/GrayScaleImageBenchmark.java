@@ -0,0 +1,124 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.Image;
+
+/**
+ * Benchmarks the operations of a grayscale image. The component and dither operations are not
+ * defined for grayscale images, so they are left out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GrayScaleImageBenchmark {
+  /** The size of the image as height x width. */
+  @Param({"256x256", "1024x1024", "2000x3000"})
+  public String size;
+
+  private Image image;
+
+  /** Creates the image for the current size. */
+  @Setup
+  public void setup() {
+    String[] dimensions = this.size.split("x");
+    int height = Integer.parseInt(dimensions[0]);
+    int width = Integer.parseInt(dimensions[1]);
+    this.image = SyntheticImages.gray(height, width, 42);
+  }
+
+  @Benchmark
+  public Image horizontalFlip() {
+    return this.image.horizontalFlip();
+  }
+
+  @Benchmark
+  public Image verticalFlip() {
+    return this.image.verticalFlip();
+  }
+
+  @Benchmark
+  public Image brighten() {
+    return this.image.brighten(30);
+  }
+
+  @Benchmark
+  public Image blur() {
+    return this.image.blur();
+  }
+
+  @Benchmark
+  public Image sharpen() {
+    return this.image.sharpen();
+  }
+
+  @Benchmark
+  public Image sepia() {
+    return this.image.sepia();
+  }
+
+  /** The image caches its histogram, so every call gets a new copy to count. */
+  @Benchmark
+  public Image histogram(Uncached uncached) {
+    return uncached.image.getHistogram();
+  }
+
+  /** The image caches its histogram, so every call gets a new copy to count. */
+  @Benchmark
+  public Image colorCorrect(Uncached uncached) {
+    return uncached.image.colorCorrect();
+  }
+
+  @Benchmark
+  public Image levelAdjust() {
+    return this.image.levelAdjust(20, 100, 200);
+  }
+
+  @Benchmark
+  public Image compress() {
+    return this.image.compressImage(50);
+  }
+
+  @Benchmark
+  public Image downscale() {
+    return this.image.downscale(3);
+  }
+
+  /** The pyramid is cached with the image, so this measures the sampling from its levels. */
+  @Benchmark
+  public Image resize() {
+    return this.image.resize(this.image.getHeight() / 3, this.image.getWidth() / 3);
+  }
+
+  /** A copy of the image made before every call, with nothing cached on it. */
+  @State(Scope.Thread)
+  public static class Uncached {
+    private Image image;
+
+    /**
+     * Copies the image of the benchmark.
+     *
+     * @param benchmark the benchmark whose image is copied
+     */
+    @Setup(Level.Invocation)
+    public void copy(GrayScaleImageBenchmark benchmark) {
+      this.image = SyntheticImages.copy(benchmark.image);
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controller.ImageUtil;
+import model.Image;
+
+/** Benchmarks loading and saving images in every supported format. */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageUtilBenchmark {
+  /** The size of the image as height x width. */
+  @Param({"256x256", "1024x1024", "2000x3000"})
+  public String size;
+
+  /** The file format. */
+  @Param({"ppm", "png", "jpg"})
+  public String format;
+
+  private Image image;
+  private File directory;
+  private String source;
+  private String target;
+
+  /** Creates the image for the current size and saves it once, to be loaded. */
+  @Setup
+  public void setup() throws IOException {
+    String[] dimensions = this.size.split("x");
+    int height = Integer.parseInt(dimensions[0]);
+    int width = Integer.parseInt(dimensions[1]);
+    this.image = SyntheticImages.rgb(height, width, 42);
+
+    this.directory = Files.createTempDirectory("image-benchmark").toFile();
+    this.source = new File(this.directory, "source." + this.format).getPath();
+    this.target = new File(this.directory, "target." + this.format).getPath();
+    this.save(this.source);
+  }
+
+  /** Deletes the files of the benchmark. */
+  @TearDown
+  public void tearDown() {
+    new File(this.source).delete();
+    new File(this.target).delete();
+    this.directory.delete();
+  }
+
+  @Benchmark
+  public Image load() throws IOException {
+    return ImageUtil.loadImage(this.source, this.format);
+  }
+
+  @Benchmark
+  public void save() throws IOException {
+    this.save(this.target);
+  }
+
+  private void save(String fileName) throws IOException {
+    if (this.format.equals("ppm")) {
+      ImageUtil.convertToPPMImage(this.image, fileName, this.format);
+    } else {
+      ImageUtil.convertToImage(this.image, fileName, this.format);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package benchmark;
+
+import java.util.SplittableRandom;
+
+import model.GrayScaleImage;
+import model.Image;
+import model.RGBImage;
+
+/**
+ * Generates deterministic test images for the benchmarks, so they need no image files. The images
+ * are smooth gradients with some noise, which gives the histograms and the compression realistic
+ * work instead of the degenerate case of a flat image.
+ */
+public final class SyntheticImages {
+  private SyntheticImages() {}
+
+  /**
+   * Creates a color image.
+   *
+   * @param height the height of the image
+   * @param width the width of the image
+   * @param seed the seed of the noise
+   * @return the image
+   */
+  public static Image rgb(int height, int width, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    int[] pixels = new int[height * width];
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        int red = channel(255 * col / Math.max(1, width - 1), random);
+        int green = channel(255 * row / Math.max(1, height - 1), random);
+        int blue = channel(255 - 255 * (row + col) / Math.max(1, height + width - 2), random);
+        pixels[row * width + col] = (red << 16) | (green << 8) | blue;
+      }
+    }
+    return new RGBImage(height, width, pixels);
+  }
+
+  /**
+   * Creates a grayscale image.
+   *
+   * @param height the height of the image
+   * @param width the width of the image
+   * @param seed the seed of the noise
+   * @return the image
+   */
+  public static Image gray(int height, int width, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    byte[] pixels = new byte[height * width];
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        int value = 255 * (row + col) / Math.max(1, height + width - 2);
+        pixels[row * width + col] = (byte) channel(value, random);
+      }
+    }
+    return new GrayScaleImage(height, width, pixels);
+  }
+
+  /**
+   * Copies an image without the histogram and pyramid cached on it, so that operations on the
+   * copy compute them again.
+   *
+   * @param image the image to copy
+   * @return the copy
+   */
+  public static Image copy(Image image) {
+    int height = image.getHeight();
+    int width = image.getWidth();
+    int[] pixels = image.getPackedPixels();
+    if (!(image instanceof GrayScaleImage)) {
+      return new RGBImage(height, width, pixels);
+    }
+    byte[] values = new byte[pixels.length];
+    for (int i = 0; i < pixels.length; i++) {
+      values[i] = (byte) pixels[i];
+    }
+    return new GrayScaleImage(height, width, values);
+  }
+
+  private static int channel(int value, SplittableRandom random) {
+    return Math.max(0, Math.min(255, value + random.nextInt(-16, 17)));
+  }
+}
@@ -2,6 +2,7 @@ import controller.IController;
 import controller.Controller;
 import controller.GUIFeaturesInterface;
 import controller.ControllerGUI;
+import controller.OperationExecutor;
 import controller.GUIFeaturesInterface;
 import model.IModel;
 import model.Model;
@@ -14,6 +15,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 
 /**
  * This class is used to activate the program. The program is responsible for manipulating images,
@@ -22,17 +24,48 @@ import java.io.InputStream;
 public class ActivateProgram {
   /**
    * Main method to activate the program. Accepts an argument to a script file or uses CLI input.
+   * The arguments may start with -scratch and a directory, to keep the images in memory-mapped
+   * files in that directory instead of on the heap, and with -memory and a number of bytes, such
+   * as 512m, to keep the most recently used images on the heap up to that many bytes and spill the
+   * others to scratch files, in the temporary directory unless -scratch gives another.
    *
    * @param args The arguments passed into the program.
-   * @throws IOException If the file cannot be found.
+   * @throws IOException If the file cannot be found, or the scratch directory cannot be created.
    */
   public static void main(String[] args) throws IOException {
+    String scratchDirectory = null;
+    long budget = -1;
+    int first = 0;
+    while (first + 1 < args.length) {
+      if (args[first].equals("-scratch")) {
+        scratchDirectory = args[first + 1];
+      } else if (args[first].equals("-memory")) {
+        budget = parseBytes(args[first + 1]);
+        if (budget < 0) {
+          System.out.println("Invalid memory budget.");
+          System.exit(0);
+        }
+      } else {
+        break;
+      }
+      first += 2;
+    }
+    args = Arrays.copyOfRange(args, first, args.length);
+    IModel model;
+    if (budget >= 0) {
+      String directory =
+          scratchDirectory == null ? System.getProperty("java.io.tmpdir") : scratchDirectory;
+      model = new Model(directory, budget);
+    } else if (scratchDirectory != null) {
+      model = new Model(scratchDirectory);
+    } else {
+      model = new Model();
+    }
     String path="view";
     if(path=="nview"){
 
 
 
-      IModel model = new Model();
       IView view = new View(System.out);
       IController controller;
       if (args.length == 1) {
@@ -62,13 +95,32 @@ public class ActivateProgram {
       view.showStringError("Invalid arguments.");
       System.exit(0);
     } else {
-      IModel model = new Model();
       IViewGUI view = new JFrameView();
-      GUIFeaturesInterface controller = new ControllerGUI(model);
+      GUIFeaturesInterface controller = new ControllerGUI(model, OperationExecutor.background());
       controller.setView(view);
     }
   }
 
+  /**
+   * Parses a number of bytes, which may end in k, m or g for kibibytes, mebibytes or gibibytes.
+   *
+   * @param s the number of bytes
+   * @return the number of bytes, or -1 if it is not a valid number of bytes
+   */
+  private static long parseBytes(String s) {
+    String units = "kmg";
+    int unit = s.isEmpty() ? -1 : units.indexOf(Character.toLowerCase(s.charAt(s.length() - 1)));
+    String digits = unit < 0 ? s : s.substring(0, s.length() - 1);
+    if (!digits.matches("\\d{1,18}")) {
+      return -1;
+    }
+    try {
+      return Math.multiplyExact(Long.parseLong(digits), 1L << (10 * (unit + 1)));
+    } catch (ArithmeticException e) {
+      return -1;
+    }
+  }
+
   private static boolean isValidScript(String s) {
     File file = new File(s);
 
@@ -109,7 +109,7 @@ public abstract class Command {
       return false;
     }
 
-    String[] validExtensions = {".jpg", ".png", ".bmp", ".ppm"};
+    String[] validExtensions = {".jpg", ".png", ".bmp", ".ppm", ".hwt"};
     String fileExtension = s.substring(s.lastIndexOf('.'));
 
     for (String ext : validExtensions) {
@@ -14,6 +14,8 @@ import controller.commands.BlueComponentCommand;
 import controller.commands.BlurCommand;
 import controller.commands.BrightenCommand;
 import controller.commands.CompressCommand;
+import controller.commands.DitherCommand;
+import controller.commands.FilterCommand;
 import controller.commands.GreenComponentCommand;
 import controller.commands.HorizontalFlipCommand;
 import controller.commands.IntensityComponentCommand;
@@ -30,6 +32,7 @@ import controller.commands.RGBSplitCommand;
 import controller.commands.SaveCommand;
 import controller.commands.SepiaCommand;
 import controller.commands.SharpenCommand;
+import controller.commands.TiledCommand;
 import controller.commands.ValueComponentCommand;
 import controller.commands.VerticalFlipCommand;
 import controller.commands.RunCommand;
@@ -92,12 +95,15 @@ public class Controller implements IController{
     this.commandMap.put("vertical-flip", new VerticalFlipCommand(model, view));
     this.commandMap.put("blur", new BlurCommand(model, view));
     this.commandMap.put("sharpen", new SharpenCommand(model, view));
+    this.commandMap.put("filter", new FilterCommand(model, view));
     this.commandMap.put("sepia", new SepiaCommand(model, view));
+    this.commandMap.put("dither", new DitherCommand(model, view));
     this.commandMap.put("run", new RunCommand(model, view, this));
     this.commandMap.put("compress", new CompressCommand(model, view));
     this.commandMap.put("histogram", new HistogramCommand(model, view));
     this.commandMap.put("color-correct", new ColorCorrectCommand(model, view));
     this.commandMap.put("level-adjust", new LevelAdjustCommand(model, view));
+    this.commandMap.put("tiled", new TiledCommand(model, view));
   }
 
   /**
@@ -165,12 +171,14 @@ public class Controller implements IController{
   }
 
   /**
-   * Run the program. If the input stream is a script, run the script. Otherwise, run the prompter.
+   * Run the program. If the input stream is a script, run the script with the model in lazy mode,
+   * so only the images it reads or saves are computed. Otherwise, run the prompter.
    *
    * @throws IOException If the input cannot be read.
    */
   public void execute() throws IOException {
     if (isScript) {
+      model.setLazy(true);
       runScript(this.inputStream);
     } else {
       runPrompter();
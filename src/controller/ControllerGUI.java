@@ -2,7 +2,11 @@ package controller;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
+import model.DitherMode;
 import model.IModel;
 import model.Image;
 import view.IViewGUI;
@@ -10,17 +14,51 @@ import view.IViewGUI;
 /**
  * This class represents the controller for the GUI. It implements the GUIFeatures interface.
  * The controller is responsible for talking with the view in order to showcase image operations.
+ * The model work of every operation is handed to an {@link OperationExecutor}, which can run it
+ * away from the event thread and passes the results back to the view.
+ *
+ * <p>Images larger than the screen are edited through a proxy: a downscaled copy is shown,
+ * previewed and counted for the histogram, while the full image is kept aside. The operations
+ * applied to the proxy are recorded and replayed on the full image when it is saved.
  */
 public class ControllerGUI implements GUIFeaturesInterface {
   private IModel m;
   private IViewGUI v;
+  private final OperationExecutor executor;
 
+  /** The largest number of pixels of an image edited directly, about a screen. */
+  private static final int PROXY_PIXELS = 2_000_000;
+
+  // the fields below are only used by the changes of the operations, one at a time. A refresh
+  // may be skipped by a later operation, so only the changes update the images and the fields,
+  // and a refresh just reads the images to show and counts their histograms
+  private boolean proxied;
+  private final List<Consumer<String>> edits = new ArrayList<>();
+  private final List<Consumer<String>> splitEdits = new ArrayList<>();
+
+  /**
+   * Creates a controller that runs every operation on the calling thread.
+   *
+   * @param model the model.
+   */
   public ControllerGUI(IModel model) {
+    this(model, OperationExecutor.direct());
+  }
+
+  /**
+   * Creates a controller that runs the operations on the given executor.
+   *
+   * @param model the model.
+   * @param executor runs the model work of the operations.
+   */
+  public ControllerGUI(IModel model, OperationExecutor executor) {
     m = model;
+    this.executor = executor;
   }
 
   public void setView(IViewGUI view) {
     v = view;
+    executor.setProgressListener(view::setProgress);
     view.addFeatures(this);
   }
 
@@ -30,33 +68,122 @@ public class ControllerGUI implements GUIFeaturesInterface {
 
   @Override
   public void showImage() {
-    resetSplitImage();
+    executor.submit(
+        () -> {
+          resetSplitImage();
+          return null;
+        },
+        this::refreshImage);
+  }
+
+  @Override
+  public void showSplit() {
+    executor.submit(null, this::refreshSplit);
+  }
+
+  private Runnable refreshImage() {
     Image image = m.getImage("currImage");
-    v.setImage(image);
     m.histogram("currImage", "histImage");
     Image histogram = m.getImage("histImage");
-    v.setHistogram(histogram);
+    return () -> {
+      v.setImage(image);
+      v.setHistogram(histogram);
+    };
   }
 
-  @Override
-  public void showSplit() {
+  private Runnable refreshSplit() {
     Image image = m.getImage("splitView");
-    v.setImage(image);
     m.histogram("splitImage", "splitHistImage");
     Image histogram = m.getImage("splitHistImage");
-    v.setHistogram(histogram);
+    return () -> {
+      v.setImage(image);
+      v.setHistogram(histogram);
+    };
+  }
+
+  /**
+   * Applies an operation to the split image if the split view is on, and to the current image
+   * otherwise, then shows the result.
+   *
+   * @param operation applies the operation to the image with the given name, in place.
+   */
+  private void apply(Consumer<String> operation) {
+    if (v.getSplitStatus()) {
+      int percent = v.getSplitPercentage();
+      executor.submit(
+          () -> {
+            edit("splitImage", operation);
+            splitView(percent);
+            return null;
+          },
+          this::refreshSplit);
+    } else {
+      applyToImage(operation);
+    }
+  }
+
+  /**
+   * Applies an operation to the current image, then shows the result.
+   *
+   * @param operation applies the operation to the image with the given name, in place.
+   */
+  private void applyToImage(Consumer<String> operation) {
+    executor.submit(
+        () -> {
+          edit("currImage", operation);
+          resetSplitImage();
+          return null;
+        },
+        this::refreshImage);
+  }
+
+  /**
+   * Applies an operation to an image in place, recording it if the image is a proxy.
+   *
+   * @param name the name of the image, currImage or splitImage.
+   * @param operation applies the operation to the image with the given name, in place.
+   */
+  private void edit(String name, Consumer<String> operation) {
+    operation.accept(name);
+    if (proxied) {
+      (name.equals("splitImage") ? splitEdits : edits).add(operation);
+    }
+  }
+
+  /**
+   * Gets the image to save: the current image, or the full image once the operations applied to
+   * the proxy have been replayed on it.
+   *
+   * @return the image to save.
+   */
+  private Image commit() {
+    if (!proxied) {
+      return m.getImage("currImage");
+    }
+    for (Consumer<String> operation : edits) {
+      operation.accept("fullImage");
+    }
+    edits.clear();
+    return m.getImage("fullImage");
   }
 
   @Override
   public void saveSplitImage() {
-    Image image = m.getImage("splitImage");
-    m.addImage("currImage", image);
-    resetSplitImage();
+    executor.submit(
+        () -> {
+          Image image = m.getImage("splitImage");
+          m.addImage("currImage", image);
+          edits.addAll(splitEdits);
+          resetSplitImage();
+          return null;
+        },
+        null);
   }
 
   private void resetSplitImage() {
     Image image = m.getImage("currImage");
     m.addImage("splitImage", image);
+    splitEdits.clear();
   }
 
   @Override
@@ -65,22 +192,40 @@ public class ControllerGUI implements GUIFeaturesInterface {
       String name = "currImage";
       String ext = path.substring(path.lastIndexOf(".") + 1);
 
-      try {
-        if (ImageUtil.loadImage(path, ext) == null) {
-          return;
-        }
-        m.addImage(name, ImageUtil.loadImage(path, ext));
-        Image currentImage = m.getImage("currImage");
-        v.setImage(currentImage);
-
-        m.histogram("currImage", "histImage");
-        Image histogram = m.getImage("histImage");
-        v.setHistogram(histogram);
-
-        m.addImage("splitImage", ImageUtil.loadImage(path, ext));
-      } catch (IOException e) {
-        e.printStackTrace();
-      }
+      executor.submit(
+          () -> {
+            try {
+              Image loaded = ImageUtil.loadImage(path, ext);
+              if (loaded == null) {
+                return null;
+              }
+              if (proxied) {
+                m.removeImage("fullImage");
+              }
+              proxied = (long) loaded.getWidth() * loaded.getHeight() > PROXY_PIXELS;
+              edits.clear();
+              splitEdits.clear();
+              if (proxied) {
+                m.addImage("fullImage", loaded);
+                loaded = loaded.downscale(proxyFactor(loaded));
+              }
+              m.addImage(name, loaded);
+              Image currentImage = m.getImage("currImage");
+
+              m.histogram("currImage", "histImage");
+              Image histogram = m.getImage("histImage");
+
+              m.addImage("splitImage", loaded);
+              return () -> {
+                v.setImage(currentImage);
+                v.setHistogram(histogram);
+              };
+            } catch (IOException e) {
+              e.printStackTrace();
+              return null;
+            }
+          },
+          null);
     } else {
       v.showError("File Not Supported");
     }
@@ -89,22 +234,23 @@ public class ControllerGUI implements GUIFeaturesInterface {
   @Override
   public void saveImage(String path) {
     if (isValidFilePath(path)) {
-      String name = "currImage";
       String ext = path.substring(path.lastIndexOf(".") + 1);
 
-      if (ext.equals("ppm")) {
-        try {
-          ImageUtil.convertToPPMImage(m.getImage(name), path, ext);
-        } catch (IOException e) {
-          e.printStackTrace();
-        }
-      } else {
-        try {
-          ImageUtil.convertToImage(m.getImage(name), path, ext);
-        } catch (IOException e) {
-          e.printStackTrace();
-        }
-      }
+      executor.submit(
+          () -> {
+            try {
+              Image image = commit();
+              if (ext.equals("ppm")) {
+                ImageUtil.convertToPPMImage(image, path, ext);
+              } else {
+                ImageUtil.convertToImage(image, path, ext);
+              }
+            } catch (IOException e) {
+              e.printStackTrace();
+            }
+            return null;
+          },
+          null);
     } else {
       v.showError("Invalid File Path");
     }
@@ -112,55 +258,38 @@ public class ControllerGUI implements GUIFeaturesInterface {
 
   @Override
   public void sepiaOperation() {
-    if (v.getSplitStatus()) {
-      m.sepiaImage("splitImage", "splitImage");
-      splitView(v.getSplitPercentage());
-      showSplit();
-    } else {
-      m.sepiaImage("currImage", "currImage");
-      showImage();
-    }
+    apply(name -> m.sepiaImage(name, name));
   }
 
   @Override
   public void redComponentOperation() {
-    if (v.getSplitStatus()) {
-      v.showError("Cannot perform operation with split view");
-    } else {
-      if (!isGrayScale("currImage")) {
-        m.redComponent("currImage", "currImage");
-        showImage();
-      } else {
-        v.showError("Image cannot be GrayScale");
-      }
-    }
+    componentOperation(name -> m.redComponent(name, name));
   }
 
   @Override
   public void greenComponentOperation() {
-    if (v.getSplitStatus()) {
-      v.showError("Cannot perform operation with split view");
-    } else {
-      if (!isGrayScale("currImage")) {
-        m.greenComponent("currImage", "currImage");
-        showImage();
-      } else {
-        v.showError("Image cannot be GrayScale");
-      }
-    }
+    componentOperation(name -> m.greenComponent(name, name));
   }
 
   @Override
   public void blueComponentOperation() {
+    componentOperation(name -> m.blueComponent(name, name));
+  }
+
+  private void componentOperation(Consumer<String> operation) {
     if (v.getSplitStatus()) {
       v.showError("Cannot perform operation with split view");
     } else {
-      if (!isGrayScale("currImage")) {
-        m.blueComponent("currImage", "currImage");
-        showImage();
-      } else {
-        v.showError("Image cannot be GrayScale");
-      }
+      executor.submit(
+          () -> {
+            if (isGrayScale("currImage")) {
+              return () -> v.showError("Image cannot be GrayScale");
+            }
+            edit("currImage", operation);
+            resetSplitImage();
+            return null;
+          },
+          this::refreshImage);
     }
   }
 
@@ -169,8 +298,7 @@ public class ControllerGUI implements GUIFeaturesInterface {
     if (v.getSplitStatus()) {
       v.showError("Cannot perform operation with split view");
     } else {
-      m.horizontalFlip("currImage", "currImage");
-      showImage();
+      applyToImage(name -> m.horizontalFlip(name, name));
     }
   }
 
@@ -179,49 +307,39 @@ public class ControllerGUI implements GUIFeaturesInterface {
     if (v.getSplitStatus()) {
       v.showError("Cannot perform operation with split view");
     } else {
-      m.verticalFlip("currImage", "currImage");
-      showImage();
+      applyToImage(name -> m.verticalFlip(name, name));
     }
   }
 
   @Override
   public void blurOperation() {
-    if (v.getSplitStatus()) {
-      m.blurImage("splitImage", "splitImage");
-      splitView(v.getSplitPercentage());
-      showSplit();
-    } else {
-      m.blurImage("currImage", "currImage");
-      showImage();
-    }
+    apply(name -> m.blurImage(name, name));
   }
 
   @Override
   public void sharpenOperation() {
-    if (v.getSplitStatus()) {
-      m.sharpenImage("splitImage", "splitImage");
-      splitView(v.getSplitPercentage());
-      showSplit();
-    } else {
-      m.sharpenImage("currImage", "currImage");
-      showImage();
-    }
+    apply(name -> m.sharpenImage(name, name));
   }
 
   @Override
   public void greyScaleOperation() {
-    if (!isGrayScale("currImage")) {
-      if (v.getSplitStatus()) {
-        m.calculateLuma("splitImage", "splitImage");
-        splitView(v.getSplitPercentage());
-        showSplit();
-      } else {
-        m.calculateLuma("currImage", "currImage");
-        showImage();
-      }
-    } else {
-      v.showError("Image cannot already be GrayScale");
-    }
+    boolean split = v.getSplitStatus();
+    int percent = split ? v.getSplitPercentage() : 0;
+    String name = split ? "splitImage" : "currImage";
+    executor.submit(
+        () -> {
+          if (isGrayScale("currImage")) {
+            return () -> v.showError("Image cannot already be GrayScale");
+          }
+          edit(name, image -> m.calculateLuma(image, image));
+          if (split) {
+            splitView(percent);
+          } else {
+            resetSplitImage();
+          }
+          return null;
+        },
+        split ? this::refreshSplit : this::refreshImage);
   }
 
   @Override
@@ -229,57 +347,54 @@ public class ControllerGUI implements GUIFeaturesInterface {
     if (v.getSplitStatus()) {
       v.showError("Cannot perform operation with split view");
     } else {
-      m.compressImage("currImage", "currImage", compressionFactor);
-      showImage();
+      applyToImage(name -> m.compressImage(name, name, compressionFactor));
     }
   }
 
   @Override
   public void colorCorrectionOperation() {
-    if (v.getSplitStatus()) {
-      m.colorCorrect("splitImage", "splitImage");
-      splitView(v.getSplitPercentage());
-      showSplit();
-    } else {
-      m.colorCorrect("currImage", "currImage");
-      showImage();
-    }
+    apply(name -> m.colorCorrect(name, name));
   }
 
   @Override
   public void adjustLevelsOperation(int b, int mid, int w) {
-    if (v.getSplitStatus()) {
-      m.levelAdjust(b, mid, w, "splitImage", "splitImage");
-      splitView(v.getSplitPercentage());
-      showSplit();
-    } else {
-      m.levelAdjust(b, mid, w, "currImage", "currImage");
-      showImage();
-    }
+    apply(name -> m.levelAdjust(b, mid, w, name, name));
   }
 
   @Override
   public void brightnessOperation(int value) {
-    if (v.getSplitStatus()) {
-      m.brightenImage(value, "splitImage", "splitImage");
-      splitView(v.getSplitPercentage());
-      showSplit();
-    } else {
-      m.brightenImage(value, "currImage", "currImage");
-      showImage();
-    }
+    apply(name -> m.brightenImage(value, name, name));
   }
 
   @Override
   public void ditherOperation() {
-    if (v.getSplitStatus()) {
-      m.ditherImage("splitImage", "splitImage");
-      splitView(v.getSplitPercentage());
-      showSplit();
-    } else {
-      m.ditherImage("currImage", "currImage");
-      showImage();
+    apply(name -> m.ditherImage(name, name));
+  }
+
+  @Override
+  public void ditherOperation(String mode) {
+    DitherMode ditherMode = DitherMode.fromName(mode);
+    if (ditherMode == null) {
+      v.showError("Invalid Dither Mode");
+      return;
+    }
+    apply(name -> m.ditherImage(ditherMode, name, name));
+  }
+
+  /**
+   * Gets the smallest factor that shrinks an image to at most {@link #PROXY_PIXELS} pixels.
+   *
+   * @param image the image.
+   * @return the factor.
+   */
+  private static int proxyFactor(Image image) {
+    int factor = 1;
+    while ((long) ((image.getHeight() + factor - 1) / factor)
+            * ((image.getWidth() + factor - 1) / factor)
+        > PROXY_PIXELS) {
+      factor++;
     }
+    return factor;
   }
 
   /**
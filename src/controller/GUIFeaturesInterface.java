@@ -50,4 +50,11 @@ public interface GUIFeaturesInterface {
   void brightnessOperation(int value);
 
   void ditherOperation();
+
+  /**
+   * Dithers the current image to black and white.
+   *
+   * @param mode the name of the way of dithering, such as bayer-4 or blue-noise.
+   */
+  void ditherOperation(String mode);
 }
@@ -2,21 +2,23 @@ package controller;
 
 import javax.imageio.ImageIO;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.FileWriter;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
 
-import java.util.Scanner;
-
+import model.CompressedImage;
 import model.GrayScaleImage;
 import model.Image;
 import model.RGBImage;
-import model.RGBPixel;
 
 /** This class helps in loading and saving images. */
 public class ImageUtil {
@@ -31,113 +33,31 @@ public class ImageUtil {
   public static Image loadImage(String fileName, String ext) throws IOException {
     File file = new File(fileName);
 
-    BufferedImage image;
     if (ext.equals("ppm")) {
-      image = loadPPMFile(fileName);
-      if (image == null) {
-        return null;
-      }
-    } else {
-      image = ImageIO.read(file);
-    }
-
-    if (isGrayscale(image)) {
-      Color[][] colors = new Color[image.getHeight()][image.getWidth()];
-
-      for (int row = 0; row < colors.length; row++) {
-        for (int col = 0; col < colors[0].length; col++) {
-          colors[row][col] = new Color(image.getRGB(col, row));
-        }
-      }
-
-      int[][] pixels = new int[image.getHeight()][image.getWidth()];
-
-      for (int row = 0; row < pixels.length; row++) {
-        for (int col = 0; col < pixels[0].length; col++) {
-          int r = clamp(colors[row][col].getRed(), 0, 255);
-          pixels[row][col] = r;
-        }
-      }
-
-      return new GrayScaleImage(pixels.length, pixels[0].length, pixels);
-    } else {
-      Color[][] colors = new Color[image.getHeight()][image.getWidth()];
-
-      for (int row = 0; row < colors.length; row++) {
-        for (int col = 0; col < colors[0].length; col++) {
-          colors[row][col] = new Color(image.getRGB(col, row));
-        }
-      }
-
-      RGBPixel[][] pixels = new RGBPixel[image.getHeight()][image.getWidth()];
-
-      for (int row = 0; row < pixels.length; row++) {
-        for (int col = 0; col < pixels[0].length; col++) {
-          int r = clamp(colors[row][col].getRed(), 0, 255);
-          int g = clamp(colors[row][col].getGreen(), 0, 255);
-          int b = clamp(colors[row][col].getBlue(), 0, 255);
-          pixels[row][col] = new RGBPixel(r, g, b);
-        }
-      }
-
-      return new RGBImage(pixels.length, pixels[0].length, pixels);
-    }
-  }
-
-  /**
-   * Helper method to load PPM file by reading the file and converting it into an image matrix.
-   *
-   * @param fileName name of the file.
-   * @return the image matrix.
-   */
-  private static BufferedImage loadPPMFile(String fileName) {
-    Scanner sc;
-
-    try {
-      sc = new Scanner(new FileInputStream(fileName));
-    } catch (FileNotFoundException e) {
-      return null;
-    }
-    StringBuilder builder = new StringBuilder();
-    while (sc.hasNextLine()) {
-      String s = sc.nextLine();
-      if (s.charAt(0) != '#') {
-        builder.append(s).append(System.lineSeparator());
-      }
+      return PPMCodec.read(fileName);
     }
-
-    sc = new Scanner(builder.toString());
-
-    String token;
-
-    token = sc.next();
-    if (!token.equals("P3")) {
-      return null;
+    if (ext.equals("hwt")) {
+      CompressedImage compressed = loadCompressed(fileName);
+      return compressed == null ? null : compressed.toImage();
     }
-    int width = sc.nextInt();
-    int height = sc.nextInt();
-    int maxValue = sc.nextInt();
-
-    if (maxValue > 255) {
+    BufferedImage image = ImageIO.read(file);
+    if (image == null) {
       return null;
     }
 
-    BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] pixels = new int[width * height];
+    boolean grayscale = readPixels(image, pixels);
 
-    for (int row = 0; row < height; row++) {
-      for (int col = 0; col < width; col++) {
-        int r = sc.nextInt();
-        r = clamp(r, 0, 255);
-        int g = sc.nextInt();
-        g = clamp(g, 0, 255);
-        int b = sc.nextInt();
-        b = clamp(b, 0, 255);
-        int rgb = new Color(r, g, b).getRGB();
-        bufferedImage.setRGB(col, row, rgb);
+    if (grayscale) {
+      byte[] values = new byte[pixels.length];
+      for (int i = 0; i < pixels.length; i++) {
+        values[i] = (byte) pixels[i];
       }
+      return new GrayScaleImage(height, width, values);
     }
-
-    return bufferedImage;
+    return new RGBImage(height, width, pixels);
   }
 
   /**
@@ -150,24 +70,7 @@ public class ImageUtil {
    */
   public static void convertToPPMImage(Image image, String fileName, String ext)
       throws IOException {
-    FileWriter writer = new FileWriter(fileName);
-    writer.write("P3\n");
-    writer.write(image.getWidth() + " " + image.getHeight() + "\n");
-    writer.write("255\n");
-    for (int row = 0; row < image.getHeight(); row++) {
-      for (int col = 0; col < image.getWidth(); col++) {
-        if (image instanceof GrayScaleImage) {
-          writer.write(image.getPixel(row, col) + "\n");
-          writer.write(image.getPixel(row, col) + "\n");
-          writer.write(image.getPixel(row, col) + "\n");
-        } else {
-          writer.write(image.getPixelRGB(row, col).getRedComponent() + "\n");
-          writer.write(image.getPixelRGB(row, col).getGreenComponent() + "\n");
-          writer.write(image.getPixelRGB(row, col).getBlueComponent() + "\n");
-        }
-      }
-    }
-    writer.close();
+    PPMCodec.writeAscii(image, fileName);
   }
 
   /**
@@ -175,39 +78,16 @@ public class ImageUtil {
    *
    * @param matrix the image matrix.
    * @return BufferedImage of the given matrix. To be used by GUI. Or in saving by ImageIO.
-   * @throws IOException if the file cannot be found.
    */
-  public static BufferedImage convertToBuffered(Image matrix) throws IOException {
-    BufferedImage image =
-        new BufferedImage(matrix.getWidth(), matrix.getHeight(), BufferedImage.TYPE_INT_RGB);
-
-    if (matrix instanceof GrayScaleImage) {
-      for (int row = 0; row < matrix.getHeight(); row++) {
-        for (int col = 0; col < matrix.getWidth(); col++) {
-
-          int rgb =
-              new Color(
-                      matrix.getPixel(row, col),
-                      matrix.getPixel(row, col),
-                      matrix.getPixel(row, col))
-                  .getRGB();
-          image.setRGB(col, row, rgb);
-        }
-      }
-    } else {
-      for (int row = 0; row < matrix.getHeight(); row++) {
-        for (int col = 0; col < matrix.getWidth(); col++) {
-          int rgb =
-              new Color(
-                      matrix.getPixelRGB(row, col).getRedComponent(),
-                      matrix.getPixelRGB(row, col).getGreenComponent(),
-                      matrix.getPixelRGB(row, col).getBlueComponent())
-                  .getRGB();
-          image.setRGB(col, row, rgb);
-        }
-      }
-    }
-    return image;
+  public static BufferedImage convertToBuffered(Image matrix) {
+    int width = matrix.getWidth();
+    int height = matrix.getHeight();
+    // the packed pixels are a copy, so the buffered image can use them as its data
+    DataBufferInt buffer = new DataBufferInt(matrix.getPackedPixels(), width * height);
+    int[] masks = {0xFF0000, 0xFF00, 0xFF};
+    WritableRaster raster = Raster.createPackedRaster(buffer, width, height, width, masks, null);
+    return new BufferedImage(new DirectColorModel(24, masks[0], masks[1], masks[2]), raster,
+        false, null);
   }
 
   /**
@@ -222,6 +102,10 @@ public class ImageUtil {
     if (matrix == null) {
       return;
     }
+    if (ext.equals("hwt")) {
+      saveCompressed(matrix, 0, fileName);
+      return;
+    }
     BufferedImage image = convertToBuffered(matrix);
 
     File outputFile = new File(fileName);
@@ -229,33 +113,115 @@ public class ImageUtil {
   }
 
   /**
-   * Helper method to check if the image is grayscale. Image is grayscale if {R,G,B} components of
-   * image are equal.
+   * Compresses the image matrix and saves its wavelet coefficients into a compressed (hwt) file.
    *
-   * @param image the image matrix.
-   * @return true if the image is grayscale, false otherwise.
+   * @param matrix the image matrix.
+   * @param threshold the percentage by which to compress the image.
+   * @param fileName name of the file.
+   * @throws IOException if the file cannot be written.
    */
-  private static boolean isGrayscale(BufferedImage image) {
-    for (int row = 0; row < image.getHeight(); row++) {
-      for (int col = 0; col < image.getWidth(); col++) {
-        Color c = new Color(image.getRGB(col, row));
-        if (c.getRed() != c.getGreen() || c.getRed() != c.getBlue()) {
-          return false;
-        }
-      }
+  public static void saveCompressed(Image matrix, int threshold, String fileName)
+      throws IOException {
+    saveCompressed(CompressedImage.compress(matrix, threshold), fileName);
+  }
+
+  /**
+   * Saves the wavelet coefficients of an image that is already compressed into a compressed (hwt)
+   * file.
+   *
+   * @param compressed the compressed image.
+   * @param fileName name of the file.
+   * @throws IOException if the file cannot be written.
+   */
+  public static void saveCompressed(CompressedImage compressed, String fileName)
+      throws IOException {
+    try (OutputStream out = new FileOutputStream(fileName)) {
+      compressed.write(out);
     }
-    return true;
   }
 
   /**
-   * Helper method to clamp the value between min and max between 0-255.
+   * Loads an image from a compressed (hwt) file at a reduced resolution, for a quick preview. Only
+   * part of the inverse transform is done, so this is much faster than loading the full image.
    *
-   * @param val value to be clamped.
-   * @param min minimum value.
-   * @param max maximum value.
-   * @return the clamped value.
+   * @param fileName name of the file.
+   * @param reduction the number of times the size is halved along each axis, 0 for full size.
+   * @return the reduced image, or null if the file is not a valid compressed image.
+   * @throws IOException if the file cannot be read.
    */
-  private static int clamp(int val, int min, int max) {
-    return Math.max(min, Math.min(max, val));
+  public static Image loadCompressedImage(String fileName, int reduction) throws IOException {
+    CompressedImage compressed = loadCompressed(fileName);
+    return compressed == null ? null : compressed.toImage(reduction);
+  }
+
+  /**
+   * Helper method to load the wavelet coefficients of an image from a compressed (hwt) file.
+   *
+   * @param fileName name of the file.
+   * @return the compressed image, or null if the file is not a valid compressed image.
+   * @throws IOException if the file cannot be read.
+   */
+  private static CompressedImage loadCompressed(String fileName) throws IOException {
+    File file = new File(fileName);
+    if (!file.isFile()) {
+      return null;
+    }
+    try (InputStream in = new FileInputStream(file)) {
+      return CompressedImage.read(in);
+    }
+  }
+
+  /**
+   * Helper method to read the pixels of an image row by row, straight from its raster where the
+   * layout is known. Image is grayscale if {R,G,B} components of image are equal.
+   *
+   * @param image the image.
+   * @param pixels the array to fill with packed 0xRRGGBB pixels.
+   * @return true if the image is grayscale, false otherwise.
+   */
+  private static boolean readPixels(BufferedImage image, int[] pixels) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    WritableRaster raster = image.getRaster();
+    int type = image.getType();
+    boolean grayscale = true;
+    int[] line = new int[width];
+    byte[] samples = null;
+    if (type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR) {
+      samples = new byte[width * raster.getNumBands()];
+    }
+
+    for (int row = 0; row < height; row++) {
+      int offset = row * width;
+      if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB) {
+        raster.getDataElements(0, row, width, 1, line);
+        for (int col = 0; col < width; col++) {
+          pixels[offset + col] = line[col] & 0xFFFFFF;
+        }
+      } else if (samples != null) {
+        // the samples of each pixel are in band order, red first
+        raster.getDataElements(0, row, width, 1, samples);
+        int bands = raster.getNumBands();
+        for (int col = 0; col < width; col++) {
+          int i = col * bands;
+          int red = samples[i] & 0xFF;
+          int green = samples[i + 1] & 0xFF;
+          int blue = samples[i + 2] & 0xFF;
+          pixels[offset + col] = (red << 16) | (green << 8) | blue;
+        }
+      } else {
+        image.getRGB(0, row, width, 1, pixels, offset, width);
+        for (int col = 0; col < width; col++) {
+          pixels[offset + col] &= 0xFFFFFF;
+        }
+      }
+
+      for (int col = 0; col < width && grayscale; col++) {
+        int pixel = pixels[offset + col];
+        int blue = pixel & 0xFF;
+        grayscale = ((pixel >> 16) & 0xFF) == blue && ((pixel >> 8) & 0xFF) == blue;
+      }
+    }
+    return grayscale;
   }
 }
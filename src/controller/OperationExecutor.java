@@ -0,0 +1,162 @@
+package controller;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.SwingUtilities;
+
+import model.Progress;
+
+/**
+ * Runs the model work of the GUI away from the event thread and hands the resulting view updates
+ * back to it. Every request has two steps: a change of the model, such as blurring the current
+ * image, and a refresh, which computes what the view shows next, such as the histogram.
+ *
+ * <p>Requests run one at a time in the order they were submitted, so every change is applied, in
+ * order. A refresh is only wanted for the latest request though: once another request with a
+ * refresh has been submitted, the refresh of the one before it is skipped, or cancelled if it is
+ * already running. The progress of the row loops of the running request is reported as it goes.
+ */
+public class OperationExecutor {
+  /** Model work, which returns the update of the view to make on the event thread. */
+  public interface Task {
+    /**
+     * Runs the work.
+     *
+     * @return the update of the view, or null if there is nothing to show
+     */
+    Runnable run();
+  }
+
+  private final Executor worker;
+  private final Executor eventThread;
+  private final AtomicReference<Request> latest = new AtomicReference<>();
+  private Progress.Listener listener = percent -> { };
+
+  /**
+   * Creates an executor.
+   *
+   * @param worker runs the model work
+   * @param eventThread runs the updates of the view
+   */
+  public OperationExecutor(Executor worker, Executor eventThread) {
+    this.worker = worker;
+    this.eventThread = eventThread;
+  }
+
+  /**
+   * Creates an executor that runs everything on the calling thread, as soon as it is submitted.
+   *
+   * @return the executor
+   */
+  public static OperationExecutor direct() {
+    return new OperationExecutor(Runnable::run, Runnable::run);
+  }
+
+  /**
+   * Creates an executor that runs the model work on a background thread and the updates of the
+   * view on the Swing event dispatch thread.
+   *
+   * @return the executor
+   */
+  public static OperationExecutor background() {
+    ExecutorService worker =
+        Executors.newSingleThreadExecutor(
+            work -> {
+              Thread thread = new Thread(work, "operations");
+              thread.setDaemon(true);
+              return thread;
+            });
+    return new OperationExecutor(worker, SwingUtilities::invokeLater);
+  }
+
+  /**
+   * Sets what receives the progress of the model work. It is called on the event thread.
+   *
+   * @param listener receives the percentage of the rows done by the running row loop
+   */
+  public void setProgressListener(Progress.Listener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Submits a request. If the change returns an update of the view, such as an error message, the
+   * update is made and the refresh is skipped.
+   *
+   * @param change the change of the model, or null if there is none
+   * @param refresh the refresh of the view after the change, or null if there is none
+   */
+  public void submit(Task change, Task refresh) {
+    Progress.Listener listener = this.listener;
+    Progress.Listener published =
+        percent -> this.eventThread.execute(() -> listener.update(percent));
+    Request request = new Request(change, refresh, published);
+    Request previous = this.latest.getAndSet(request);
+    if (previous != null && refresh != null) {
+      previous.refreshProgress.cancel();
+      request.previous = previous;
+    }
+    this.worker.execute(() -> this.run(request));
+  }
+
+  private void run(Request request) {
+    // requests run one at a time, so the previous one is done
+    Request previous = request.previous;
+    request.previous = null;
+    try {
+      if (request.change != null) {
+        Runnable update = this.call(request.change, request.changeProgress);
+        if (update != null) {
+          this.eventThread.execute(update);
+          if (previous == null || !previous.refreshSkipped) {
+            return;
+          }
+          // the view still waits for the refresh of the previous request
+        }
+      }
+      if (request.refresh != null) {
+        Runnable update = this.call(request.refresh, request.refreshProgress);
+        if (update != null) {
+          this.eventThread.execute(update);
+        }
+      }
+    } catch (CancellationException e) {
+      // superseded by a later request, which shows its own result
+      request.refreshSkipped = true;
+    } catch (RuntimeException e) {
+      e.printStackTrace();
+    } finally {
+      if (this.latest.get() == request) {
+        request.listener.update(0);
+      }
+    }
+  }
+
+  private Runnable call(Task task, Progress progress) {
+    Runnable[] update = new Runnable[1];
+    progress.run(() -> update[0] = task.run());
+    return update[0];
+  }
+
+  /** A submitted request, with the progress of each of its steps. */
+  private static final class Request {
+    private final Task change;
+    private final Task refresh;
+    private final Progress changeProgress;
+    private final Progress refreshProgress;
+    private final Progress.Listener listener;
+    private Request previous;
+    private boolean refreshSkipped;
+
+    Request(Task change, Task refresh, Progress.Listener listener) {
+      this.change = change;
+      this.refresh = refresh;
+      this.listener = listener;
+      this.changeProgress = new Progress(listener);
+      this.refreshProgress = new Progress(listener);
+    }
+  }
+}
@@ -0,0 +1,471 @@
+package controller;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import model.GrayScaleImage;
+import model.Image;
+import model.RGBImage;
+import model.TiledImage;
+
+/**
+ * Reads and writes images in the netpbm formats: ASCII and binary PPM (P3 and P6) and ASCII and
+ * binary PGM (P2 and P5). Files are parsed by a tokenizer working directly on a byte buffer, and
+ * written through a byte buffer with a precomputed text form of every channel value.
+ *
+ * <p>Channel values are clamped to 0-255 and are not rescaled by the maximum value of the file.
+ * Images whose pixels are all gray are loaded as grayscale images.
+ */
+public final class PPMCodec {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** The text form of every channel value followed by a newline. */
+  private static final byte[][] ASCII_VALUES = new byte[256][];
+
+  static {
+    for (int value = 0; value < 256; value++) {
+      ASCII_VALUES[value] = (value + "\n").getBytes();
+    }
+  }
+
+  private PPMCodec() {}
+
+  /**
+   * Reads a PPM or PGM file.
+   *
+   * @param fileName the name of the file
+   * @return the image, or null if the file does not exist or is not a valid image
+   * @throws IOException if the file cannot be read
+   */
+  public static Image read(String fileName) throws IOException {
+    File file = new File(fileName);
+    if (!file.isFile()) {
+      return null;
+    }
+    try (InputStream in = new FileInputStream(file)) {
+      return read(in);
+    }
+  }
+
+  /**
+   * Reads a PPM or PGM image from a stream.
+   *
+   * @param in the stream to read from
+   * @return the image, or null if the stream does not hold a valid image
+   * @throws IOException if the stream cannot be read
+   */
+  public static Image read(InputStream in) throws IOException {
+    Tokenizer tokenizer = new Tokenizer(in);
+    Header header = Header.read(tokenizer);
+    if (header == null || (long) header.width * header.height > Integer.MAX_VALUE) {
+      return null;
+    }
+
+    int width = header.width;
+    int height = header.height;
+    int[] pixels = new int[width * height];
+    byte[] row = new byte[header.rowLength()];
+    boolean gray = true;
+    for (int r = 0; r < height; r++) {
+      if (!readRow(tokenizer, header, row, pixels, r * width)) {
+        return null;
+      }
+      gray &= !header.color || isGray(pixels, r * width, width);
+    }
+
+    if (gray) {
+      byte[] values = new byte[pixels.length];
+      for (int i = 0; i < pixels.length; i++) {
+        values[i] = (byte) pixels[i];
+      }
+      return new GrayScaleImage(height, width, values);
+    }
+    return new RGBImage(height, width, pixels);
+  }
+
+  /**
+   * Reads a PPM or PGM file into a tiled image, a band of rows at a time, so that the image does
+   * not have to fit in memory.
+   *
+   * @param fileName the name of the file
+   * @return the image, or null if the file does not exist or is not a valid image
+   * @throws IOException if the file cannot be read
+   */
+  public static TiledImage readTiled(String fileName) throws IOException {
+    File file = new File(fileName);
+    if (!file.isFile()) {
+      return null;
+    }
+    try (InputStream in = new FileInputStream(file)) {
+      return readTiled(in);
+    }
+  }
+
+  /**
+   * Reads a PPM or PGM image from a stream into a tiled image, a band of rows at a time. Unlike
+   * {@link #read(InputStream)}, a PPM image whose pixels are all gray stays a color image, as the
+   * rows are stored before the last of them is read.
+   *
+   * @param in the stream to read from
+   * @return the image, or null if the stream does not hold a valid image
+   * @throws IOException if the stream cannot be read
+   */
+  public static TiledImage readTiled(InputStream in) throws IOException {
+    Tokenizer tokenizer = new Tokenizer(in);
+    Header header = Header.read(tokenizer);
+    // a band of rows is one row of tiles
+    int band = TiledImage.TILE_SIZE;
+    if (header == null || (long) header.width * band > Integer.MAX_VALUE) {
+      return null;
+    }
+
+    int width = header.width;
+    int height = header.height;
+    TiledImage image = TiledImage.create(height, width, !header.color);
+    try {
+      int[] pixels = new int[Math.min(height, band) * width];
+      byte[] row = new byte[header.rowLength()];
+      for (int startRow = 0; startRow < height; startRow += band) {
+        int rows = Math.min(band, height - startRow);
+        for (int r = 0; r < rows; r++) {
+          if (!readRow(tokenizer, header, row, pixels, r * width)) {
+            image.close();
+            return null;
+          }
+        }
+        image.setRows(startRow, rows, pixels);
+      }
+    } catch (IOException | RuntimeException e) {
+      image.close();
+      throw e;
+    }
+    return image;
+  }
+
+  /**
+   * Reads a row of pixels into an array of packed pixels.
+   *
+   * @return false if the row is cut short or malformed
+   */
+  private static boolean readRow(
+      Tokenizer tokenizer, Header header, byte[] row, int[] pixels, int offset)
+      throws IOException {
+    int width = header.width;
+    if (header.binary) {
+      // the single whitespace byte after the maximum value was consumed with it
+      if (!tokenizer.readFully(row)) {
+        return false;
+      }
+      for (int c = 0; c < width; c++) {
+        if (header.color) {
+          int red = row[3 * c] & 0xFF;
+          int green = row[3 * c + 1] & 0xFF;
+          int blue = row[3 * c + 2] & 0xFF;
+          pixels[offset + c] = (red << 16) | (green << 8) | blue;
+        } else {
+          int value = row[c] & 0xFF;
+          pixels[offset + c] = (value << 16) | (value << 8) | value;
+        }
+      }
+      return true;
+    }
+    for (int c = 0; c < width; c++) {
+      int red = clamp(tokenizer.nextInt());
+      int green = red;
+      int blue = red;
+      if (header.color) {
+        green = clamp(tokenizer.nextInt());
+        blue = clamp(tokenizer.nextInt());
+      }
+      if (tokenizer.isMalformed()) {
+        return false;
+      }
+      pixels[offset + c] = (red << 16) | (green << 8) | blue;
+    }
+    return true;
+  }
+
+  private static boolean isGray(int[] pixels, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      int pixel = pixels[i];
+      int blue = pixel & 0xFF;
+      if (((pixel >> 16) & 0xFF) != blue || ((pixel >> 8) & 0xFF) != blue) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes an image as an ASCII PPM (P3) file, with one channel value per line.
+   *
+   * @param image the image to write
+   * @param fileName the name of the file
+   * @throws IOException if the file cannot be written
+   */
+  public static void writeAscii(Image image, String fileName) throws IOException {
+    try (OutputStream out = new FileOutputStream(fileName)) {
+      writeAscii(image, out);
+    }
+  }
+
+  /**
+   * Writes an image as an ASCII PPM (P3) stream, with one channel value per line.
+   *
+   * @param image the image to write
+   * @param out the stream to write to
+   * @throws IOException if the stream cannot be written
+   */
+  public static void writeAscii(Image image, OutputStream out) throws IOException {
+    int[] pixels = image.getPackedPixels();
+    byte[] buffer = new byte[BUFFER_SIZE];
+    int length = writeHeader(buffer, "P3", image.getWidth(), image.getHeight());
+    for (int pixel : pixels) {
+      // a pixel takes at most 12 bytes
+      if (length > BUFFER_SIZE - 12) {
+        out.write(buffer, 0, length);
+        length = 0;
+      }
+      length = put(buffer, length, ASCII_VALUES[(pixel >> 16) & 0xFF]);
+      length = put(buffer, length, ASCII_VALUES[(pixel >> 8) & 0xFF]);
+      length = put(buffer, length, ASCII_VALUES[pixel & 0xFF]);
+    }
+    out.write(buffer, 0, length);
+    out.flush();
+  }
+
+  /**
+   * Writes an image as a binary file: PGM (P5) for grayscale images and PPM (P6) otherwise.
+   *
+   * @param image the image to write
+   * @param fileName the name of the file
+   * @throws IOException if the file cannot be written
+   */
+  public static void writeBinary(Image image, String fileName) throws IOException {
+    try (OutputStream out = new FileOutputStream(fileName)) {
+      writeBinary(image, out);
+    }
+  }
+
+  /**
+   * Writes an image as a binary stream: PGM (P5) for grayscale images and PPM (P6) otherwise.
+   *
+   * @param image the image to write
+   * @param out the stream to write to
+   * @throws IOException if the stream cannot be written
+   */
+  public static void writeBinary(Image image, OutputStream out) throws IOException {
+    boolean gray = image instanceof GrayScaleImage;
+    byte[] buffer = new byte[BUFFER_SIZE];
+    int length = writeHeader(buffer, gray ? "P5" : "P6", image.getWidth(), image.getHeight());
+    length = writePixels(out, buffer, length, image.getPackedPixels(), gray);
+    out.write(buffer, 0, length);
+    out.flush();
+  }
+
+  /**
+   * Writes a tiled image as a binary file: PGM (P5) for grayscale images and PPM (P6) otherwise.
+   *
+   * @param image the image to write
+   * @param fileName the name of the file
+   * @throws IOException if the file cannot be written
+   */
+  public static void writeBinary(TiledImage image, String fileName) throws IOException {
+    try (OutputStream out = new FileOutputStream(fileName)) {
+      writeBinary(image, out);
+    }
+  }
+
+  /**
+   * Writes a tiled image as a binary stream, a band of rows at a time: PGM (P5) for grayscale
+   * images and PPM (P6) otherwise.
+   *
+   * @param image the image to write
+   * @param out the stream to write to
+   * @throws IOException if the stream cannot be written
+   */
+  public static void writeBinary(TiledImage image, OutputStream out) throws IOException {
+    boolean gray = image.isGray();
+    byte[] buffer = new byte[BUFFER_SIZE];
+    int length = writeHeader(buffer, gray ? "P5" : "P6", image.getWidth(), image.getHeight());
+    int band = TiledImage.TILE_SIZE;
+    for (int startRow = 0; startRow < image.getHeight(); startRow += band) {
+      int rows = Math.min(band, image.getHeight() - startRow);
+      length = writePixels(out, buffer, length, image.getRows(startRow, rows), gray);
+    }
+    out.write(buffer, 0, length);
+    out.flush();
+  }
+
+  /**
+   * Writes binary pixels through a buffer, one byte per grayscale pixel and three otherwise.
+   *
+   * @return the length of the buffer that is still to be written
+   */
+  private static int writePixels(
+      OutputStream out, byte[] buffer, int length, int[] pixels, boolean gray) throws IOException {
+    for (int pixel : pixels) {
+      if (length > BUFFER_SIZE - 3) {
+        out.write(buffer, 0, length);
+        length = 0;
+      }
+      if (gray) {
+        buffer[length++] = (byte) pixel;
+      } else {
+        buffer[length++] = (byte) (pixel >> 16);
+        buffer[length++] = (byte) (pixel >> 8);
+        buffer[length++] = (byte) pixel;
+      }
+    }
+    return length;
+  }
+
+  private static int writeHeader(byte[] buffer, String magic, int width, int height) {
+    String header = magic + "\n" + width + " " + height + "\n255\n";
+    return put(buffer, 0, header.getBytes());
+  }
+
+  private static int put(byte[] buffer, int length, byte[] bytes) {
+    System.arraycopy(bytes, 0, buffer, length, bytes.length);
+    return length + bytes.length;
+  }
+
+  private static int clamp(int value) {
+    return Math.max(0, Math.min(255, value));
+  }
+
+  /** The format and size of an image, from the start of a file. */
+  private static final class Header {
+    private final boolean color;
+    private final boolean binary;
+    private final int width;
+    private final int height;
+
+    private Header(int format, int width, int height) {
+      this.color = format == '3' || format == '6';
+      this.binary = format == '5' || format == '6';
+      this.width = width;
+      this.height = height;
+    }
+
+    /** Reads the header, returning null if it is not a supported format or size. */
+    static Header read(Tokenizer tokenizer) throws IOException {
+      int format = tokenizer.nextMagic();
+      int width = tokenizer.nextInt();
+      int height = tokenizer.nextInt();
+      int maxValue = tokenizer.nextInt();
+      if (format < 0 || width <= 0 || height <= 0 || maxValue <= 0 || maxValue > 255) {
+        return null;
+      }
+      return new Header(format, width, height);
+    }
+
+    /** The number of bytes of a row of a binary file, or 0 for an ASCII file, read by tokens. */
+    int rowLength() {
+      return this.binary ? (this.color ? 3 * this.width : this.width) : 0;
+    }
+  }
+
+  /** Splits a buffered byte stream into whitespace separated tokens, skipping comments. */
+  private static final class Tokenizer {
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean malformed;
+
+    Tokenizer(InputStream in) {
+      this.in = in;
+    }
+
+    /** Reads one byte, or returns -1 at the end of the stream. */
+    int read() throws IOException {
+      if (this.position == this.limit && !this.fill()) {
+        return -1;
+      }
+      return this.buffer[this.position++] & 0xFF;
+    }
+
+    /** Refills the buffer, returning false at the end of the stream. */
+    private boolean fill() throws IOException {
+      this.limit = Math.max(0, this.in.read(this.buffer, 0, BUFFER_SIZE));
+      this.position = 0;
+      return this.limit > 0;
+    }
+
+    /** Fills the array with the next bytes, returning false if the stream ends first. */
+    boolean readFully(byte[] bytes) throws IOException {
+      int filled = 0;
+      while (filled < bytes.length) {
+        if (this.position == this.limit && !this.fill()) {
+          return false;
+        }
+        int count = Math.min(bytes.length - filled, this.limit - this.position);
+        System.arraycopy(this.buffer, this.position, bytes, filled, count);
+        this.position += count;
+        filled += count;
+      }
+      return true;
+    }
+
+    /** Whether a token that should have been an integer was not, including a missing token. */
+    boolean isMalformed() {
+      return this.malformed;
+    }
+
+    /** Skips whitespace and comments, returning the first byte of the next token. */
+    private int skip() throws IOException {
+      int b = this.read();
+      while (b >= 0) {
+        if (b == '#') {
+          while (b >= 0 && b != '\n' && b != '\r') {
+            b = this.read();
+          }
+        } else if (b > ' ') {
+          return b;
+        }
+        b = this.read();
+      }
+      return -1;
+    }
+
+    /** Reads the magic number, returning its digit or -1 if it is not a supported format. */
+    int nextMagic() throws IOException {
+      if (this.skip() != 'P') {
+        return -1;
+      }
+      int digit = this.read();
+      if (digit != '2' && digit != '3' && digit != '5' && digit != '6') {
+        return -1;
+      }
+      return digit;
+    }
+
+    /**
+     * Reads the next integer token. Very large values saturate, as they are clamped anyway.
+     *
+     * @return the value, or -1 if the next token is not an integer
+     */
+    int nextInt() throws IOException {
+      int b = this.skip();
+      boolean negative = b == '-';
+      if (negative || b == '+') {
+        b = this.read();
+      }
+      if (b < '0' || b > '9') {
+        this.malformed = true;
+        return -1;
+      }
+      int value = 0;
+      while (b >= '0' && b <= '9') {
+        value = Math.min(value * 10 + (b - '0'), 1 << 24);
+        b = this.read();
+      }
+      return negative ? -value : value;
+    }
+  }
+}
@@ -1,28 +1,42 @@
 package controller.commands;
 
 import controller.Command;
+import controller.ImageUtil;
 import model.IModel;
 import view.IView;
 
-/** This class represents a Compress command. */
+import java.io.IOException;
+
+/**
+ * This class represents a Compress command. An optional hwt file name saves the wavelet
+ * coefficients of the compressed image to that file as well.
+ */
 public class CompressCommand extends Command {
   public CompressCommand(IModel model, IView view) {
     super(model, view);
   }
 
   @Override
-  protected void execute(String[] args) {
+  protected void execute(String[] args) throws IOException {
     int factor = Integer.parseInt(args[1]);
     String name = args[2];
     String destImageName = args[3];
 
+    if (args.length == 5) {
+      // the file keeps the exact coefficients, so it reads back as the image in the model
+      ImageUtil.saveCompressed(model.getImage(name), factor, args[4]);
+    }
     model.compressImage(name, destImageName, factor);
     view.showStringSuccess("Compressed image by " + factor + "  % successfully.");
   }
 
   @Override
   protected boolean validateArgs(String[] args) {
-    if (args.length == 4) {
+    if (args.length == 5 && !(args[4].endsWith(".hwt") && isValidFilePath(args[4]))) {
+      callViewFailure("Invalid file path.");
+      return false;
+    }
+    if (args.length == 4 || args.length == 5) {
       if (Integer.parseInt(args[1]) != -1) {
         if (Integer.parseInt(args[1]) >= 0 && Integer.parseInt(args[1]) <= 100) {
           if (isInModel(args[2])) {
@@ -0,0 +1,54 @@
+package controller.commands;
+
+import controller.Command;
+import model.DitherMode;
+import model.IModel;
+import view.IView;
+
+/**
+ * This class represents a dither command. The mode is optional and is one of floyd-steinberg,
+ * bayer-2, bayer-4, bayer-8 and blue-noise, floyd-steinberg if it is left out.
+ */
+public class DitherCommand extends Command {
+  public DitherCommand(IModel model, IView view) {
+    super(model, view);
+  }
+
+  @Override
+  protected void execute(String[] args) {
+    if (args.length == 4) {
+      DitherMode mode = DitherMode.fromName(args[1]);
+      String name = args[2];
+      String destImageName = args[3];
+
+      model.ditherImage(mode, name, destImageName);
+    } else {
+      String name = args[1];
+      String destImageName = args[2];
+
+      model.ditherImage(name, destImageName);
+    }
+    callViewSuccess("Dither operation executed successfully.");
+  }
+
+  @Override
+  protected boolean validateArgs(String[] args) {
+    if (args.length == 3 || args.length == 4) {
+      if (args.length == 4 && DitherMode.fromName(args[1]) == null) {
+        callViewFailure("Invalid dither mode.");
+        return false;
+      }
+      if (isInModel(args[args.length - 2])) {
+        if (isValidName(args[args.length - 1])) {
+          return true;
+        }
+        callViewFailure("Invalid name for image.");
+        return false;
+      }
+      callViewFailure("Image not in model.");
+      return false;
+    }
+    callViewFailure("Invalid number of arguments.");
+    return false;
+  }
+}
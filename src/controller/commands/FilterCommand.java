@@ -0,0 +1,112 @@
+package controller.commands;
+
+import controller.Command;
+import model.IModel;
+import model.Kernel;
+import view.IView;
+
+/**
+ * This class represents a filter command. The kernel is either one of the names blur, sharpen,
+ * box, gaussian, emboss and edge, or the weights written inline with commas between columns and
+ * semicolons between rows, for example {@code 0,-1,0;-1,5,-1;0,-1,0}.
+ */
+public class FilterCommand extends Command {
+  public FilterCommand(IModel model, IView view) {
+    super(model, view);
+  }
+
+  @Override
+  protected void execute(String[] args) {
+    Kernel kernel = parseKernel(args[1]);
+    String name = args[2];
+    String destImageName = args[3];
+
+    model.filterImage(kernel, name, destImageName);
+    callViewSuccess("Filter operation executed successfully.");
+  }
+
+  @Override
+  protected boolean validateArgs(String[] args) {
+    if (args.length == 4) {
+      if (parseKernel(args[1]) != null) {
+        if (isInModel(args[2])) {
+          if (isValidName(args[3])) {
+            return true;
+          }
+          callViewFailure("Invalid name for image.");
+          return false;
+        }
+        callViewFailure("Image not in model.");
+        return false;
+      }
+      callViewFailure("Invalid kernel.");
+      return false;
+    }
+    callViewFailure("Invalid number of arguments.");
+    return false;
+  }
+
+  /**
+   * Parses a kernel name or inline kernel.
+   *
+   * @param spec the kernel name or the inline weights
+   * @return the kernel, or null if the kernel is not valid or cannot be applied
+   */
+  private static Kernel parseKernel(String spec) {
+    Kernel kernel = namedKernel(spec);
+    try {
+      if (kernel == null) {
+        kernel = new Kernel(parseWeights(spec));
+      }
+      kernel.validate();
+      return kernel;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Gets a kernel by name.
+   *
+   * @param spec the kernel name
+   * @return the kernel, or null if there is no kernel with that name
+   */
+  private static Kernel namedKernel(String spec) {
+    switch (spec) {
+      case "blur":
+        return Kernel.BLUR;
+      case "sharpen":
+        return Kernel.SHARPEN;
+      case "box":
+        return Kernel.box(3);
+      case "gaussian":
+        return Kernel.gaussian(5, 1.0);
+      case "emboss":
+        return Kernel.emboss();
+      case "edge":
+        return Kernel.edge();
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Parses inline kernel weights.
+   *
+   * @param spec the weights, with commas between columns and semicolons between rows
+   * @return the weights
+   * @throws NumberFormatException if a weight is not a number
+   */
+  private static double[][] parseWeights(String spec) {
+    String[] rows = spec.split(";");
+    double[][] weights = new double[rows.length][];
+    for (int row = 0; row < rows.length; row++) {
+      String[] cols = rows[row].split(",");
+      weights[row] = new double[cols.length];
+      for (int col = 0; col < cols.length; col++) {
+        weights[row][col] = Double.parseDouble(cols[col]);
+      }
+    }
+    return weights;
+  }
+}
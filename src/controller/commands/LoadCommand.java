@@ -3,6 +3,7 @@ package controller.commands;
 import controller.Command;
 import controller.ImageUtil;
 import model.IModel;
+import model.Image;
 import view.IView;
 
 import java.io.IOException;
@@ -19,12 +20,13 @@ public class LoadCommand extends Command {
     String name = args[2];
     String ext = fileName.substring(fileName.lastIndexOf(".") + 1);
 
-    if (ImageUtil.loadImage(fileName, ext) == null) {
+    Image image = ImageUtil.loadImage(fileName, ext);
+    if (image == null) {
       callViewFailure("Invalid image.");
       return;
     }
 
-    model.addImage(name, ImageUtil.loadImage(fileName, ext));
+    model.addImage(name, image);
     callViewSuccess("Image loaded successfully.");
   }
 
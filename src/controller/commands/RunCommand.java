@@ -23,7 +23,13 @@ public class RunCommand extends Command {
     String filePath = args[1];
     InputStream fileInputStream = new FileInputStream(filePath);
 
-    controller.runScript(fileInputStream);
+    boolean wasLazy = model.isLazy();
+    model.setLazy(true);
+    try {
+      controller.runScript(fileInputStream);
+    } finally {
+      model.setLazy(wasLazy);
+    }
     callViewSuccess("Script executed successfully.");
   }
 
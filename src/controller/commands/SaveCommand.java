@@ -2,12 +2,16 @@ package controller.commands;
 
 import controller.Command;
 import controller.ImageUtil;
+import controller.PPMCodec;
 import model.IModel;
 import view.IView;
 
 import java.io.IOException;
 
-/** This class represents a save command. */
+/**
+ * This class represents a save command. A ppm file is written as text unless the optional
+ * argument "binary" is given.
+ */
 public class SaveCommand extends Command {
   public SaveCommand(IModel model, IView view) {
     super(model, view);
@@ -19,7 +23,9 @@ public class SaveCommand extends Command {
     String name = args[2];
     String ext = fileName.substring(fileName.lastIndexOf(".") + 1);
 
-    if (ext.equals("ppm")) {
+    if (ext.equals("ppm") && args.length == 4) {
+      PPMCodec.writeBinary(model.getImage(name), fileName);
+    } else if (ext.equals("ppm")) {
       ImageUtil.convertToPPMImage(model.getImage(name), fileName, ext);
     } else {
       ImageUtil.convertToImage(model.getImage(name), fileName, ext);
@@ -30,7 +36,7 @@ public class SaveCommand extends Command {
 
   @Override
   protected boolean validateArgs(String[] args) {
-    if (args.length == 3) {
+    if (args.length == 3 || (args.length == 4 && args[3].equals("binary"))) {
       if (isValidFilePath(args[1])) {
         if (isInModel(args[2])) {
           return true;
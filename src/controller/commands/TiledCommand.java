@@ -0,0 +1,107 @@
+package controller.commands;
+
+import controller.Command;
+import controller.PPMCodec;
+import model.IModel;
+import model.TiledImage;
+import view.IView;
+
+import java.io.IOException;
+
+/**
+ * This class represents a tiled command, which applies an action to a ppm file and writes the
+ * result to another ppm file tile by tile, without loading the image into the model. Only the
+ * recently used tiles are kept in memory, so it works on images larger than the heap. The action
+ * is one of brighten, which takes an increment, blur, sharpen, sepia, horizontal-flip and
+ * vertical-flip, and the result is written as a binary file.
+ */
+public class TiledCommand extends Command {
+  public TiledCommand(IModel model, IView view) {
+    super(model, view);
+  }
+
+  @Override
+  protected void execute(String[] args) throws IOException {
+    String action = args[1];
+    String fileName = args[args.length - 2];
+    String destFileName = args[args.length - 1];
+
+    TiledImage image = PPMCodec.readTiled(fileName);
+    if (image == null) {
+      callViewFailure("Invalid image.");
+      return;
+    }
+    try (TiledImage source = image;
+        TiledImage result = apply(source, action, args)) {
+      PPMCodec.writeBinary(result, destFileName);
+    }
+    callViewSuccess("Tiled " + action + " executed successfully.");
+  }
+
+  private static TiledImage apply(TiledImage image, String action, String[] args) {
+    switch (action) {
+      case "brighten":
+        return image.brighten(Integer.parseInt(args[2]));
+      case "blur":
+        return image.blur();
+      case "sharpen":
+        return image.sharpen();
+      case "sepia":
+        return image.sepia();
+      case "horizontal-flip":
+        return image.horizontalFlip();
+      case "vertical-flip":
+        return image.verticalFlip();
+      default:
+        throw new IllegalArgumentException("Unknown action: " + action);
+    }
+  }
+
+  @Override
+  protected boolean validateArgs(String[] args) {
+    if (args.length < 4 || args.length != (args[1].equals("brighten") ? 5 : 4)) {
+      callViewFailure("Invalid number of arguments.");
+      return false;
+    }
+    if (!isTiledAction(args[1])) {
+      callViewFailure("Invalid action.");
+      return false;
+    }
+    if (args.length == 5 && !isInteger(args[2])) {
+      callViewFailure("Invalid increment.");
+      return false;
+    }
+    if (!isValidFile(args[args.length - 2]) || !args[args.length - 2].endsWith(".ppm")) {
+      callViewFailure("Invalid file.");
+      return false;
+    }
+    if (!isValidFilePath(args[args.length - 1]) || !args[args.length - 1].endsWith(".ppm")) {
+      callViewFailure("Invalid file path.");
+      return false;
+    }
+    return true;
+  }
+
+  private static boolean isInteger(String s) {
+    try {
+      Integer.parseInt(s);
+      return true;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  private static boolean isTiledAction(String action) {
+    switch (action) {
+      case "brighten":
+      case "blur":
+      case "sharpen":
+      case "sepia":
+      case "horizontal-flip":
+      case "vertical-flip":
+        return true;
+      default:
+        return false;
+    }
+  }
+}
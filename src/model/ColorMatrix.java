@@ -0,0 +1,342 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * An immutable 3x3 matrix that maps the red, green and blue components of a pixel to new
+ * components. Each result is truncated to an integer and clamped to 0-255. Matrices are evaluated
+ * in integer fixed-point with a decimal scale, and consecutive matrices can be fused into one with
+ * {@link #andThen(ColorMatrix)}.
+ *
+ * <p>For coefficients with at most six decimal places (like the sepia and luma matrices), the
+ * result is the same as evaluating {@code (int) (c0 * red + c1 * green + c2 * blue)} in floating
+ * point: fixed-point sums that land exactly on an integer are re-evaluated in floating point, as
+ * that is the only case where rounding in floating point can change the truncated result.
+ */
+public final class ColorMatrix {
+  /** The sepia tone matrix. */
+  public static final ColorMatrix SEPIA =
+      new ColorMatrix(
+          new double[][] {
+            {0.393, 0.769, 0.189},
+            {0.349, 0.686, 0.168},
+            {0.272, 0.534, 0.131}
+          });
+
+  /** The matrix that converts to grayscale using the luma weights. */
+  public static final ColorMatrix LUMA =
+      new ColorMatrix(
+          new double[][] {
+            {0.2126, 0.7152, 0.0722},
+            {0.2126, 0.7152, 0.0722},
+            {0.2126, 0.7152, 0.0722}
+          });
+
+  /** The matrix that keeps only the red component. */
+  public static final ColorMatrix RED =
+      new ColorMatrix(new double[][] {{1, 0, 0}, {0, 0, 0}, {0, 0, 0}});
+
+  /** The matrix that keeps only the green component. */
+  public static final ColorMatrix GREEN =
+      new ColorMatrix(new double[][] {{0, 0, 0}, {0, 1, 0}, {0, 0, 0}});
+
+  /** The matrix that keeps only the blue component. */
+  public static final ColorMatrix BLUE =
+      new ColorMatrix(new double[][] {{0, 0, 0}, {0, 0, 0}, {0, 0, 1}});
+
+  /** Largest number of decimal places used for the fixed-point weights. */
+  private static final int MAX_DIGITS = 6;
+
+  private final double[][] coefficients;
+  private final int[] weights;
+  private final int divisor;
+  private final long reciprocal;
+  private final int reciprocalShift;
+
+  /**
+   * Creates a color matrix. Row 0 computes the new red component, row 1 the new green component and
+   * row 2 the new blue component; the columns weight the old red, green and blue components.
+   *
+   * @param coefficients the 3x3 coefficients of the matrix, which are copied
+   * @throws IllegalArgumentException if the matrix is not 3x3 or its coefficients are too large
+   */
+  public ColorMatrix(double[][] coefficients) {
+    if (coefficients == null || coefficients.length != 3) {
+      throw new IllegalArgumentException("Color matrix has to be 3x3.");
+    }
+    this.coefficients = new double[3][];
+    for (int row = 0; row < 3; row++) {
+      if (coefficients[row] == null || coefficients[row].length != 3) {
+        throw new IllegalArgumentException("Color matrix has to be 3x3.");
+      }
+      for (double coefficient : coefficients[row]) {
+        if (!Double.isFinite(coefficient)) {
+          throw new IllegalArgumentException("Color matrix coefficients have to be finite.");
+        }
+      }
+      this.coefficients[row] = coefficients[row].clone();
+    }
+
+    int digits = exactDigits(this.coefficients);
+    if (digits < 0) {
+      digits = MAX_DIGITS;
+    }
+    // keep every sum within an int, giving up precision for very large coefficients
+    while (digits > 0 && 255 * maxRowSum(this.coefficients, digits) > Integer.MAX_VALUE) {
+      digits--;
+    }
+    if (255 * maxRowSum(this.coefficients, digits) > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Color matrix coefficients are too large.");
+    }
+
+    this.divisor = (int) Math.pow(10, digits);
+    this.weights = new int[9];
+    for (int row = 0; row < 3; row++) {
+      for (int col = 0; col < 3; col++) {
+        this.weights[row * 3 + col] =
+            (int) Math.round(this.coefficients[row][col] * this.divisor);
+      }
+    }
+    // sums stay below 2^31, so this shift makes the multiply-and-shift an exact division
+    this.reciprocalShift = 31 + (32 - Integer.numberOfLeadingZeros(this.divisor - 1));
+    this.reciprocal = (1L << this.reciprocalShift) / this.divisor + 1;
+  }
+
+  /**
+   * Finds the smallest number of decimal places that represents every coefficient exactly.
+   *
+   * @return the number of decimal places, or -1 if there is none up to the maximum
+   */
+  private static int exactDigits(double[][] coefficients) {
+    for (int digits = 0; digits <= MAX_DIGITS; digits++) {
+      double scale = Math.pow(10, digits);
+      boolean exact = true;
+      for (double[] row : coefficients) {
+        for (double coefficient : row) {
+          double scaled = coefficient * scale;
+          if (Math.abs(scaled - Math.rint(scaled)) > 1e-6) {
+            exact = false;
+          }
+        }
+      }
+      if (exact) {
+        return digits;
+      }
+    }
+    return -1;
+  }
+
+  private static long maxRowSum(double[][] coefficients, int digits) {
+    double scale = Math.pow(10, digits);
+    long max = 0;
+    for (double[] row : coefficients) {
+      long sum = 0;
+      for (double coefficient : row) {
+        sum += Math.abs(Math.round(coefficient * scale));
+      }
+      max = Math.max(max, sum);
+    }
+    return max;
+  }
+
+  /**
+   * Returns the matrix that applies this matrix and then the given one. The fused matrix skips the
+   * truncation and clamping between the two steps, so its result can differ slightly from applying
+   * the two matrices one after the other, unless this matrix is a {@linkplain #isMask() mask}.
+   *
+   * @param next the matrix to apply after this one
+   * @return the fused matrix
+   */
+  public ColorMatrix andThen(ColorMatrix next) {
+    double[][] product = new double[3][3];
+    for (int row = 0; row < 3; row++) {
+      for (int col = 0; col < 3; col++) {
+        for (int k = 0; k < 3; k++) {
+          product[row][col] += next.coefficients[row][k] * this.coefficients[k][col];
+        }
+      }
+    }
+    return new ColorMatrix(product);
+  }
+
+  /**
+   * Returns one coefficient of the matrix.
+   *
+   * @param row the output component
+   * @param col the input component
+   * @return the coefficient
+   */
+  public double getCoefficient(int row, int col) {
+    return this.coefficients[row][col];
+  }
+
+  /**
+   * Whether all rows are equal, so every result pixel is gray.
+   *
+   * @return true if the matrix produces gray pixels
+   */
+  public boolean isGray() {
+    return Arrays.equals(this.coefficients[0], this.coefficients[1])
+        && Arrays.equals(this.coefficients[0], this.coefficients[2]);
+  }
+
+  /**
+   * Whether every component only depends on its own old value, so the matrix is a per-channel
+   * point operation.
+   *
+   * @return true if all coefficients off the diagonal are zero
+   */
+  public boolean isDiagonal() {
+    for (int row = 0; row < 3; row++) {
+      for (int col = 0; col < 3; col++) {
+        if (row != col && this.coefficients[row][col] != 0) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Whether every component is either kept as it is or set to zero, like the matrices that keep a
+   * single component. Such a matrix has no truncation or clamping to skip, and the matrix fused
+   * with a matrix after it has that matrix's coefficients in the same columns, so the fused matrix
+   * gives exactly the same pixels as applying the two one after the other.
+   *
+   * @return true if the matrix is diagonal with coefficients of 0 or 1
+   */
+  public boolean isMask() {
+    for (int row = 0; row < 3; row++) {
+      for (int col = 0; col < 3; col++) {
+        double coefficient = this.coefficients[row][col];
+        if (coefficient != 0 && (row != col || coefficient != 1)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Computes one new component of a pixel.
+   *
+   * @param row the component to compute, 0 for red, 1 for green and 2 for blue
+   * @param red the old red component
+   * @param green the old green component
+   * @param blue the old blue component
+   * @return the new component, within 0-255
+   */
+  public int apply(int row, int red, int green, int blue) {
+    int offset = row * 3;
+    int sum =
+        this.weights[offset] * red
+            + this.weights[offset + 1] * green
+            + this.weights[offset + 2] * blue;
+    if (sum <= 0) {
+      return 0;
+    }
+    int quotient = (int) ((sum * this.reciprocal) >> this.reciprocalShift);
+    if (quotient * this.divisor == sum) {
+      double[] coefficients = this.coefficients[row];
+      quotient = (int) (coefficients[0] * red + coefficients[1] * green + coefficients[2] * blue);
+    }
+    return Math.max(0, Math.min(255, quotient));
+  }
+
+  /**
+   * Returns the lookup table with the same effect as this matrix, which only exists for diagonal
+   * matrices.
+   *
+   * @return the lookup table
+   * @throws IllegalStateException if the matrix is not diagonal
+   */
+  LookupTable asLookupTable() {
+    if (!this.isDiagonal()) {
+      throw new IllegalStateException("Only diagonal matrices are lookup tables.");
+    }
+    return LookupTable.of(
+        value -> this.apply(0, value, 0, 0),
+        value -> this.apply(1, 0, value, 0),
+        value -> this.apply(2, 0, 0, value));
+  }
+
+  /**
+   * Returns the lookup table with the same effect as this matrix on gray pixels.
+   *
+   * @return the lookup table for gray pixels
+   */
+  LookupTable forGray() {
+    return LookupTable.of(
+        value -> this.apply(0, value, value, value),
+        value -> this.apply(1, value, value, value),
+        value -> this.apply(2, value, value, value));
+  }
+
+  /**
+   * Maps packed {@code 0xRRGGBB} pixels.
+   *
+   * @param pixels the packed pixels, in row-major order
+   * @param height the height of the image
+   * @param width the width of the image
+   * @return the mapped pixels
+   */
+  int[] apply(int[] pixels, int height, int width) {
+    int[] result = new int[pixels.length];
+    Parallel.forRows(
+        height,
+        width,
+        (startRow, endRow) -> {
+          for (int i = startRow * width; i < endRow * width; i++) {
+            int pixel = pixels[i];
+            int red = (pixel >> 16) & 0xFF;
+            int green = (pixel >> 8) & 0xFF;
+            int blue = pixel & 0xFF;
+            result[i] =
+                this.apply(0, red, green, blue) << 16
+                    | this.apply(1, red, green, blue) << 8
+                    | this.apply(2, red, green, blue);
+          }
+        });
+    return result;
+  }
+
+  /**
+   * Maps packed {@code 0xRRGGBB} pixels to gray values with the first row of the matrix, which is
+   * every row when the matrix is gray.
+   *
+   * @param pixels the packed pixels, in row-major order
+   * @param height the height of the image
+   * @param width the width of the image
+   * @return the gray values
+   */
+  byte[] applyGray(int[] pixels, int height, int width) {
+    byte[] result = new byte[pixels.length];
+    Parallel.forRows(
+        height,
+        width,
+        (startRow, endRow) -> {
+          for (int i = startRow * width; i < endRow * width; i++) {
+            int pixel = pixels[i];
+            int value = this.apply(0, (pixel >> 16) & 0xFF, (pixel >> 8) & 0xFF, pixel & 0xFF);
+            result[i] = (byte) value;
+          }
+        });
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof ColorMatrix)) {
+      return false;
+    }
+    return Arrays.deepEquals(this.coefficients, ((ColorMatrix) other).coefficients);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.deepHashCode(this.coefficients);
+  }
+}
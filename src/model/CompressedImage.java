@@ -0,0 +1,292 @@
+package model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * An image stored as thresholded Haar wavelet coefficients, the compact form of a compressed
+ * image. Most coefficients of a compressed image are zero, so the coefficients are stored as runs
+ * of zeros and the values between them, and the result is deflated. The coefficients are kept
+ * exactly, so the image read back is the one {@link IME#compressImage(int)} gives.
+ *
+ * <p>The stream starts with the magic bytes "HWT2", followed by the height, the width and the
+ * number of channels (1 for grayscale, 3 for color). The deflated body holds, for each channel in
+ * turn, a varint run of zero coefficients followed by the bits of a coefficient as a big-endian
+ * double, repeated until the run reaches the end of the channel.
+ */
+public final class CompressedImage {
+  private static final byte[] MAGIC = {'H', 'W', 'T', '2'};
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int MAX_SIZE = 1 << 30;
+
+  private final int height;
+  private final int width;
+  private final double[][] channels;
+
+  private CompressedImage(int height, int width, double[][] channels) {
+    this.height = height;
+    this.width = width;
+    this.channels = channels;
+  }
+
+  /**
+   * Compresses an image the way {@link IME#compressImage(int)} does, keeping the coefficients.
+   *
+   * @param image the image to compress
+   * @param threshold the percentage by which to compress the image
+   * @return the compressed image
+   */
+  public static CompressedImage compress(Image image, int threshold) {
+    int height = image.getHeight();
+    int width = image.getWidth();
+    int[] pixels = image.getPackedPixels();
+    int[] shifts = image instanceof GrayScaleImage ? new int[] {0} : new int[] {16, 8, 0};
+
+    HaarWavelet[] wavelets = new HaarWavelet[shifts.length];
+    for (int i = 0; i < shifts.length; i++) {
+      wavelets[i] = HaarWavelet.transform(pixels, shifts[i], height, width);
+    }
+    double cutoff = HaarWavelet.cutoff(threshold, wavelets);
+
+    double[][] channels = new double[shifts.length][];
+    for (int i = 0; i < shifts.length; i++) {
+      wavelets[i].threshold(cutoff);
+      channels[i] = wavelets[i].getCoefficients();
+    }
+    return new CompressedImage(height, width, channels);
+  }
+
+  /**
+   * Returns the height of the image.
+   *
+   * @return the height
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Returns the width of the image.
+   *
+   * @return the width
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Reconstructs the image from its coefficients.
+   *
+   * @return the image, grayscale if it was compressed from a grayscale image
+   */
+  public Image toImage() {
+    return this.toImage(0);
+  }
+
+  /**
+   * Reconstructs the image at a reduced resolution, like a thumbnail, without undoing the full
+   * transform. Every pixel is the average of a block of 2^reduction by 2^reduction pixels of the
+   * image, so a reduction of 1 gives half the size along each axis, 2 a quarter and 3 an eighth.
+   *
+   * @param reduction the number of times the size is halved along each axis, 0 for full size
+   * @return the image, grayscale if it was compressed from a grayscale image
+   * @throws IllegalArgumentException if the reduction is negative
+   */
+  public Image toImage(int reduction) {
+    if (reduction < 0) {
+      throw new IllegalArgumentException("Reduction cannot be negative.");
+    }
+    int height = HaarWavelet.reducedSize(this.height, reduction);
+    int width = HaarWavelet.reducedSize(this.width, reduction);
+    byte[][] values = new byte[this.channels.length][];
+    for (int i = 0; i < this.channels.length; i++) {
+      // a channel read from a stream stops at its last non-zero coefficient, and the inverse
+      // uses up the coefficients, so it works on a copy of the full size
+      int size = (int) HaarWavelet.size(this.height, this.width);
+      double[] coefficients = Arrays.copyOf(this.channels[i], size);
+      HaarWavelet wavelet = HaarWavelet.fromCoefficients(this.height, this.width, coefficients);
+      values[i] = wavelet.inverse(reduction);
+    }
+
+    if (values.length == 1) {
+      return new GrayScaleImage(height, width, values[0]);
+    }
+    int[] pixels = new int[height * width];
+    for (int i = 0; i < pixels.length; i++) {
+      int r = values[0][i] & 0xFF;
+      int g = values[1][i] & 0xFF;
+      int b = values[2][i] & 0xFF;
+      pixels[i] = (r << 16) | (g << 8) | b;
+    }
+    return new RGBImage(height, width, pixels);
+  }
+
+  /**
+   * Writes the compressed image to a stream.
+   *
+   * @param out the stream to write to
+   * @throws IOException if the stream cannot be written
+   */
+  public void write(OutputStream out) throws IOException {
+    DataOutputStream header = new DataOutputStream(out);
+    header.write(MAGIC);
+    header.writeInt(this.height);
+    header.writeInt(this.width);
+    header.writeByte(this.channels.length);
+    header.flush();
+
+    long size = HaarWavelet.size(this.height, this.width);
+    Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    try {
+      DeflaterOutputStream deflated = new DeflaterOutputStream(out, deflater, BUFFER_SIZE);
+      DataOutputStream body =
+          new DataOutputStream(new BufferedOutputStream(deflated, BUFFER_SIZE));
+      for (double[] channel : this.channels) {
+        int run = 0;
+        for (double value : channel) {
+          if (value == 0) {
+            run++;
+          } else {
+            writeVarint(body, run);
+            body.writeLong(Double.doubleToLongBits(value));
+            run = 0;
+          }
+        }
+        writeVarint(body, (int) (run + size - channel.length));
+      }
+      body.flush();
+      deflated.finish();
+      out.flush();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Reads a compressed image from a stream.
+   *
+   * @param in the stream to read from
+   * @return the compressed image, or null if the stream does not hold a valid compressed image
+   * @throws IOException if the stream cannot be read
+   */
+  public static CompressedImage read(InputStream in) throws IOException {
+    Inflater inflater = new Inflater();
+    try {
+      DataInputStream header = new DataInputStream(in);
+      byte[] magic = new byte[MAGIC.length];
+      header.readFully(magic);
+      for (int i = 0; i < MAGIC.length; i++) {
+        if (magic[i] != MAGIC[i]) {
+          return null;
+        }
+      }
+      int height = header.readInt();
+      int width = header.readInt();
+      int channelCount = header.readUnsignedByte();
+      if (height <= 0 || width <= 0 || height > MAX_SIZE || width > MAX_SIZE) {
+        return null;
+      }
+      long size = HaarWavelet.size(height, width);
+      if (size > Integer.MAX_VALUE || (channelCount != 1 && channelCount != 3)) {
+        return null;
+      }
+
+      VarintReader body = new VarintReader(new InflaterInputStream(in, inflater, BUFFER_SIZE));
+      double[][] channels = new double[channelCount][];
+      for (int i = 0; i < channelCount; i++) {
+        // the channel grows with the coefficients read, so a header alone allocates nothing
+        double[] channel = new double[(int) Math.min(size, BUFFER_SIZE)];
+        int position = 0;
+        while (true) {
+          int run = body.next();
+          if (run < 0 || run > size - position) {
+            return null;
+          }
+          position += run;
+          if (position == size) {
+            break;
+          }
+          double value = Double.longBitsToDouble(body.nextLong());
+          if (!Double.isFinite(value)) {
+            return null;
+          }
+          if (position >= channel.length) {
+            long grown = Math.max(position + 1L, 2L * channel.length);
+            channel = Arrays.copyOf(channel, (int) Math.min(size, grown));
+          }
+          channel[position++] = value;
+        }
+        channels[i] = channel;
+      }
+      return new CompressedImage(height, width, channels);
+    } catch (EOFException | ZipException e) {
+      return null;
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private static void writeVarint(OutputStream out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+
+  /** Reads varints and coefficients from a stream through a buffer. */
+  private static final class VarintReader {
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    VarintReader(InputStream in) {
+      this.in = in;
+    }
+
+    /** Reads a varint, returning -1 if it does not fit in a non-negative int. */
+    int next() throws IOException {
+      int value = 0;
+      for (int shift = 0; shift < 35; shift += 7) {
+        int b = this.read();
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return shift == 28 && b > 0x07 ? -1 : value;
+        }
+      }
+      return -1;
+    }
+
+    /** Reads a big-endian long. */
+    long nextLong() throws IOException {
+      long value = 0;
+      for (int i = 0; i < Long.BYTES; i++) {
+        value = (value << 8) | this.read();
+      }
+      return value;
+    }
+
+    private int read() throws IOException {
+      if (this.position == this.limit) {
+        this.limit = this.in.read(this.buffer, 0, BUFFER_SIZE);
+        this.position = 0;
+        if (this.limit <= 0) {
+          throw new EOFException();
+        }
+      }
+      return this.buffer[this.position++] & 0xFF;
+    }
+  }
+}
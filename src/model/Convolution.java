@@ -0,0 +1,454 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Convolution engine for square kernels of odd size. The kernel is converted once into fixed-point
+ * integer weights, and kernels whose weights factor into a column and a row vector (like the blur
+ * and Gaussian kernels) are applied as two one dimensional passes. Pixels outside the image are
+ * treated as black, without building a padded copy of the image, and rows are split across the
+ * ForkJoinPool.
+ *
+ * <p>When every weight is a multiple of a power of two no smaller than 2^-16 (as for the blur and
+ * sharpen kernels), the fixed-point sums are exact and the result matches a floating point
+ * convolution that clamps to 0-255 and truncates.
+ */
+final class Convolution {
+  /** Largest number of fractional bits used for the fixed-point weights. */
+  private static final int MAX_SHIFT = 16;
+
+  /** Largest shift of a fixed-point sum, as Java only uses the low five bits of an int shift. */
+  private static final int MAX_SUM_SHIFT = 31;
+
+  /** Largest error, relative to the largest weight, of the factors of a separable kernel. */
+  private static final double SEPARABLE_TOLERANCE = 1e-9;
+
+  private final int size;
+  private final int radius;
+  private final int shift;
+  private final int[] weights;
+  private final int[] rowWeights;
+  private final int[] colWeights;
+
+  private Convolution(int size, int shift, int[] weights, int[] rowWeights, int[] colWeights) {
+    this.size = size;
+    this.radius = size / 2;
+    this.shift = shift;
+    this.weights = weights;
+    this.rowWeights = rowWeights;
+    this.colWeights = colWeights;
+  }
+
+  /**
+   * Compiles the given kernel into fixed-point weights.
+   *
+   * @param kernel a square kernel with an odd size
+   * @return the compiled convolution
+   * @throws IllegalArgumentException if the kernel is not square or its size is even
+   */
+  static Convolution of(double[][] kernel) {
+    int size = kernel.length;
+    if (size % 2 == 0) {
+      throw new IllegalArgumentException("Kernel size has to be odd.");
+    }
+    for (double[] row : kernel) {
+      if (row.length != size) {
+        throw new IllegalArgumentException("Kernel has to be square.");
+      }
+    }
+
+    int shift = exactShift(kernel);
+    if (shift < 0) {
+      shift = MAX_SHIFT;
+    }
+    int[] weights = toFixedPoint(kernel, shift);
+    // keep every weight and every sum within an int, giving up precision for very large kernels
+    while (shift > 0 && !fits(weights)) {
+      shift--;
+      weights = toFixedPoint(kernel, shift);
+    }
+    if (!fits(weights)) {
+      throw new IllegalArgumentException("Kernel weights are too large.");
+    }
+
+    int[][] factors = factor(weights, size);
+    if (factors != null) {
+      return new Convolution(size, shift, weights, factors[1], factors[0]);
+    }
+    // weights that only factor before rounding, like a Gaussian, are rounded one vector at a time
+    Convolution separable = separate(kernel, weights);
+    if (separable != null) {
+      return separable;
+    }
+    return new Convolution(size, shift, weights, null, null);
+  }
+
+  /**
+   * Whether the kernel is applied as two one dimensional passes.
+   *
+   * @return true if the kernel is separable
+   */
+  boolean isSeparable() {
+    return this.rowWeights != null;
+  }
+
+  /**
+   * Convolves packed {@code 0xRRGGBB} pixels.
+   *
+   * @param pixels the packed pixels, in row-major order
+   * @param height the height of the image
+   * @param width the width of the image
+   * @return the packed pixels of the convolved image
+   */
+  int[] apply(int[] pixels, int height, int width) {
+    int[] result = new int[pixels.length];
+    RowReader reader =
+        (row, planes) -> {
+          int offset = row * width;
+          for (int col = 0; col < width; col++) {
+            int pixel = pixels[offset + col];
+            planes[col] = (pixel >> 16) & 0xFF;
+            planes[width + col] = (pixel >> 8) & 0xFF;
+            planes[2 * width + col] = pixel & 0xFF;
+          }
+        };
+    RowWriter writer =
+        (row, sums) -> {
+          int offset = row * width;
+          for (int col = 0; col < width; col++) {
+            result[offset + col] =
+                RGBImage.pack(
+                    this.toChannel(sums[col]),
+                    this.toChannel(sums[width + col]),
+                    this.toChannel(sums[2 * width + col]));
+          }
+        };
+    Parallel.forRows(
+        height,
+        width,
+        (startRow, endRow) ->
+            this.convolveRows(reader, writer, 3, height, width, startRow, endRow));
+    return result;
+  }
+
+  /**
+   * Convolves single channel pixels.
+   *
+   * @param pixels the unsigned pixel values, in row-major order
+   * @param height the height of the image
+   * @param width the width of the image
+   * @return the pixels of the convolved image
+   */
+  byte[] apply(byte[] pixels, int height, int width) {
+    byte[] result = new byte[pixels.length];
+    RowReader reader =
+        (row, planes) -> {
+          int offset = row * width;
+          for (int col = 0; col < width; col++) {
+            planes[col] = pixels[offset + col] & 0xFF;
+          }
+        };
+    RowWriter writer =
+        (row, sums) -> {
+          int offset = row * width;
+          for (int col = 0; col < width; col++) {
+            result[offset + col] = (byte) this.toChannel(sums[col]);
+          }
+        };
+    Parallel.forRows(
+        height,
+        width,
+        (startRow, endRow) ->
+            this.convolveRows(reader, writer, 1, height, width, startRow, endRow));
+    return result;
+  }
+
+  /** Unpacks one row of the source image into planar channel values. */
+  private interface RowReader {
+    void read(int row, int[] planes);
+  }
+
+  /** Packs one row of fixed-point sums into the result image. */
+  private interface RowWriter {
+    void write(int row, int[] sums);
+  }
+
+  /**
+   * Convolves a band of rows. The source rows needed by the band are kept in a ring of {@code
+   * size} rows, so every row is unpacked (and for separable kernels filtered horizontally) once
+   * per band.
+   */
+  private void convolveRows(
+      RowReader reader,
+      RowWriter writer,
+      int planes,
+      int height,
+      int width,
+      int startRow,
+      int endRow) {
+    int rowLength = planes * width;
+    int[][] ring = new int[this.size][rowLength];
+    int[] ringRows = new int[this.size];
+    Arrays.fill(ringRows, -1);
+    int[] line = this.isSeparable() ? new int[rowLength] : null;
+    int[] sums = new int[rowLength];
+
+    for (int row = startRow; row < endRow; row++) {
+      Arrays.fill(sums, 0);
+      for (int kernelRow = 0; kernelRow < this.size; kernelRow++) {
+        int currRow = row + kernelRow - this.radius;
+        if (currRow < 0 || currRow >= height) {
+          continue;
+        }
+        int slot = currRow % this.size;
+        if (ringRows[slot] != currRow) {
+          if (this.isSeparable()) {
+            reader.read(currRow, line);
+            Arrays.fill(ring[slot], 0);
+            for (int kernelCol = 0; kernelCol < this.size; kernelCol++) {
+              int offset = kernelCol - this.radius;
+              accumulate(ring[slot], line, this.rowWeights[kernelCol], offset, width, planes);
+            }
+          } else {
+            reader.read(currRow, ring[slot]);
+          }
+          ringRows[slot] = currRow;
+        }
+
+        if (this.isSeparable()) {
+          accumulate(sums, ring[slot], this.colWeights[kernelRow], 0, width, planes);
+        } else {
+          for (int kernelCol = 0; kernelCol < this.size; kernelCol++) {
+            accumulate(
+                sums,
+                ring[slot],
+                this.weights[kernelRow * this.size + kernelCol],
+                kernelCol - this.radius,
+                width,
+                planes);
+          }
+        }
+      }
+      writer.write(row, sums);
+    }
+  }
+
+  /**
+   * Adds the weighted source row, shifted by the given number of columns, into the sums. Columns
+   * that fall outside the row contribute nothing.
+   */
+  private static void accumulate(
+      int[] sums, int[] source, int weight, int offset, int width, int planes) {
+    if (weight == 0) {
+      return;
+    }
+    int from = Math.max(0, -offset);
+    int to = Math.min(width, width - offset);
+    for (int plane = 0; plane < planes; plane++) {
+      int base = plane * width;
+      for (int col = from; col < to; col++) {
+        sums[base + col] += weight * source[base + col + offset];
+      }
+    }
+  }
+
+  /** Converts a fixed-point sum back to a channel value, clamping and truncating. */
+  private int toChannel(int sum) {
+    if (sum <= 0) {
+      return 0;
+    }
+    return Math.min(255, sum >> this.shift);
+  }
+
+  /**
+   * Finds the smallest number of fractional bits that represents every weight exactly.
+   *
+   * @return the number of bits, or -1 if the weights cannot be represented exactly
+   */
+  private static int exactShift(double[][] kernel) {
+    for (int shift = 0; shift <= MAX_SHIFT; shift++) {
+      boolean exact = true;
+      for (double[] row : kernel) {
+        for (double weight : row) {
+          double scaled = weight * (1 << shift);
+          if (scaled != Math.rint(scaled) || Math.abs(scaled) > Integer.MAX_VALUE) {
+            exact = false;
+          }
+        }
+      }
+      if (exact) {
+        return shift;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Rounds weights to fixed-point integers, row after row.
+   *
+   * @return the integer weights, or null if a weight does not fit in an int
+   */
+  private static int[] toFixedPoint(double[][] kernel, int shift) {
+    int count = 0;
+    for (double[] row : kernel) {
+      count += row.length;
+    }
+    int[] weights = new int[count];
+    int i = 0;
+    for (double[] row : kernel) {
+      for (double weight : row) {
+        long rounded = Math.round(weight * (1 << shift));
+        if (rounded > Integer.MAX_VALUE || rounded < -Integer.MAX_VALUE) {
+          return null;
+        }
+        weights[i++] = (int) rounded;
+      }
+    }
+    return weights;
+  }
+
+  /** Whether the weights exist and a sum of weighted channel values always fits in an int. */
+  private static boolean fits(int[] weights) {
+    return weights != null && 255L * absoluteSum(weights) <= Integer.MAX_VALUE;
+  }
+
+  private static long absoluteSum(int[] weights) {
+    long sum = 0;
+    for (int weight : weights) {
+      sum += Math.abs(weight);
+    }
+    return sum;
+  }
+
+  /**
+   * Factors the weights into a column vector and a row vector before rounding them, and rounds
+   * each vector on its own, so that the kernel is applied as two passes even when the rounded
+   * weights do not factor.
+   *
+   * @param kernel the weights of the kernel
+   * @param weights the rounded weights, kept for the result
+   * @return the separable convolution, or null if the weights are not separable
+   */
+  private static Convolution separate(double[][] kernel, int[] weights) {
+    int size = kernel.length;
+    int pivotRow = 0;
+    int pivotCol = 0;
+    for (int row = 0; row < size; row++) {
+      for (int col = 0; col < size; col++) {
+        if (Math.abs(kernel[row][col]) > Math.abs(kernel[pivotRow][pivotCol])) {
+          pivotRow = row;
+          pivotCol = col;
+        }
+      }
+    }
+    double pivot = kernel[pivotRow][pivotCol];
+    if (pivot == 0) {
+      return null;
+    }
+    // both vectors get the same largest magnitude, so they are rounded to similar precision
+    double balance = Math.sqrt(Math.abs(pivot));
+    double[] rowVector = new double[size];
+    double[] colVector = new double[size];
+    for (int i = 0; i < size; i++) {
+      rowVector[i] = kernel[pivotRow][i] / balance;
+      colVector[i] = kernel[i][pivotCol] / pivot * balance;
+    }
+    for (int row = 0; row < size; row++) {
+      for (int col = 0; col < size; col++) {
+        double error = colVector[row] * rowVector[col] - kernel[row][col];
+        if (Math.abs(error) > SEPARABLE_TOLERANCE * Math.abs(pivot)) {
+          return null;
+        }
+      }
+    }
+
+    int rowShift = vectorShift(rowVector);
+    int colShift = vectorShift(colVector);
+    int[] rowWeights = toFixedPoint(new double[][] {rowVector}, rowShift);
+    int[] colWeights = toFixedPoint(new double[][] {colVector}, colShift);
+    // the sum of the two passes is shifted once, by both shifts
+    while (rowShift + colShift > MAX_SUM_SHIFT || !fits(rowWeights, colWeights)) {
+      if (rowShift == 0 && colShift == 0) {
+        return null;
+      }
+      if (rowShift >= colShift) {
+        rowShift--;
+        rowWeights = toFixedPoint(new double[][] {rowVector}, rowShift);
+      } else {
+        colShift--;
+        colWeights = toFixedPoint(new double[][] {colVector}, colShift);
+      }
+    }
+    return new Convolution(size, rowShift + colShift, weights, rowWeights, colWeights);
+  }
+
+  private static int vectorShift(double[] vector) {
+    int shift = exactShift(new double[][] {vector});
+    return shift < 0 ? MAX_SHIFT : shift;
+  }
+
+  /**
+   * Whether both vectors exist and the sums of the two passes always fit in an int. A row pass
+   * sums up to 255 times the row weights, and the column pass multiplies that by the column
+   * weights.
+   */
+  private static boolean fits(int[] rowWeights, int[] colWeights) {
+    if (rowWeights == null || colWeights == null) {
+      return false;
+    }
+    double rowSum = 255.0 * absoluteSum(rowWeights);
+    return rowSum <= Integer.MAX_VALUE && rowSum * absoluteSum(colWeights) <= Integer.MAX_VALUE;
+  }
+
+  /**
+   * Factors integer weights into a column vector and a row vector whose outer product gives the
+   * weights exactly.
+   *
+   * @return the column and row vectors, or null if the weights are not separable
+   */
+  private static int[][] factor(int[] weights, int size) {
+    int pivot = -1;
+    for (int i = 0; i < weights.length; i++) {
+      if (weights[i] != 0) {
+        pivot = i;
+        break;
+      }
+    }
+    if (pivot < 0) {
+      return null;
+    }
+    int pivotRow = pivot / size;
+    int pivotCol = pivot % size;
+
+    int divisor = 0;
+    for (int col = 0; col < size; col++) {
+      divisor = gcd(divisor, Math.abs(weights[pivotRow * size + col]));
+    }
+    int[] rowVector = new int[size];
+    for (int col = 0; col < size; col++) {
+      rowVector[col] = weights[pivotRow * size + col] / divisor;
+    }
+    int[] colVector = new int[size];
+    for (int row = 0; row < size; row++) {
+      colVector[row] = weights[row * size + pivotCol] / rowVector[pivotCol];
+    }
+
+    for (int row = 0; row < size; row++) {
+      for (int col = 0; col < size; col++) {
+        if ((long) colVector[row] * rowVector[col] != weights[row * size + col]) {
+          return null;
+        }
+      }
+    }
+    return new int[][] {colVector, rowVector};
+  }
+
+  private static int gcd(int a, int b) {
+    while (b != 0) {
+      int t = a % b;
+      a = b;
+      b = t;
+    }
+    return a;
+  }
+}
@@ -0,0 +1,358 @@
+package model;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Dithers grayscale values to black and white, by Floyd-Steinberg error diffusion or by comparing
+ * every pixel to a tiled threshold map.
+ *
+ * <p>The error of a pixel goes to the pixel on its right and to the three pixels below it, and
+ * every value is clamped to 0-255 as soon as error is added to it, so the values are kept in the
+ * byte array being dithered. A pixel only depends on the row above up to one column to its right,
+ * so rows can be processed at the same time as a skewed wavefront: a row may process a column
+ * once the row above is two columns further. The pixels then receive their error in the same
+ * order as when processing row by row, and the result is the same.
+ *
+ * <p>Ordered dithering needs no error at all, so it is a single pass over the rows, which are
+ * split across threads. The thresholds come from a Bayer matrix or from a blue noise mask, both
+ * built when they are first used.
+ */
+final class Dither {
+  /** The number of columns processed between two reports of the progress of a row. */
+  private static final int STEP = 64;
+
+  /** The number of times a row spins while waiting for the row above before yielding. */
+  private static final int SPINS = 100;
+
+  /** Minimum number of pixels for the rows to be processed by several threads. */
+  private static final int MIN_PARALLEL_PIXELS = 1 << 16;
+
+  /** The spread of the blue noise mask, in pixels. */
+  private static final double SIGMA = 1.5;
+
+  private static final Map<DitherMode, int[]> THRESHOLDS = new EnumMap<>(DitherMode.class);
+
+  private Dither() {}
+
+  /**
+   * Dithers grayscale values in place.
+   *
+   * @param values the values, row by row, which become 0 or 255
+   * @param height the height of the image
+   * @param width the width of the image
+   */
+  static void errorDiffusion(byte[] values, int height, int width) {
+    Progress progress = Progress.current();
+    int threads = Math.min(height, ForkJoinPool.getCommonPoolParallelism());
+    // narrow rows would spend their time handing columns to the row below
+    if (threads < 2 || width < 4 * STEP || (long) height * width < MIN_PARALLEL_PIXELS) {
+      for (int row = 0; row < height; row++) {
+        if (progress != null) {
+          progress.check();
+        }
+        diffuse(values, row, height, width, 0, width);
+        if (progress != null) {
+          progress.report(row + 1, height);
+        }
+      }
+      return;
+    }
+
+    // the number of columns done by every row
+    AtomicIntegerArray done = new AtomicIntegerArray(height);
+    // rows are handed out in order, so the lowest unfinished row always has a thread
+    AtomicInteger nextRow = new AtomicInteger();
+    Runnable worker =
+        () -> {
+          while (true) {
+            // a claimed row is always processed, or the row below it would wait for it
+            if (progress != null) {
+              progress.check();
+            }
+            int row = nextRow.getAndIncrement();
+            if (row >= height) {
+              return;
+            }
+            processRow(values, row, height, width, done, progress);
+            if (progress != null) {
+              progress.report(row + 1, height);
+            }
+          }
+        };
+    ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[threads];
+    for (int i = 0; i < threads; i++) {
+      tasks[i] = ForkJoinTask.adapt(worker);
+    }
+    ForkJoinTask.invokeAll(tasks);
+  }
+
+  /** Processes a row, waiting for the row above to stay two columns ahead. */
+  private static void processRow(
+      byte[] values, int row, int height, int width, AtomicIntegerArray done, Progress progress) {
+    int col = 0;
+    while (col < width) {
+      int end = width;
+      if (row > 0) {
+        int above = waitFor(done, row - 1, Math.min(width, col + 3), progress);
+        end = above == width ? width : above - 2;
+      }
+      end = Math.min(end, col + STEP);
+      diffuse(values, row, height, width, col, end);
+      col = end;
+      done.set(row, col);
+    }
+  }
+
+  /**
+   * Waits until a row has done at least the given number of columns, returning how many. Stops if
+   * the work is cancelled, as the row above may then never be finished.
+   */
+  private static int waitFor(AtomicIntegerArray done, int row, int columns, Progress progress) {
+    int spins = 0;
+    int current = done.get(row);
+    while (current < columns) {
+      if (++spins < SPINS) {
+        Thread.onSpinWait();
+      } else {
+        if (progress != null) {
+          progress.check();
+        }
+        Thread.yield();
+      }
+      current = done.get(row);
+    }
+    return current;
+  }
+
+  /** Quantizes the columns from start to end of a row and spreads their error. */
+  private static void diffuse(byte[] values, int row, int height, int width, int start, int end) {
+    int offset = row * width;
+    boolean below = row + 1 < height;
+    for (int col = start; col < end; col++) {
+      int i = offset + col;
+      int oldValue = values[i] & 0xFF;
+      int newValue = oldValue < 128 ? 0 : 255;
+      values[i] = (byte) newValue;
+      int error = oldValue - newValue;
+
+      if (col + 1 < width) {
+        add(values, i + 1, error * 7 / 16);
+      }
+      if (below) {
+        if (col > 0) {
+          add(values, i + width - 1, error * 3 / 16);
+        }
+        add(values, i + width, error * 5 / 16);
+        if (col + 1 < width) {
+          add(values, i + width + 1, error / 16);
+        }
+      }
+    }
+  }
+
+  /**
+   * Dithers packed 0xRRGGBB pixels by comparing their intensity to a threshold map.
+   *
+   * @param pixels the packed pixels, row by row
+   * @param height the height of the image
+   * @param width the width of the image
+   * @param mode an ordered mode, which gives the threshold map
+   * @return the dithered values, 0 or 255
+   */
+  static byte[] ordered(int[] pixels, int height, int width, DitherMode mode) {
+    int[] thresholds = thresholds(mode);
+    int size = mode.getSize();
+    int mask = size - 1;
+    byte[] result = new byte[height * width];
+    Parallel.forRows(
+        height,
+        width,
+        (startRow, endRow) -> {
+          for (int row = startRow; row < endRow; row++) {
+            int map = (row & mask) * size;
+            int offset = row * width;
+            for (int col = 0; col < width; col++) {
+              int pixel = pixels[offset + col];
+              int value = (((pixel >> 16) & 0xFF) + ((pixel >> 8) & 0xFF) + (pixel & 0xFF)) / 3;
+              int threshold = thresholds[map + (col & mask)];
+              result[offset + col] = (byte) (value > threshold ? 255 : 0);
+            }
+          }
+        });
+    return result;
+  }
+
+  /**
+   * Dithers grayscale values by comparing them to a threshold map.
+   *
+   * @param values the values, row by row
+   * @param height the height of the image
+   * @param width the width of the image
+   * @param mode an ordered mode, which gives the threshold map
+   * @return the dithered values, 0 or 255
+   */
+  static byte[] ordered(byte[] values, int height, int width, DitherMode mode) {
+    int[] thresholds = thresholds(mode);
+    int size = mode.getSize();
+    int mask = size - 1;
+    byte[] result = new byte[height * width];
+    Parallel.forRows(
+        height,
+        width,
+        (startRow, endRow) -> {
+          for (int row = startRow; row < endRow; row++) {
+            int map = (row & mask) * size;
+            int offset = row * width;
+            for (int col = 0; col < width; col++) {
+              int value = values[offset + col] & 0xFF;
+              int threshold = thresholds[map + (col & mask)];
+              result[offset + col] = (byte) (value > threshold ? 255 : 0);
+            }
+          }
+        });
+    return result;
+  }
+
+  /**
+   * Gets the threshold map of an ordered mode, row by row. A value becomes white if it is above
+   * its threshold. The thresholds are spread evenly over 0-255, so that 0 stays black and 255
+   * stays white.
+   */
+  private static int[] thresholds(DitherMode mode) {
+    synchronized (THRESHOLDS) {
+      return THRESHOLDS.computeIfAbsent(
+          mode,
+          key -> {
+            int size = key.getSize();
+            int[] ranks = key == DitherMode.BLUE_NOISE ? blueNoise(size) : bayer(size);
+            int[] thresholds = new int[ranks.length];
+            for (int i = 0; i < ranks.length; i++) {
+              thresholds[i] = (2 * ranks[i] + 1) * 255 / (2 * ranks.length);
+            }
+            return thresholds;
+          });
+    }
+  }
+
+  /** Builds the Bayer matrix of a power of two size, each size from the one half as large. */
+  private static int[] bayer(int size) {
+    int[] matrix = {0};
+    for (int n = 1; n < size; n *= 2) {
+      int[] next = new int[4 * n * n];
+      for (int row = 0; row < 2 * n; row++) {
+        for (int col = 0; col < 2 * n; col++) {
+          int quadrant = row < n ? (col < n ? 0 : 2) : (col < n ? 3 : 1);
+          next[row * 2 * n + col] = 4 * matrix[(row % n) * n + col % n] + quadrant;
+        }
+      }
+      matrix = next;
+    }
+    return matrix;
+  }
+
+  /**
+   * Builds a blue noise mask by the void-and-cluster method. Pixels are ranked by adding them,
+   * one at a time, where the chosen pixels so far are the sparsest, measured by a gaussian over
+   * the wrapped distance, so that the pixels below any threshold are spread evenly. The mask is
+   * the same on every run, as it starts from a fixed seed.
+   */
+  private static int[] blueNoise(int size) {
+    int count = size * size;
+    double[] gaussian = new double[count];
+    for (int dy = 0; dy < size; dy++) {
+      for (int dx = 0; dx < size; dx++) {
+        int y = Math.min(dy, size - dy);
+        int x = Math.min(dx, size - dx);
+        gaussian[dy * size + dx] = StrictMath.exp(-(x * x + y * y) / (2 * SIGMA * SIGMA));
+      }
+    }
+
+    // start from a tenth of the pixels at random, then move the pixel in the tightest cluster to
+    // the largest void until it would move back to where it was
+    boolean[] chosen = new boolean[count];
+    double[] density = new double[count];
+    Random random = new Random(1);
+    int initial = count / 10;
+    for (int placed = 0; placed < initial; ) {
+      int i = random.nextInt(count);
+      if (!chosen[i]) {
+        toggle(chosen, density, gaussian, size, i);
+        placed++;
+      }
+    }
+    for (int moves = 0; moves < count; moves++) {
+      int cluster = densest(chosen, density, true);
+      toggle(chosen, density, gaussian, size, cluster);
+      int gap = densest(chosen, density, false);
+      toggle(chosen, density, gaussian, size, gap);
+      if (gap == cluster) {
+        break;
+      }
+    }
+
+    int[] ranks = new int[count];
+    boolean[] start = chosen.clone();
+    double[] startDensity = density.clone();
+    // the initial pixels are ranked by taking out the tightest cluster first
+    for (int rank = initial - 1; rank >= 0; rank--) {
+      int cluster = densest(chosen, density, true);
+      toggle(chosen, density, gaussian, size, cluster);
+      ranks[cluster] = rank;
+    }
+    // the other pixels are ranked by filling the largest void first
+    chosen = start;
+    density = startDensity;
+    for (int rank = initial; rank < count; rank++) {
+      int gap = densest(chosen, density, false);
+      toggle(chosen, density, gaussian, size, gap);
+      ranks[gap] = rank;
+    }
+    return ranks;
+  }
+
+  /**
+   * Finds the densest chosen pixel, or the least dense pixel that is not chosen.
+   *
+   * @param chosen whether every pixel is chosen
+   * @param density the density of the chosen pixels around every pixel
+   * @param cluster true for the densest chosen pixel, false for the emptiest other pixel
+   * @return the index of the pixel
+   */
+  private static int densest(boolean[] chosen, double[] density, boolean cluster) {
+    int best = -1;
+    for (int i = 0; i < chosen.length; i++) {
+      if (chosen[i] == cluster
+          && (best < 0 || (cluster ? density[i] > density[best] : density[i] < density[best]))) {
+        best = i;
+      }
+    }
+    return best;
+  }
+
+  /** Chooses a pixel or takes it out, updating the density around every pixel. */
+  private static void toggle(
+      boolean[] chosen, double[] density, double[] gaussian, int size, int index) {
+    chosen[index] = !chosen[index];
+    double sign = chosen[index] ? 1 : -1;
+    int row = index / size;
+    int col = index % size;
+    for (int y = 0; y < size; y++) {
+      int dy = (y - row + size) % size;
+      for (int x = 0; x < size; x++) {
+        int dx = (x - col + size) % size;
+        density[y * size + x] += sign * gaussian[dy * size + dx];
+      }
+    }
+  }
+
+  private static void add(byte[] values, int i, int error) {
+    int value = (values[i] & 0xFF) + error;
+    values[i] = (byte) (value < 0 ? 0 : (value > 255 ? 255 : value));
+  }
+}
@@ -0,0 +1,64 @@
+package model;
+
+/**
+ * The ways of dithering an image to black and white. Error diffusion spreads the error of every
+ * pixel to the pixels after it, so it is done mostly in order. The other modes compare every pixel
+ * to a threshold from a map tiled over the image, so every pixel is done on its own.
+ */
+public enum DitherMode {
+  /** Floyd-Steinberg error diffusion. */
+  FLOYD_STEINBERG("floyd-steinberg", 0),
+
+  /** Ordered dithering with a 2 by 2 Bayer matrix. */
+  BAYER_2("bayer-2", 2),
+
+  /** Ordered dithering with a 4 by 4 Bayer matrix. */
+  BAYER_4("bayer-4", 4),
+
+  /** Ordered dithering with an 8 by 8 Bayer matrix. */
+  BAYER_8("bayer-8", 8),
+
+  /** Dithering with a 64 by 64 blue noise mask, which leaves no visible pattern. */
+  BLUE_NOISE("blue-noise", 64);
+
+  private final String name;
+  private final int size;
+
+  DitherMode(String name, int size) {
+    this.name = name;
+    this.size = size;
+  }
+
+  /**
+   * Gets the name of the mode, as written in scripts.
+   *
+   * @return the name
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Gets the size of the threshold map of the mode.
+   *
+   * @return the width and height of the map, or 0 for error diffusion
+   */
+  int getSize() {
+    return this.size;
+  }
+
+  /**
+   * Finds a mode by its name.
+   *
+   * @param name the name of the mode
+   * @return the mode, or null if there is no mode with that name
+   */
+  public static DitherMode fromName(String name) {
+    for (DitherMode mode : values()) {
+      if (mode.name.equals(name)) {
+        return mode;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,397 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The Haar wavelet transform of one channel of an image, used to compress images. The channel is
+ * padded with zeros to a power of two along each axis separately, and the coefficients are kept
+ * in one row-major array that the transform updates in place.
+ *
+ * <p>The transform goes through levels of shrinking extents, starting with the padded size and
+ * halving along each axis until both are 1. At every level the rows and then the columns inside
+ * the extent get a full Haar decomposition; the inverse undoes the levels in reverse order. Rows,
+ * and bands of columns, are transformed in parallel.
+ */
+final class HaarWavelet {
+  /** Coefficients with a smaller magnitude are treated as zero. */
+  private static final double EPSILON = 0.1;
+
+  /** The number of columns transformed together, reading the array row by row. */
+  private static final int COLUMN_BLOCK = 64;
+
+  private static final double SQRT_2 = Math.sqrt(2);
+
+  private final int height;
+  private final int width;
+  private final int paddedHeight;
+  private final int paddedWidth;
+  private final double[] coefficients;
+
+  private HaarWavelet(int height, int width) {
+    this(height, width, new double[powerOfTwo(height) * powerOfTwo(width)]);
+  }
+
+  private HaarWavelet(int height, int width, double[] coefficients) {
+    this.height = height;
+    this.width = width;
+    this.paddedHeight = powerOfTwo(height);
+    this.paddedWidth = powerOfTwo(width);
+    this.coefficients = coefficients;
+  }
+
+  /**
+   * Transforms a grayscale channel.
+   *
+   * @param pixels the values of the channel, row by row
+   * @param height the height of the channel
+   * @param width the width of the channel
+   * @return the transformed channel
+   */
+  static HaarWavelet transform(byte[] pixels, int height, int width) {
+    HaarWavelet wavelet = new HaarWavelet(height, width);
+    for (int row = 0; row < height; row++) {
+      int offset = row * wavelet.paddedWidth;
+      for (int col = 0; col < width; col++) {
+        wavelet.coefficients[offset + col] = pixels[row * width + col] & 0xFF;
+      }
+    }
+    wavelet.forward();
+    return wavelet;
+  }
+
+  /**
+   * Transforms one channel of packed 0xRRGGBB pixels.
+   *
+   * @param pixels the packed pixels, row by row
+   * @param shift the position of the channel in a pixel: 16, 8 or 0
+   * @param height the height of the image
+   * @param width the width of the image
+   * @return the transformed channel
+   */
+  static HaarWavelet transform(int[] pixels, int shift, int height, int width) {
+    HaarWavelet wavelet = new HaarWavelet(height, width);
+    for (int row = 0; row < height; row++) {
+      int offset = row * wavelet.paddedWidth;
+      for (int col = 0; col < width; col++) {
+        wavelet.coefficients[offset + col] = (pixels[row * width + col] >> shift) & 0xFF;
+      }
+    }
+    wavelet.forward();
+    return wavelet;
+  }
+
+  /**
+   * Creates a transformed channel from its coefficients.
+   *
+   * @param height the height of the channel
+   * @param width the width of the channel
+   * @param coefficients the coefficients, row by row over the padded size, used without a copy
+   * @return the transformed channel
+   * @throws IllegalArgumentException if the number of coefficients does not match the size
+   */
+  static HaarWavelet fromCoefficients(int height, int width, double[] coefficients) {
+    if (coefficients.length != size(height, width)) {
+      throw new IllegalArgumentException("Wrong number of coefficients.");
+    }
+    return new HaarWavelet(height, width, coefficients);
+  }
+
+  /**
+   * Returns the number of coefficients of a channel of the given size, including the padding.
+   *
+   * @param height the height of the channel
+   * @param width the width of the channel
+   * @return the number of coefficients
+   */
+  static long size(int height, int width) {
+    return (long) powerOfTwo(height) * powerOfTwo(width);
+  }
+
+  /**
+   * Returns the coefficients, row by row over the padded size. The array is not copied.
+   *
+   * @return the coefficients
+   */
+  double[] getCoefficients() {
+    return this.coefficients;
+  }
+
+  /**
+   * Finds the smallest coefficient magnitude that survives compression. The distinct non-zero
+   * magnitudes of all channels are ranked, and the largest ones are kept, leaving out the given
+   * percentage of them. Coefficients with equal magnitudes are kept or dropped together.
+   *
+   * @param threshold the percentage of distinct magnitudes to drop
+   * @param channels the transformed channels
+   * @return the cutoff, or positive infinity if nothing is kept
+   */
+  static double cutoff(int threshold, HaarWavelet... channels) {
+    int count = 0;
+    for (HaarWavelet channel : channels) {
+      for (double value : channel.coefficients) {
+        if (value != 0) {
+          count++;
+        }
+      }
+    }
+
+    double[] magnitudes = new double[count];
+    int index = 0;
+    for (HaarWavelet channel : channels) {
+      for (double value : channel.coefficients) {
+        if (value != 0) {
+          magnitudes[index++] = Math.abs(value);
+        }
+      }
+    }
+    Arrays.parallelSort(magnitudes);
+
+    // remove the repeated magnitudes, keeping them in ascending order
+    int distinct = 0;
+    for (int i = 0; i < magnitudes.length; i++) {
+      if (distinct == 0 || magnitudes[i] != magnitudes[distinct - 1]) {
+        magnitudes[distinct++] = magnitudes[i];
+      }
+    }
+
+    int kept = (int) Math.ceil(distinct * ((100.0 - threshold) / 100.0));
+    if (kept <= 0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return magnitudes[distinct - Math.min(kept, distinct)];
+  }
+
+  /**
+   * Zeroes the coefficients whose magnitude is below the cutoff.
+   *
+   * @param cutoff the smallest magnitude that is kept
+   */
+  void threshold(double cutoff) {
+    Parallel.forRows(
+        this.paddedHeight,
+        this.paddedWidth,
+        (startRow, endRow) -> {
+          for (int i = startRow * this.paddedWidth; i < endRow * this.paddedWidth; i++) {
+            if (Math.abs(this.coefficients[i]) < cutoff) {
+              this.coefficients[i] = 0.0;
+            }
+          }
+        });
+  }
+
+  /**
+   * Inverts the transform and rounds the result to channel values. The coefficients are used up
+   * by the inverse, so it can only be called once.
+   *
+   * @return the values of the channel, row by row, without the padding
+   */
+  byte[] inverse() {
+    return this.inverse(0);
+  }
+
+  /**
+   * Inverts the transform at a reduced resolution, where every value is the average of a block of
+   * 2^reduction by 2^reduction values of the channel. The largest level of the transform, the
+   * most expensive one, is only undone on its first coefficients, which are the transform of the
+   * block averages. The coefficients are used up by the inverse, so it can only be called once.
+   *
+   * @param reduction the number of times the size is halved along each axis, 0 for full size
+   * @return the values of the reduced channel, row by row, see {@link #reducedSize}
+   */
+  byte[] inverse(int reduction) {
+    List<int[]> levels = this.levels();
+    // undoing every level but the largest leaves the full decomposition of the padded channel
+    for (int i = levels.size() - 1; i >= 1; i--) {
+      int rows = levels.get(i)[0];
+      int cols = levels.get(i)[1];
+      if (rows > 1) {
+        this.columns(cols, rows, false);
+      }
+      if (cols > 1) {
+        this.rows(rows, cols, false);
+      }
+    }
+
+    int rowReduction = Math.min(reduction, log2(this.paddedHeight));
+    int colReduction = Math.min(reduction, log2(this.paddedWidth));
+    int rows = this.paddedHeight >> rowReduction;
+    int cols = this.paddedWidth >> colReduction;
+    if (rows > 1) {
+      this.columns(cols, rows, false);
+    }
+    if (cols > 1) {
+      this.rows(rows, cols, false);
+    }
+
+    // each value is now the sum of its block divided by the square root of the block area
+    int blockHeight = 1 << rowReduction;
+    int blockWidth = 1 << colReduction;
+    double scale = Math.sqrt((double) blockHeight * blockWidth);
+    int height = reducedSize(this.height, reduction);
+    int width = reducedSize(this.width, reduction);
+    byte[] pixels = new byte[height * width];
+    for (int row = 0; row < height; row++) {
+      int offset = row * this.paddedWidth;
+      int blockRows = Math.min(blockHeight, this.height - row * blockHeight);
+      for (int col = 0; col < width; col++) {
+        // blocks at the edge only average the values inside the channel, not the padding
+        int area = blockRows * Math.min(blockWidth, this.width - col * blockWidth);
+        long value = Math.round(this.coefficients[offset + col] * scale / area);
+        pixels[row * width + col] = (byte) Math.min(255, Math.max(0, value));
+      }
+    }
+    return pixels;
+  }
+
+  /**
+   * Returns the size of a channel along one axis at a reduced resolution. The size is halved,
+   * rounding up, once for each level of reduction that the padded size allows.
+   *
+   * @param size the size along the axis
+   * @param reduction the number of times the size is halved
+   * @return the reduced size
+   */
+  static int reducedSize(int size, int reduction) {
+    int shift = Math.min(reduction, log2(powerOfTwo(size)));
+    return (size + (1 << shift) - 1) >> shift;
+  }
+
+  private void forward() {
+    for (int[] level : this.levels()) {
+      int rows = level[0];
+      int cols = level[1];
+      if (cols > 1) {
+        this.rows(rows, cols, true);
+      }
+      if (rows > 1) {
+        this.columns(cols, rows, true);
+      }
+    }
+    // remove the values which are very close to zero
+    for (int i = 0; i < this.coefficients.length; i++) {
+      if (Math.abs(this.coefficients[i]) < EPSILON) {
+        this.coefficients[i] = 0;
+      }
+    }
+  }
+
+  /** Returns the extents of the levels as {rows, columns}, from the largest down. */
+  private List<int[]> levels() {
+    List<int[]> levels = new ArrayList<>();
+    int rows = this.paddedHeight;
+    int cols = this.paddedWidth;
+    while (rows > 1 || cols > 1) {
+      levels.add(new int[] {rows, cols});
+      rows = Math.max(1, rows / 2);
+      cols = Math.max(1, cols / 2);
+    }
+    return levels;
+  }
+
+  /** Decomposes, or reconstructs, the first length values of each of the first count rows. */
+  private void rows(int count, int length, boolean forward) {
+    Parallel.forRows(
+        count,
+        length,
+        (startRow, endRow) -> {
+          double[] scratch = new double[length];
+          for (int row = startRow; row < endRow; row++) {
+            int offset = row * this.paddedWidth;
+            if (forward) {
+              decompose(this.coefficients, offset, 1, length, 1, scratch);
+            } else {
+              reconstruct(this.coefficients, offset, 1, length, 1, scratch);
+            }
+          }
+        });
+  }
+
+  /**
+   * Decomposes, or reconstructs, the first length values of each of the first count columns. A
+   * block of columns is transformed together, so the array is still read row by row.
+   */
+  private void columns(int count, int length, boolean forward) {
+    Parallel.forRows(
+        count,
+        length,
+        (startCol, endCol) -> {
+          double[] scratch = new double[length * COLUMN_BLOCK];
+          for (int col = startCol; col < endCol; col += COLUMN_BLOCK) {
+            int block = Math.min(COLUMN_BLOCK, endCol - col);
+            if (forward) {
+              decompose(this.coefficients, col, this.paddedWidth, length, block, scratch);
+            } else {
+              reconstruct(this.coefficients, col, this.paddedWidth, length, block, scratch);
+            }
+          }
+        });
+  }
+
+  /**
+   * Full Haar decomposition of block neighbouring sequences, the first starting at offset. Each
+   * step replaces the first m values with the m / 2 averages followed by the m / 2 differences of
+   * consecutive pairs, then repeats on the averages.
+   */
+  private static void decompose(
+      double[] data, int offset, int stride, int length, int block, double[] scratch) {
+    for (int m = length; m > 1; m /= 2) {
+      int half = m / 2;
+      for (int i = 0; i < half; i++) {
+        int first = offset + 2 * i * stride;
+        int second = first + stride;
+        for (int k = 0; k < block; k++) {
+          double a = data[first + k];
+          double b = data[second + k];
+          scratch[i * block + k] = (a + b) / SQRT_2;
+          scratch[(half + i) * block + k] = (a - b) / SQRT_2;
+        }
+      }
+      copyBack(scratch, data, offset, stride, m, block);
+    }
+  }
+
+  /** Full Haar reconstruction of block neighbouring sequences, undoing {@code decompose}. */
+  private static void reconstruct(
+      double[] data, int offset, int stride, int length, int block, double[] scratch) {
+    for (int m = 2; m <= length; m *= 2) {
+      int half = m / 2;
+      for (int i = 0; i < half; i++) {
+        int average = offset + i * stride;
+        int difference = offset + (half + i) * stride;
+        for (int k = 0; k < block; k++) {
+          double a = data[average + k];
+          double b = data[difference + k];
+          scratch[2 * i * block + k] = (a + b) / SQRT_2;
+          scratch[(2 * i + 1) * block + k] = (a - b) / SQRT_2;
+        }
+      }
+      copyBack(scratch, data, offset, stride, m, block);
+    }
+  }
+
+  /** Copies m rows of block values from the scratch array back into the sequences. */
+  private static void copyBack(
+      double[] scratch, double[] data, int offset, int stride, int m, int block) {
+    if (stride == block) {
+      System.arraycopy(scratch, 0, data, offset, m * block);
+      return;
+    }
+    for (int i = 0; i < m; i++) {
+      System.arraycopy(scratch, i * block, data, offset + i * stride, block);
+    }
+  }
+
+  private static int log2(int powerOfTwo) {
+    return Integer.numberOfTrailingZeros(powerOfTwo);
+  }
+
+  private static int powerOfTwo(int size) {
+    int n = 1;
+    while (n < size) {
+      n *= 2;
+    }
+    return n;
+  }
+}
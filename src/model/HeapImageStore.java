@@ -0,0 +1,59 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** Keeps the images of a model on the heap, in a hashmap. */
+final class HeapImageStore implements ImageStore {
+  private final Map<String, Image> images = new HashMap<>();
+  private long hits;
+
+  @Override
+  public Image get(String name) {
+    Image image = this.images.get(name);
+    if (image != null) {
+      this.hits++;
+    }
+    return image;
+  }
+
+  @Override
+  public void put(String name, Image image) {
+    this.images.put(name, image);
+  }
+
+  @Override
+  public void rename(String name, String newName) {
+    Image image = this.images.remove(name);
+    if (image != null) {
+      this.images.put(newName, image);
+    }
+  }
+
+  @Override
+  public void remove(String name) {
+    this.images.remove(name);
+  }
+
+  @Override
+  public boolean contains(String name) {
+    return this.images.containsKey(name);
+  }
+
+  @Override
+  public long getHits() {
+    return this.hits;
+  }
+
+  /** Nothing is read from a scratch file. */
+  @Override
+  public long getMisses() {
+    return 0;
+  }
+
+  /** Nothing is written to a scratch file. */
+  @Override
+  public long getSpills() {
+    return 0;
+  }
+}
@@ -0,0 +1,308 @@
+package model;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * The counts of every value of the red, green and blue channels of an image. The counts are
+ * gathered in one pass over the packed pixels, with every band of rows counting into its own
+ * arrays, which are added together at the end.
+ *
+ * <p>A histogram can also be derived from the histogram of another image without counting pixels:
+ * mapped through the lookup table that made the image, or with the counts of the columns cropped
+ * away taken off.
+ */
+public final class Histogram {
+  /** The number of channels: red, green and blue. */
+  public static final int CHANNELS = 3;
+
+  /** The number of values of a channel. */
+  public static final int LEVELS = 256;
+
+  /** The size of the rendered plot. */
+  private static final int PLOT_SIZE = 256;
+
+  private final int[][] counts;
+  private volatile int[] plot;
+
+  private Histogram(int[][] counts) {
+    this.counts = counts;
+  }
+
+  /**
+   * Counts the channel values of packed 0xRRGGBB pixels.
+   *
+   * @param pixels the packed pixels, row by row
+   * @param height the height of the image
+   * @param width the width of the image
+   * @return the histogram
+   */
+  static Histogram of(int[] pixels, int height, int width) {
+    int[][] counts = new int[CHANNELS][LEVELS];
+    Parallel.forRows(
+        height,
+        width,
+        (startRow, endRow) -> {
+          int[] red = new int[LEVELS];
+          int[] green = new int[LEVELS];
+          int[] blue = new int[LEVELS];
+          for (int i = startRow * width; i < endRow * width; i++) {
+            int pixel = pixels[i];
+            red[(pixel >> 16) & 0xFF]++;
+            green[(pixel >> 8) & 0xFF]++;
+            blue[pixel & 0xFF]++;
+          }
+          merge(counts, red, green, blue);
+        });
+    return new Histogram(counts);
+  }
+
+  /**
+   * Counts the values of a grayscale image, whose three channels are the same.
+   *
+   * @param pixels the values, row by row
+   * @param height the height of the image
+   * @param width the width of the image
+   * @return the histogram
+   */
+  static Histogram of(byte[] pixels, int height, int width) {
+    int[][] counts = new int[CHANNELS][LEVELS];
+    Parallel.forRows(
+        height,
+        width,
+        (startRow, endRow) -> {
+          int[] values = new int[LEVELS];
+          for (int i = startRow * width; i < endRow * width; i++) {
+            values[pixels[i] & 0xFF]++;
+          }
+          merge(counts, values, values, values);
+        });
+    return new Histogram(counts);
+  }
+
+  /**
+   * Counts the channel values of a range of columns of packed 0xRRGGBB pixels.
+   *
+   * @param pixels the packed pixels, row by row
+   * @param height the height of the image
+   * @param width the width of the image
+   * @param startCol the first column to count
+   * @param endCol the column after the last one to count
+   * @return the histogram of the columns
+   */
+  static Histogram ofColumns(int[] pixels, int height, int width, int startCol, int endCol) {
+    int[][] counts = new int[CHANNELS][LEVELS];
+    for (int row = 0; row < height; row++) {
+      int offset = row * width;
+      for (int i = offset + startCol; i < offset + endCol; i++) {
+        int pixel = pixels[i];
+        counts[0][(pixel >> 16) & 0xFF]++;
+        counts[1][(pixel >> 8) & 0xFF]++;
+        counts[2][pixel & 0xFF]++;
+      }
+    }
+    return new Histogram(counts);
+  }
+
+  /**
+   * Counts the values of a range of columns of a grayscale image.
+   *
+   * @param pixels the values, row by row
+   * @param height the height of the image
+   * @param width the width of the image
+   * @param startCol the first column to count
+   * @param endCol the column after the last one to count
+   * @return the histogram of the columns
+   */
+  static Histogram ofColumns(byte[] pixels, int height, int width, int startCol, int endCol) {
+    int[] values = new int[LEVELS];
+    for (int row = 0; row < height; row++) {
+      int offset = row * width;
+      for (int i = offset + startCol; i < offset + endCol; i++) {
+        values[pixels[i] & 0xFF]++;
+      }
+    }
+    return new Histogram(new int[][] {values, values.clone(), values.clone()});
+  }
+
+  private static void merge(int[][] counts, int[] red, int[] green, int[] blue) {
+    synchronized (counts) {
+      for (int value = 0; value < LEVELS; value++) {
+        counts[0][value] += red[value];
+        counts[1][value] += green[value];
+        counts[2][value] += blue[value];
+      }
+    }
+  }
+
+  /**
+   * Returns the histogram of the image made by mapping every pixel through a lookup table, in
+   * which the count of every old value moves to the new value.
+   *
+   * @param table the lookup table
+   * @return the mapped histogram
+   */
+  Histogram map(LookupTable table) {
+    int[][] mapped = new int[CHANNELS][LEVELS];
+    for (int channel = 0; channel < CHANNELS; channel++) {
+      for (int value = 0; value < LEVELS; value++) {
+        mapped[channel][table.lookup(channel, value)] += this.counts[channel][value];
+      }
+    }
+    return new Histogram(mapped);
+  }
+
+  /**
+   * Returns this histogram with the counts of another one taken off, such as the histogram of the
+   * columns cropped away from an image.
+   *
+   * @param other the histogram of part of the pixels counted by this one
+   * @return the histogram of the remaining pixels
+   */
+  Histogram minus(Histogram other) {
+    int[][] remaining = this.getCounts();
+    for (int channel = 0; channel < CHANNELS; channel++) {
+      for (int value = 0; value < LEVELS; value++) {
+        remaining[channel][value] -= other.counts[channel][value];
+      }
+    }
+    return new Histogram(remaining);
+  }
+
+  /**
+   * Returns the number of pixels with the given value in a channel.
+   *
+   * @param channel the channel: 0 for red, 1 for green and 2 for blue
+   * @param value the value, from 0 to 255
+   * @return the count
+   */
+  public int getCount(int channel, int value) {
+    return this.counts[channel][value];
+  }
+
+  /**
+   * Returns a copy of the counts, indexed by channel and then by value.
+   *
+   * @return the counts as an array of 3 by 256
+   */
+  public int[][] getCounts() {
+    int[][] copy = new int[CHANNELS][];
+    for (int channel = 0; channel < CHANNELS; channel++) {
+      copy[channel] = this.counts[channel].clone();
+    }
+    return copy;
+  }
+
+  /**
+   * Returns the most frequent value of a channel, the smallest one if there is a tie.
+   *
+   * @param channel the channel: 0 for red, 1 for green and 2 for blue
+   * @return the peak value, or 0 if the image is empty
+   */
+  public int getPeak(int channel) {
+    int max = 0;
+    int peak = 0;
+    for (int value = 0; value < LEVELS; value++) {
+      if (this.counts[channel][value] > max) {
+        max = this.counts[channel][value];
+        peak = value;
+      }
+    }
+    return peak;
+  }
+
+  /**
+   * Returns the largest count over all channels and values.
+   *
+   * @return the largest count
+   */
+  public int getMaxCount() {
+    int max = 0;
+    for (int[] channel : this.counts) {
+      for (int count : channel) {
+        max = Math.max(max, count);
+      }
+    }
+    return max;
+  }
+
+  /**
+   * Renders the histogram as a 256 by 256 line plot of the three channels on a grid, with every
+   * count relative to the largest count. The plot is drawn once, and every call returns a new copy
+   * of it, so changing the returned image does not change the histogram.
+   *
+   * @return the plot
+   */
+  public Image render() {
+    int[] plot = this.plot;
+    if (plot == null) {
+      plot = this.draw();
+      this.plot = plot;
+    }
+    return new RGBImage(PLOT_SIZE, PLOT_SIZE, plot.clone());
+  }
+
+  private int[] draw() {
+    int maxCount = this.getMaxCount();
+    BufferedImage image = new BufferedImage(PLOT_SIZE, PLOT_SIZE, BufferedImage.TYPE_INT_RGB);
+
+    Graphics2D g2d = image.createGraphics();
+    drawGrid(g2d);
+    plot(g2d, this.counts[0], maxCount, Color.RED);
+    plot(g2d, this.counts[1], maxCount, Color.GREEN);
+    plot(g2d, this.counts[2], maxCount, Color.BLUE);
+    g2d.dispose();
+
+    int[] pixels = image.getRGB(0, 0, PLOT_SIZE, PLOT_SIZE, null, 0, PLOT_SIZE);
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] &= 0xFFFFFF;
+    }
+    return pixels;
+  }
+
+  private static void drawGrid(Graphics2D g2d) {
+    g2d.setColor(Color.WHITE);
+    g2d.fillRect(0, 0, PLOT_SIZE, PLOT_SIZE);
+
+    int[] cellSizes = {11, 12, 12, 12, 12};
+
+    int lineThickness = 1;
+
+    g2d.setColor(new Color(220, 220, 220));
+
+    int xPos = 0;
+    for (int x = 0; x < 20; x++) {
+      int cellSize = cellSizes[x % cellSizes.length];
+      xPos += cellSize;
+      g2d.drawLine(xPos, 0, xPos, 256);
+      xPos += lineThickness;
+    }
+
+    int yPos = 255;
+    for (int y = 0; y < 20; y++) {
+      int cellSize = cellSizes[y % cellSizes.length];
+      yPos -= cellSize;
+      g2d.drawLine(0, yPos, 255, yPos);
+      yPos -= lineThickness;
+    }
+  }
+
+  private static void plot(Graphics2D g2d, int[] counts, int maxCount, Color color) {
+    g2d.setColor(color);
+    int prevX = 0;
+    int prevY = y(counts[0], maxCount);
+
+    for (int i = 1; i < counts.length; i++) {
+      int y = y(counts[i], maxCount);
+      g2d.drawLine(prevX, prevY, i, y);
+      prevX = i;
+      prevY = y;
+    }
+  }
+
+  private static int y(int count, int maxCount) {
+    double normalized = (double) count / maxCount;
+    return PLOT_SIZE - (int) (normalized * PLOT_SIZE) - 1;
+  }
+}
@@ -28,6 +28,14 @@ public interface IME {
    */
   Image brighten(int value);
 
+  /**
+   * Maps every channel value of the image through the given lookup table.
+   *
+   * @param table The lookup table to apply.
+   * @return A new image with the table applied.
+   */
+  Image applyLookupTable(LookupTable table);
+
   /**
    * Applies a blur effect to the image.
    *
@@ -42,6 +50,14 @@ public interface IME {
    */
   Image sepia();
 
+  /**
+   * Maps the red, green and blue components of every pixel through the given color matrix.
+   *
+   * @param matrix The color matrix to apply.
+   * @return A new image with the matrix applied, grayscale if every row of the matrix is equal.
+   */
+  Image colorMatrix(ColorMatrix matrix);
+
   /**
    * Applies a sharpening effect to the image.
    *
@@ -49,6 +65,15 @@ public interface IME {
    */
   Image sharpen();
 
+  /**
+   * Convolves the image with the given kernel. Pixels outside the image are treated as black, and
+   * the results are clamped to 0-255.
+   *
+   * @param kernel The kernel to convolve the image with.
+   * @return A new image with the kernel applied.
+   */
+  Image filter(Kernel kernel);
+
   /**
    * Returns the red component of the image.
    *
@@ -116,6 +141,56 @@ public interface IME {
    */
   Image getRightPercentageOfImage(int percentage);
 
+  /**
+   * Gets a band of columns of the image, over the full height of the image.
+   *
+   * @param startCol the first column of the band.
+   * @param newWidth the number of columns in the band.
+   * @return the band of columns as a new image.
+   */
+  Image getColumns(int startCol, int newWidth);
+
+  /**
+   * Shrinks the image by a whole factor along each axis. Every pixel of the result is the average
+   * of a block of factor by factor pixels, or of the pixels that remain at the right and bottom
+   * edges.
+   *
+   * @param factor the factor to shrink by, 1 for a copy of the image.
+   * @return the smaller image.
+   * @throws IllegalArgumentException if the factor is less than 1.
+   */
+  Image downscale(int factor);
+
+  /**
+   * Resizes the image. The image is sampled bilinearly from the smallest level of its pyramid
+   * that is still at least as large as the new size, so shrinking by a lot stays smooth.
+   *
+   * @param newHeight the new height.
+   * @param newWidth the new width.
+   * @return the resized image.
+   * @throws IllegalArgumentException if the new size is less than 1 by 1.
+   */
+  Image resize(int newHeight, int newWidth);
+
+  /**
+   * Gets a level of the mip pyramid of the image. Level 0 is the image itself and every next
+   * level is the one before shrunk by a 2 by 2 box average, down to a single pixel. The levels
+   * are cached with the image, but may be dropped when memory runs low and are then built again.
+   *
+   * @param level the level, 0 for the image itself.
+   * @return the image of the level, or the single pixel image past the last level.
+   * @throws IllegalArgumentException if the level is negative.
+   */
+  Image getLevel(int level);
+
+  /**
+   * Gets a copy of the pixels of the image, packed as {@code 0xRRGGBB} values in row-major order.
+   * Grayscale pixels have equal components.
+   *
+   * @return the packed pixels of the image.
+   */
+  int[] getPackedPixels();
+
   /**
    * Gets the Pixel matrix for the image. Specifically RGBPixel Matrix.
    *
@@ -138,6 +213,14 @@ public interface IME {
    */
   Image getHistogram();
 
+  /**
+   * Counts the values of the red, green and blue channels of the image.
+   *
+   * @return the histogram as data, which {@link Histogram#render()} draws as
+   *     {@link #getHistogram()} does.
+   */
+  Histogram histogram();
+
   /**
    * Color corrects the image.
    *
@@ -156,4 +239,12 @@ public interface IME {
   Image levelAdjust(int b, int m, int w);
 
   Image dither();
+
+  /**
+   * Dithers the intensity of the image to black and white.
+   *
+   * @param mode error diffusion, which is the same as {@link #dither()}, or an ordered mode.
+   * @return the dithered grayscale image.
+   */
+  Image dither(DitherMode mode);
 }
@@ -137,6 +137,15 @@ public interface IModel {
    */
   void sharpenImage(String name, String destImageName);
 
+  /**
+   * Convolves an image with a kernel.
+   *
+   * @param kernel the kernel to apply
+   * @param name the name of the image
+   * @param destImageName the name of the new image
+   */
+  void filterImage(Kernel kernel, String name, String destImageName);
+
   /**
    * Creates sepia image from given image.
    *
@@ -249,4 +258,49 @@ public interface IModel {
   boolean isSameSize(String s1, String s2);
 
   void ditherImage(String currImage, String currImage1);
+
+  /**
+   * Dithers an image to black and white.
+   *
+   * @param mode the way of dithering
+   * @param name the name of the image
+   * @param destImageName the name of the dithered image
+   */
+  void ditherImage(DitherMode mode, String name, String destImageName);
+
+  /**
+   * Sets whether operations on a single image are deferred until their result is read. Deferred
+   * operations are fused where possible, and results that are never read are never computed.
+   *
+   * @param lazy true to defer operations
+   */
+  void setLazy(boolean lazy);
+
+  /**
+   * Whether operations are deferred until their result is read.
+   *
+   * @return true if the model is in lazy mode
+   */
+  boolean isLazy();
+
+  /**
+   * Returns the number of stored images read from the heap.
+   *
+   * @return the number of hits
+   */
+  long getHits();
+
+  /**
+   * Returns the number of stored images read back from a scratch file.
+   *
+   * @return the number of misses
+   */
+  long getMisses();
+
+  /**
+   * Returns the number of images written to a scratch file.
+   *
+   * @return the number of spills
+   */
+  long getSpills();
 }
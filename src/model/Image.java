@@ -1,8 +1,7 @@
 package model;
 
-import java.awt.Graphics2D;
-import java.awt.Color;
-import java.util.Map;
+import java.lang.ref.SoftReference;
+import java.util.function.UnaryOperator;
 
 /**
  * Abstract class for image. That implements IME to provide the methods that all images must have.
@@ -10,6 +9,8 @@ import java.util.Map;
 public abstract class Image implements IME {
   protected int height;
   protected int width;
+  private Histogram histogram;
+  private SoftReference<Image> halved;
 
   public Image(int height, int width) {
     this.height = height;
@@ -42,12 +43,18 @@ public abstract class Image implements IME {
 
   public abstract Image brighten(int value);
 
+  public abstract Image applyLookupTable(LookupTable table);
+
   public abstract Image blur();
 
   public abstract Image sharpen();
 
+  public abstract Image filter(Kernel kernel);
+
   public abstract Image sepia();
 
+  public abstract Image colorMatrix(ColorMatrix matrix);
+
   public abstract Image getRedComponent();
 
   public abstract Image getGreenComponent();
@@ -66,103 +73,180 @@ public abstract class Image implements IME {
 
   public abstract Image getRightPercentageOfImage(int percentage);
 
-  public abstract RGBPixel[][] getRGBPixelMatrix();
-
-  public abstract Image compressImage(int compressionPercentage);
-
-  public abstract Image getHistogram();
-
-  public abstract Image colorCorrect();
+  public abstract Image getColumns(int startCol, int newWidth);
 
-  public abstract Image levelAdjust(int b, int m, int w);
+  public abstract Image downscale(int factor);
 
-  static double[][] getNormalizedColorData(
-      Map<Integer, Integer> redFrequencyMap,
-      Map<Integer, Integer> greenFrequencyMap,
-      Map<Integer, Integer> blueFrequencyMap) {
-    int[] dataRed = new int[256];
-    int[] dataGreen = new int[256];
-    int[] dataBlue = new int[256];
-
-    for (int i = 0; i < 256; i++) {
-      dataRed[i] = redFrequencyMap.getOrDefault(i, 0);
-      dataGreen[i] = greenFrequencyMap.getOrDefault(i, 0);
-      dataBlue[i] = blueFrequencyMap.getOrDefault(i, 0);
+  @Override
+  public Image resize(int newHeight, int newWidth) {
+    if (newHeight < 1 || newWidth < 1) {
+      throw new IllegalArgumentException("Size has to be at least 1 by 1.");
     }
+    Image source = this;
+    while ((source.height + 1) / 2 >= newHeight
+        && (source.width + 1) / 2 >= newWidth
+        && (source.height > 1 || source.width > 1)) {
+      source = source.halved();
+    }
+    return source.sample(newHeight, newWidth);
+  }
 
-    int redMax = findMax(dataRed);
-    int greenMax = findMax(dataGreen);
-    int blueMax = findMax(dataBlue);
-
-    int maxFrequency = Math.max(redMax, Math.max(greenMax, blueMax));
-
-    double[] normalizedRed = normalizeArray(dataRed, maxFrequency);
-    double[] normalizedGreen = normalizeArray(dataGreen, maxFrequency);
-    double[] normalizedBlue = normalizeArray(dataBlue, maxFrequency);
-
-    return new double[][] {normalizedRed, normalizedGreen, normalizedBlue};
+  @Override
+  public Image getLevel(int level) {
+    if (level < 0) {
+      throw new IllegalArgumentException("Level cannot be negative.");
+    }
+    Image image = this;
+    for (int i = 0; i < level && (image.height > 1 || image.width > 1); i++) {
+      image = image.halved();
+    }
+    return image;
   }
 
-  private static int findMax(int[] data) {
-    int max = 0;
-    for (int value : data) {
-      if (value > max) {
-        max = value;
-      }
+  /**
+   * Gets the next level of the pyramid, building it if it is not cached.
+   *
+   * @return the image shrunk by 2 by 2.
+   */
+  private Image halved() {
+    Image half = this.halved == null ? null : this.halved.get();
+    if (half == null) {
+      half = this.halve();
+      this.halved = new SoftReference<>(half);
     }
-    return max;
+    return half;
   }
 
-  private static double[] normalizeArray(int[] data, int overallMax) {
-    double[] normalized = new double[data.length];
-    for (int i = 0; i < data.length; i++) {
-      normalized[i] = (double) data[i] / overallMax;
+  /**
+   * Shrinks the image by a 2 by 2 box average, the same as {@link #downscale(int)} by 2.
+   *
+   * @return the image shrunk by 2 by 2.
+   */
+  abstract Image halve();
+
+  /**
+   * Resamples the whole image to a new size by bilinear interpolation between pixel centers.
+   *
+   * @param newHeight the new height.
+   * @param newWidth the new width.
+   * @return the resampled image.
+   */
+  abstract Image sample(int newHeight, int newWidth);
+
+  /**
+   * Maps every row or column of a resampled image to the two source rows or columns it lies
+   * between, and the weight of the second one out of 256.
+   *
+   * @param size the number of source rows or columns.
+   * @param newSize the number of resampled rows or columns.
+   * @return the first source index, the second source index and the weight of each resampled
+   *     index, one after the other.
+   */
+  static int[] sampling(int size, int newSize) {
+    int[] sampling = new int[3 * newSize];
+    for (int i = 0; i < newSize; i++) {
+      double position = (i + 0.5) * size / newSize - 0.5;
+      position = Math.max(0, Math.min(size - 1, position));
+      int first = (int) position;
+      sampling[3 * i] = first;
+      sampling[3 * i + 1] = Math.min(size - 1, first + 1);
+      sampling[3 * i + 2] = (int) Math.round((position - first) * 256);
     }
-    return normalized;
+    return sampling;
+  }
+
+  /**
+   * Interpolates between four values with weights out of 256.
+   *
+   * @param topLeft the value at the top left.
+   * @param topRight the value at the top right.
+   * @param bottomLeft the value at the bottom left.
+   * @param bottomRight the value at the bottom right.
+   * @param x the weight of the right values.
+   * @param y the weight of the bottom values.
+   * @return the interpolated value, rounded.
+   */
+  static int interpolate(int topLeft, int topRight, int bottomLeft, int bottomRight, int x, int y) {
+    int top = topLeft * (256 - x) + topRight * x;
+    int bottom = bottomLeft * (256 - x) + bottomRight * x;
+    return (top * (256 - y) + bottom * y + (1 << 15)) >> 16;
   }
 
-  static void drawGrid(Graphics2D g2d, int width, int height) {
-    g2d.setColor(Color.WHITE);
-    g2d.fillRect(0, 0, width, height);
+  public abstract int[] getPackedPixels();
 
-    int[] cellSizes = {11, 12, 12, 12, 12};
+  public abstract RGBPixel[][] getRGBPixelMatrix();
 
-    int lineThickness = 1;
+  /**
+   * Gets the pixels of the image packed as {@code 0xRRGGBB} values in row-major order, following
+   * the same conversion as {@link #getRGBPixelMatrix()}. The returned array may be the backing
+   * storage of the image and must not be modified.
+   *
+   * @return the packed pixels of the image.
+   */
+  abstract int[] packedRGB();
 
-    g2d.setColor(new Color(220, 220, 220));
+  public abstract Image compressImage(int compressionPercentage);
 
-    int xPos = 0;
-    for (int x = 0; x < 20; x++) {
-      int cellSize = cellSizes[x % cellSizes.length];
-      xPos += cellSize;
-      g2d.drawLine(xPos, 0, xPos, 256);
-      xPos += lineThickness;
-    }
+  public abstract Image getHistogram();
 
-    int yPos = 255;
-    for (int y = 0; y < 20; y++) {
-      int cellSize = cellSizes[y % cellSizes.length];
-      yPos -= cellSize;
-      g2d.drawLine(0, yPos, 255, yPos);
-      yPos -= lineThickness;
+  /**
+   * Gets the histogram of the image, counting the pixels the first time it is asked for and
+   * returning the same histogram afterwards, until the pixels change.
+   *
+   * @return the histogram as data.
+   */
+  public Histogram histogram() {
+    Histogram histogram = this.histogram;
+    if (histogram == null) {
+      histogram = this.computeHistogram();
+      this.histogram = histogram;
     }
+    return histogram;
   }
 
-  static void plotNormalizedData(
-      Graphics2D g2d, double[] normalizedData, Color color, int width, int height) {
-    g2d.setColor(color);
-    int prevX = 0;
-    int prevY = height - (int) (normalizedData[0] * (height)) - 1;
-
-    for (int i = 1; i < normalizedData.length; i++) {
-      int x = i;
-      int y = height - (int) (normalizedData[i] * (height)) - 1;
-      g2d.drawLine(prevX, prevY, x, y);
-      prevX = x;
-      prevY = y;
+  /**
+   * Counts the pixels of the image into a new histogram.
+   *
+   * @return the histogram.
+   */
+  abstract Histogram computeHistogram();
+
+  /**
+   * Derives the histogram of this image from the histogram of the image it was made from, if that
+   * one has been computed already, so that it does not have to be counted from the pixels.
+   *
+   * @param source the image this image was made from.
+   * @param derivation gives the histogram of this image from the histogram of the source.
+   * @return this image.
+   */
+  Image deriveHistogram(Image source, UnaryOperator<Histogram> derivation) {
+    Histogram histogram = source.histogram;
+    if (histogram != null) {
+      this.histogram = derivation.apply(histogram);
     }
+    return this;
   }
 
+  /** Drops the cached histogram and pyramid, after a pixel of the image has changed. */
+  protected void invalidate() {
+    this.histogram = null;
+    this.halved = null;
+  }
+
+  public abstract Image colorCorrect();
+
+  /**
+   * Gets the per-channel shift that {@link #colorCorrect()} applies, computed from the histogram
+   * of this image.
+   *
+   * @return the shift as a lookup table.
+   */
+  abstract LookupTable colorCorrection();
+
+  public abstract Image levelAdjust(int b, int m, int w);
+
   public abstract Image dither();
 
+  public abstract Image dither(DitherMode mode);
+
 }
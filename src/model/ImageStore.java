@@ -0,0 +1,69 @@
+package model;
+
+/**
+ * Keeps the images of a model by name. The images can be kept on the heap or written to scratch
+ * files, so an image read back may be a new copy of the one stored. A read of an image on the heap
+ * is a hit and a read of an image from a scratch file is a miss, and writing an image to a scratch
+ * file is a spill.
+ */
+interface ImageStore {
+  /**
+   * Gets an image.
+   *
+   * @param name the name of the image
+   * @return the image, or null if there is no image with that name
+   */
+  Image get(String name);
+
+  /**
+   * Stores an image, replacing any image with the same name.
+   *
+   * @param name the name of the image
+   * @param image the image
+   */
+  void put(String name, Image image);
+
+  /**
+   * Gives an image another name without reading or copying it, if there is one with that name.
+   *
+   * @param name the name of the image
+   * @param newName the new name of the image, which no other image has
+   */
+  void rename(String name, String newName);
+
+  /**
+   * Removes an image, if there is one with that name.
+   *
+   * @param name the name of the image
+   */
+  void remove(String name);
+
+  /**
+   * Tells whether there is an image with a name.
+   *
+   * @param name the name of the image
+   * @return true if there is an image with that name
+   */
+  boolean contains(String name);
+
+  /**
+   * Returns the number of images read from the heap.
+   *
+   * @return the number of hits
+   */
+  long getHits();
+
+  /**
+   * Returns the number of images read back from a scratch file.
+   *
+   * @return the number of misses
+   */
+  long getMisses();
+
+  /**
+   * Returns the number of images written to a scratch file.
+   *
+   * @return the number of spills
+   */
+  long getSpills();
+}
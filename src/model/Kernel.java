@@ -0,0 +1,202 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable square convolution kernel of odd size. Kernels are compiled into fixed-point integer
+ * weights the first time they are applied, and the compiled form is shared between all kernels with
+ * the same weights, so repeated filtering with the same kernel does not re-derive the weights.
+ */
+public final class Kernel {
+  /** The 3x3 Gaussian blur kernel. */
+  public static final Kernel BLUR =
+      new Kernel(
+          new double[][] {
+            {0.0625, 0.125, 0.0625},
+            {0.125, 0.25, 0.125},
+            {0.0625, 0.125, 0.0625}
+          });
+
+  /** The 5x5 sharpening kernel. */
+  public static final Kernel SHARPEN =
+      new Kernel(
+          new double[][] {
+            {-0.125, -0.125, -0.125, -0.125, -0.125},
+            {-0.125, 0.25, 0.25, 0.25, -0.125},
+            {-0.125, 0.25, 1.0, 0.25, -0.125},
+            {-0.125, 0.25, 0.25, 0.25, -0.125},
+            {-0.125, -0.125, -0.125, -0.125, -0.125}
+          });
+
+  /** Number of distinct kernels kept compiled before the cache is emptied. */
+  private static final int MAX_CACHED = 64;
+
+  private static final Map<Kernel, Convolution> COMPILED = new ConcurrentHashMap<>();
+
+  private final double[][] weights;
+  private final int hash;
+  private volatile Convolution convolution;
+
+  /**
+   * Creates a kernel from the given weights. The weights are copied.
+   *
+   * @param weights the weights of the kernel, indexed by row and column
+   * @throws IllegalArgumentException if the kernel is empty, not square or has an even size
+   */
+  public Kernel(double[][] weights) {
+    if (weights == null || weights.length == 0) {
+      throw new IllegalArgumentException("Kernel cannot be empty.");
+    }
+    if (weights.length % 2 == 0) {
+      throw new IllegalArgumentException("Kernel size has to be odd.");
+    }
+    this.weights = new double[weights.length][];
+    for (int row = 0; row < weights.length; row++) {
+      if (weights[row] == null || weights[row].length != weights.length) {
+        throw new IllegalArgumentException("Kernel has to be square.");
+      }
+      for (double weight : weights[row]) {
+        if (!Double.isFinite(weight)) {
+          throw new IllegalArgumentException("Kernel weights have to be finite.");
+        }
+      }
+      this.weights[row] = weights[row].clone();
+    }
+    this.hash = Arrays.deepHashCode(this.weights);
+  }
+
+  /**
+   * Creates a box kernel that averages a square neighbourhood.
+   *
+   * @param size the odd size of the kernel
+   * @return the box kernel
+   */
+  public static Kernel box(int size) {
+    checkSize(size);
+    double[][] weights = new double[size][size];
+    for (double[] row : weights) {
+      Arrays.fill(row, 1.0 / (size * size));
+    }
+    return new Kernel(weights);
+  }
+
+  /**
+   * Creates a normalized Gaussian kernel.
+   *
+   * @param size the odd size of the kernel
+   * @param sigma the standard deviation of the Gaussian, in pixels
+   * @return the Gaussian kernel
+   */
+  public static Kernel gaussian(int size, double sigma) {
+    checkSize(size);
+    if (!(sigma > 0)) {
+      throw new IllegalArgumentException("Sigma has to be positive.");
+    }
+    int radius = size / 2;
+    double[] line = new double[size];
+    double sum = 0;
+    for (int i = 0; i < size; i++) {
+      int offset = i - radius;
+      line[i] = Math.exp(-(offset * offset) / (2 * sigma * sigma));
+      sum += line[i];
+    }
+    double[][] weights = new double[size][size];
+    for (int row = 0; row < size; row++) {
+      for (int col = 0; col < size; col++) {
+        weights[row][col] = line[row] * line[col] / (sum * sum);
+      }
+    }
+    return new Kernel(weights);
+  }
+
+  /**
+   * Creates a 3x3 emboss kernel, lighting the image from the top left.
+   *
+   * @return the emboss kernel
+   */
+  public static Kernel emboss() {
+    return new Kernel(new double[][] {{-2, -1, 0}, {-1, 1, 1}, {0, 1, 2}});
+  }
+
+  /**
+   * Creates a 3x3 Laplacian edge detection kernel.
+   *
+   * @return the edge detection kernel
+   */
+  public static Kernel edge() {
+    return new Kernel(new double[][] {{-1, -1, -1}, {-1, 8, -1}, {-1, -1, -1}});
+  }
+
+  private static void checkSize(int size) {
+    if (size < 1 || size % 2 == 0) {
+      throw new IllegalArgumentException("Kernel size has to be a positive odd number.");
+    }
+  }
+
+  /**
+   * Returns the number of rows (and columns) of the kernel.
+   *
+   * @return the size of the kernel
+   */
+  public int getSize() {
+    return this.weights.length;
+  }
+
+  /**
+   * Returns one weight of the kernel.
+   *
+   * @param row the row of the weight
+   * @param col the column of the weight
+   * @return the weight
+   */
+  public double getWeight(int row, int col) {
+    return this.weights[row][col];
+  }
+
+  /**
+   * Checks that the kernel can be applied, compiling it ahead of its first use.
+   *
+   * @throws IllegalArgumentException if the weights are too large to be applied
+   */
+  public void validate() {
+    this.compile();
+  }
+
+  /**
+   * Returns the fixed-point form of this kernel, compiling it only if no kernel with the same
+   * weights has been compiled before.
+   *
+   * @return the compiled convolution
+   * @throws IllegalArgumentException if the weights are too large to be applied
+   */
+  Convolution compile() {
+    Convolution compiled = this.convolution;
+    if (compiled == null) {
+      if (COMPILED.size() >= MAX_CACHED) {
+        COMPILED.clear();
+      }
+      compiled = COMPILED.computeIfAbsent(this, kernel -> Convolution.of(kernel.weights));
+      this.convolution = compiled;
+    }
+    return compiled;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof Kernel)) {
+      return false;
+    }
+    Kernel kernel = (Kernel) other;
+    return this.hash == kernel.hash && Arrays.deepEquals(this.weights, kernel.weights);
+  }
+
+  @Override
+  public int hashCode() {
+    return this.hash;
+  }
+}
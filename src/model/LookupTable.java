@@ -0,0 +1,233 @@
+package model;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * An immutable point operation, stored as one 256-entry table per channel that maps every
+ * channel value to its new value. Operations that only depend on the value of one channel, like
+ * brightening or level adjustment, are computed once per possible value instead of once per pixel,
+ * and a chain of them can be composed into a single table so the image is traversed only once.
+ */
+public final class LookupTable {
+  /** The table that keeps every value unchanged. */
+  public static final LookupTable IDENTITY = uniform(value -> value);
+
+  /** The table that keeps only the red channel. */
+  public static final LookupTable RED = of(value -> value, value -> 0, value -> 0);
+
+  /** The table that keeps only the green channel. */
+  public static final LookupTable GREEN = of(value -> 0, value -> value, value -> 0);
+
+  /** The table that keeps only the blue channel. */
+  public static final LookupTable BLUE = of(value -> 0, value -> 0, value -> value);
+
+  private final byte[] red;
+  private final byte[] green;
+  private final byte[] blue;
+
+  private LookupTable(byte[] red, byte[] green, byte[] blue) {
+    this.red = red;
+    this.green = green;
+    this.blue = blue;
+  }
+
+  /**
+   * Creates a table that applies the same function to every channel. Results are clamped to 0-255.
+   *
+   * @param function the function from the old channel value to the new one
+   * @return the lookup table
+   */
+  public static LookupTable uniform(IntUnaryOperator function) {
+    byte[] table = tabulate(function);
+    return new LookupTable(table, table, table);
+  }
+
+  /**
+   * Creates a table that applies a separate function to each channel. Results are clamped to 0-255.
+   *
+   * @param red the function for the red channel
+   * @param green the function for the green channel
+   * @param blue the function for the blue channel
+   * @return the lookup table
+   */
+  public static LookupTable of(
+      IntUnaryOperator red, IntUnaryOperator green, IntUnaryOperator blue) {
+    return new LookupTable(tabulate(red), tabulate(green), tabulate(blue));
+  }
+
+  /**
+   * Creates the table that adds the given value to every channel.
+   *
+   * @param value the amount to add, negative to darken
+   * @return the lookup table
+   */
+  public static LookupTable brighten(int value) {
+    return uniform(channel -> channel + value);
+  }
+
+  /**
+   * Creates the table that shifts each channel by its own offset, as used by color correction.
+   *
+   * @param red the amount to add to the red channel
+   * @param green the amount to add to the green channel
+   * @param blue the amount to add to the blue channel
+   * @return the lookup table
+   */
+  public static LookupTable shift(int red, int green, int blue) {
+    return of(channel -> channel + red, channel -> channel + green, channel -> channel + blue);
+  }
+
+  /**
+   * Creates the table for a level adjustment, fitting a quadratic curve through the black, mid and
+   * white points.
+   *
+   * @param black the black value
+   * @param mid the mid value
+   * @param white the white value
+   * @return the lookup table
+   */
+  public static LookupTable levelAdjust(int black, int mid, int white) {
+    double aA =
+        black * black * (mid - white)
+            - black * ((mid * mid) - (white * white))
+            + (white * mid * mid)
+            - (mid * white * white);
+    double aAa = -black * (128 - 255) + 128 * white - 255 * mid;
+    double aAb = black * black * (128 - 255) + 255 * mid * mid - 128 * white * white;
+    double aAc =
+        black * black * (((255 * mid) - (128 * white)))
+            - black * (((255 * mid * mid) - (128 * white * white)));
+
+    double a = aAa / aA;
+    double b = aAb / aA;
+    double c = aAc / aA;
+
+    return uniform(channel -> (int) (a * Math.pow(channel, 2) + b * channel + c));
+  }
+
+  private static byte[] tabulate(IntUnaryOperator function) {
+    byte[] table = new byte[256];
+    for (int value = 0; value < 256; value++) {
+      table[value] = (byte) RGBImage.clamp(function.applyAsInt(value));
+    }
+    return table;
+  }
+
+  /**
+   * Returns the table that applies this table and then the given one.
+   *
+   * @param next the table to apply after this one
+   * @return the composed lookup table
+   */
+  public LookupTable andThen(LookupTable next) {
+    return new LookupTable(
+        compose(this.red, next.red),
+        compose(this.green, next.green),
+        compose(this.blue, next.blue));
+  }
+
+  private static byte[] compose(byte[] first, byte[] second) {
+    byte[] table = new byte[256];
+    for (int value = 0; value < 256; value++) {
+      table[value] = second[first[value] & 0xFF];
+    }
+    return table;
+  }
+
+  /**
+   * Whether every channel is mapped by the same table, so gray pixels stay gray.
+   *
+   * @return true if the table is the same for every channel
+   */
+  public boolean isUniform() {
+    return Arrays.equals(this.red, this.green) && Arrays.equals(this.red, this.blue);
+  }
+
+  /**
+   * Looks up the new value of one channel.
+   *
+   * @param channel the channel, 0 for red, 1 for green and 2 for blue
+   * @param value the old channel value, within 0-255
+   * @return the new channel value
+   */
+  public int lookup(int channel, int value) {
+    switch (channel) {
+      case 0:
+        return this.red[value] & 0xFF;
+      case 1:
+        return this.green[value] & 0xFF;
+      case 2:
+        return this.blue[value] & 0xFF;
+      default:
+        throw new IllegalArgumentException("Channel has to be 0, 1 or 2.");
+    }
+  }
+
+  /**
+   * Maps packed {@code 0xRRGGBB} pixels.
+   *
+   * @param pixels the packed pixels, in row-major order
+   * @param height the height of the image
+   * @param width the width of the image
+   * @return the mapped pixels
+   */
+  int[] apply(int[] pixels, int height, int width) {
+    int[] result = new int[pixels.length];
+    Parallel.forRows(
+        height,
+        width,
+        (startRow, endRow) -> {
+          for (int i = startRow * width; i < endRow * width; i++) {
+            int pixel = pixels[i];
+            result[i] =
+                (this.red[(pixel >> 16) & 0xFF] & 0xFF) << 16
+                    | (this.green[(pixel >> 8) & 0xFF] & 0xFF) << 8
+                    | (this.blue[pixel & 0xFF] & 0xFF);
+          }
+        });
+    return result;
+  }
+
+  /**
+   * Maps single channel pixels with the red table, which is the table of every channel when the
+   * table is uniform.
+   *
+   * @param pixels the unsigned pixel values, in row-major order
+   * @param height the height of the image
+   * @param width the width of the image
+   * @return the mapped pixels
+   */
+  byte[] apply(byte[] pixels, int height, int width) {
+    byte[] result = new byte[pixels.length];
+    Parallel.forRows(
+        height,
+        width,
+        (startRow, endRow) -> {
+          for (int i = startRow * width; i < endRow * width; i++) {
+            result[i] = this.red[pixels[i] & 0xFF];
+          }
+        });
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof LookupTable)) {
+      return false;
+    }
+    LookupTable table = (LookupTable) other;
+    return Arrays.equals(this.red, table.red)
+        && Arrays.equals(this.green, table.green)
+        && Arrays.equals(this.blue, table.blue);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (31 * Arrays.hashCode(this.red) + Arrays.hashCode(this.green))
+        + Arrays.hashCode(this.blue);
+  }
+}
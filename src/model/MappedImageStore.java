@@ -0,0 +1,238 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the pixels of the images of a model in memory-mapped files in a scratch directory instead
+ * of on the heap, so that a long script does not keep every image it made in the heap. Only the
+ * size and the type of every image stay in memory, along with the few most recently stored or read
+ * images, which are read from the heap as they are, with their cached histograms and smaller
+ * levels. Any other image is mapped back in and copied into a new image when it is read. The
+ * operating system keeps the files in its page cache as long as there is memory to spare and
+ * writes them out otherwise.
+ *
+ * <p>Grayscale images take one byte per pixel and color images three, the red, green and blue
+ * values. Every image is written to a new file, and the file it replaces is deleted, so that a
+ * file is never changed while it may still be mapped. The scratch files are deleted when the
+ * program exits.
+ */
+final class MappedImageStore implements ImageStore {
+  /** The largest number of bytes mapped at once, a multiple of 3 that fits in an int. */
+  private static final int MAX_MAPPING = 3 << 28;
+
+  /** The number of color pixels converted at a time between a mapping and the pixel array. */
+  private static final int CHUNK_PIXELS = 1 << 14;
+
+  private final Path directory;
+  private final Map<String, Slot> slots = new HashMap<>();
+  private final Map<String, Image> recent;
+  private long nextFile;
+  private long hits;
+  private long reads;
+  private long writes;
+
+  /**
+   * Creates an empty store in a new directory.
+   *
+   * @param scratchDirectory the directory in which to create the directory of the scratch files
+   * @param recentImages the number of the most recently used images kept on the heap as well
+   * @throws IOException if the directory cannot be created
+   */
+  MappedImageStore(Path scratchDirectory, int recentImages) throws IOException {
+    this.recent =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+            return this.size() > recentImages;
+          }
+        };
+    Files.createDirectories(scratchDirectory);
+    this.directory = Files.createTempDirectory(scratchDirectory, "images");
+    Path directory = this.directory;
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> deleteAll(directory)));
+  }
+
+  @Override
+  public Image get(String name) {
+    Slot slot = this.slots.get(name);
+    if (slot == null) {
+      return null;
+    }
+    Image recent = this.recent.get(name);
+    if (recent != null) {
+      this.hits++;
+      return recent;
+    }
+    this.reads++;
+    int count = slot.height * slot.width;
+    long size = slot.gray ? count : 3L * count;
+    try (FileChannel channel = FileChannel.open(slot.file, StandardOpenOption.READ)) {
+      byte[] values = slot.gray ? new byte[count] : null;
+      int[] pixels = slot.gray ? null : new int[count];
+      byte[] chunk = slot.gray ? null : new byte[3 * CHUNK_PIXELS];
+      for (long start = 0; start < size; start += MAX_MAPPING) {
+        int length = (int) Math.min(MAX_MAPPING, size - start);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        if (slot.gray) {
+          buffer.get(values, (int) start, length);
+          continue;
+        }
+        for (int pixel = (int) (start / 3); buffer.hasRemaining(); ) {
+          int chunkPixels = Math.min(CHUNK_PIXELS, buffer.remaining() / 3);
+          buffer.get(chunk, 0, 3 * chunkPixels);
+          for (int i = 0; i < chunkPixels; i++) {
+            int red = chunk[3 * i] & 0xFF;
+            int green = chunk[3 * i + 1] & 0xFF;
+            int blue = chunk[3 * i + 2] & 0xFF;
+            pixels[pixel++] = (red << 16) | (green << 8) | blue;
+          }
+        }
+      }
+      Image image =
+          slot.gray
+              ? new GrayScaleImage(slot.height, slot.width, values)
+              : new RGBImage(slot.height, slot.width, pixels);
+      this.recent.put(name, image);
+      return image;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void put(String name, Image image) {
+    boolean gray = image instanceof GrayScaleImage;
+    Slot slot = new Slot(this.newFile(), image.getHeight(), image.getWidth(), gray);
+    byte[] values = gray ? ((GrayScaleImage) image).values() : null;
+    int[] pixels = gray ? null : image.packedRGB();
+    long size = gray ? values.length : 3L * pixels.length;
+    try (FileChannel channel =
+        FileChannel.open(
+            slot.file,
+            StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      byte[] chunk = gray ? null : new byte[3 * CHUNK_PIXELS];
+      for (long start = 0; start < size; start += MAX_MAPPING) {
+        int length = (int) Math.min(MAX_MAPPING, size - start);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, start, length);
+        if (gray) {
+          buffer.put(values, (int) start, length);
+          continue;
+        }
+        for (int pixel = (int) (start / 3); buffer.hasRemaining(); ) {
+          int chunkPixels = Math.min(CHUNK_PIXELS, buffer.remaining() / 3);
+          for (int i = 0; i < chunkPixels; i++) {
+            int value = pixels[pixel++];
+            chunk[3 * i] = (byte) (value >> 16);
+            chunk[3 * i + 1] = (byte) (value >> 8);
+            chunk[3 * i + 2] = (byte) value;
+          }
+          buffer.put(chunk, 0, 3 * chunkPixels);
+        }
+      }
+    } catch (IOException e) {
+      delete(slot.file);
+      throw new UncheckedIOException(e);
+    }
+    this.writes++;
+    this.remove(name);
+    this.slots.put(name, slot);
+    this.recent.put(name, image);
+  }
+
+  private Path newFile() {
+    return this.directory.resolve("image-" + this.nextFile++ + ".px");
+  }
+
+  @Override
+  public void rename(String name, String newName) {
+    Slot slot = this.slots.remove(name);
+    if (slot != null) {
+      this.slots.put(newName, slot);
+    }
+    Image image = this.recent.remove(name);
+    if (image != null) {
+      this.recent.put(newName, image);
+    }
+  }
+
+  @Override
+  public void remove(String name) {
+    this.recent.remove(name);
+    Slot slot = this.slots.remove(name);
+    if (slot != null) {
+      delete(slot.file);
+    }
+  }
+
+  @Override
+  public boolean contains(String name) {
+    return this.slots.containsKey(name);
+  }
+
+  /** The recently used images are read from the heap. */
+  @Override
+  public long getHits() {
+    return this.hits;
+  }
+
+  /** The other images are read from their scratch files. */
+  @Override
+  public long getMisses() {
+    return this.reads;
+  }
+
+  /** Every image stored is written to a scratch file. */
+  @Override
+  public long getSpills() {
+    return this.writes;
+  }
+
+  private static void delete(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      // a file that is still mapped may not be deleted on some systems, it is deleted on exit
+    }
+  }
+
+  /** Deletes the scratch files and their directory. */
+  private static void deleteAll(Path directory) {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        delete(file);
+      }
+    } catch (IOException e) {
+      // the directory is already gone
+    }
+    delete(directory);
+  }
+
+  /** The scratch file of an image, with the size and the type needed to read it back. */
+  private static final class Slot {
+    private final Path file;
+    private final int height;
+    private final int width;
+    private final boolean gray;
+
+    Slot(Path file, int height, int width, boolean gray) {
+      this.file = file;
+      this.height = height;
+      this.width = width;
+      this.gray = gray;
+    }
+  }
+}
@@ -1,43 +1,300 @@
 package model;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Represents the model for the image processing program. The model contains a hashmap of images to
  * store the images that. the user passes in or creates.
+ *
+ * <p>In lazy mode, operations on a single image are not applied right away. The destination name
+ * is bound to a node of an operation graph instead, and the image is only computed when it is read
+ * through {@link #getImage(String)}. Consecutive point operations are fused into one lookup table,
+ * and intermediate images that are never read are never built. The nodes read their images from
+ * the store by name, and results read by several nodes are kept in the store too, so a deferred
+ * operation holds no image of its own. A stored image that deferred operations still read is
+ * renamed, rather than dropped, when its name is given to another image.
+ *
+ * <p>The images can be kept on the heap, or in memory-mapped scratch files, in which case only the
+ * few most recently used images stay on the heap and any other image read is a new copy of the
+ * stored one. With a memory budget, the most recently used images are kept on the heap up to the
+ * budget and the others are spilled to scratch files until they are read again.
  */
 public class Model implements IModel {
-  private Map<String, Image> images;
+  /** The number of images kept on the heap by a model with scratch files and no budget. */
+  private static final int RECENT_IMAGES = 4;
+
+  /** Starts the names of the images kept for deferred operations, which no command can give. */
+  private static final String KEPT = "\0";
+
+  private ImageStore images;
+  private Map<String, Node> pending;
+  private Map<String, Node> sources;
+  private long kept;
+  private boolean lazy;
 
   /** Constructor for the model. */
   public Model() {
-    this.images = new HashMap<>();
+    this.images = new HeapImageStore();
+    this.pending = new HashMap<>();
+    this.sources = new HashMap<>();
+  }
+
+  /**
+   * Constructor for a model that keeps the pixels of its images in memory-mapped files instead of
+   * on the heap, so the heap only holds the few images being worked on.
+   *
+   * @param scratchDirectory the directory in which to keep the scratch files, which are deleted
+   *     when the program exits
+   * @throws IOException if the scratch directory cannot be created
+   */
+  public Model(String scratchDirectory) throws IOException {
+    this.images = new MappedImageStore(Path.of(scratchDirectory), RECENT_IMAGES);
+    this.pending = new HashMap<>();
+    this.sources = new HashMap<>();
+  }
+
+  /**
+   * Constructor for a model that keeps its most recently used images on the heap up to a number of
+   * bytes, and spills the others to memory-mapped files until they are read again. Grayscale
+   * images count one byte per pixel and color images four.
+   *
+   * @param scratchDirectory the directory in which to keep the scratch files, which are deleted
+   *     when the program exits
+   * @param budget the number of bytes of pixels kept on the heap
+   * @throws IOException if the scratch directory cannot be created
+   * @throws IllegalArgumentException if the budget is negative
+   */
+  public Model(String scratchDirectory, long budget) throws IOException {
+    // the budget decides which images stay on the heap
+    MappedImageStore disk = new MappedImageStore(Path.of(scratchDirectory), 0);
+    this.images = new SpillingImageStore(budget, disk);
+    this.pending = new HashMap<>();
+    this.sources = new HashMap<>();
+  }
+
+  /**
+   * A step of the operation graph: either an image in the store, read by its name, or an operation
+   * on the result of another node. A node lives as long as an image name is bound to it or other
+   * nodes read it.
+   */
+  private static final class Node {
+    private Node input;
+    private final Operation operation;
+    private String stored;
+    private boolean named;
+    private int consumers;
+
+    Node(String stored) {
+      this.input = null;
+      this.operation = null;
+      this.stored = stored;
+    }
+
+    Node(Node input, Operation operation) {
+      this.input = input;
+      this.operation = operation;
+      this.named = true;
+      input.consumers++;
+    }
+  }
+
+  @Override
+  public void setLazy(boolean lazy) {
+    this.lazy = lazy;
+  }
+
+  @Override
+  public boolean isLazy() {
+    return this.lazy;
   }
 
   @Override
   public void addImage(String name, Image image) {
+    this.unbind(this.pending.remove(name));
+    this.detach(name);
     this.images.put(name, image);
   }
 
   @Override
   public Image getImage(String name) {
+    Node node = this.pending.remove(name);
+    if (node != null) {
+      Image image = evaluate(node);
+      this.images.put(name, image);
+      if (node.consumers > 0) {
+        // the nodes that read it read the stored image from now on
+        this.settle(node, name);
+        this.sources.put(name, node);
+      }
+      this.unbind(node);
+      return image;
+    }
     return this.images.get(name);
   }
 
+  @Override
+  public long getHits() {
+    return this.images.getHits();
+  }
+
+  @Override
+  public long getMisses() {
+    return this.images.getMisses();
+  }
+
+  @Override
+  public long getSpills() {
+    return this.images.getSpills();
+  }
+
   @Override
   public boolean isInModel(String name) {
-    return this.images.containsKey(name);
+    return this.images.contains(name) || this.pending.containsKey(name);
   }
 
   @Override
   public void removeImage(String name) {
+    this.unbind(this.pending.remove(name));
+    this.detach(name);
     this.images.remove(name);
   }
 
   @Override
   public boolean containsImage(String name) {
-    return this.images.containsKey(name);
+    return this.images.contains(name) || this.pending.containsKey(name);
+  }
+
+  /**
+   * Applies an operation to the named image and stores the result under the destination name. In
+   * lazy mode the operation is only recorded.
+   *
+   * @param name the name of the source image
+   * @param destImageName the name of the new image
+   * @param operation the operation to apply
+   */
+  private void record(String name, String destImageName, Operation operation) {
+    if (!this.lazy) {
+      addImage(destImageName, operation.apply(getImage(name)));
+      return;
+    }
+    Node input = this.pending.get(name);
+    if (input == null) {
+      input = this.sources.computeIfAbsent(name, Node::new);
+    }
+    Node node = new Node(input, operation);
+    this.unbind(this.pending.put(destImageName, node));
+    this.detach(destImageName);
+    this.images.remove(destImageName);
+  }
+
+  /**
+   * Moves a stored image that nodes still read to a name of its own, before its name is given to
+   * another image or removed.
+   */
+  private void detach(String name) {
+    Node source = this.sources.remove(name);
+    if (source != null) {
+      String kept = KEPT + this.kept++;
+      this.images.rename(name, kept);
+      source.stored = kept;
+    }
+  }
+
+  /**
+   * Makes a node read its result from the store under a name, so it no longer needs its input.
+   */
+  private void settle(Node node, String stored) {
+    node.stored = stored;
+    Node input = node.input;
+    node.input = null;
+    input.consumers--;
+    this.drop(input);
+  }
+
+  /** Drops the binding of an image name to a node, if there is one. */
+  private void unbind(Node node) {
+    if (node != null) {
+      node.named = false;
+      this.drop(node);
+    }
+  }
+
+  /**
+   * Drops a node and the nodes it reads, down to the first one still read by something else, and
+   * the images kept for them.
+   */
+  private void drop(Node node) {
+    while (node != null && !node.named && node.consumers == 0) {
+      if (node.stored != null && this.sources.get(node.stored) == node) {
+        this.sources.remove(node.stored);
+      } else if (node.stored != null) {
+        this.images.remove(node.stored);
+      }
+      Node input = node.input;
+      node.input = null;
+      if (input != null) {
+        input.consumers--;
+      }
+      node = input;
+    }
+  }
+
+  /**
+   * Computes the image of a node. The chain of nodes down to the closest computed node is applied
+   * in order, fusing runs of point operations, and runs of color matrices on color images, whose
+   * intermediate results have no other reader. Results are kept in the store only if other nodes
+   * still read them.
+   *
+   * <p>Fused color matrices skip the truncation and clamping between the steps, so a matrix is only
+   * fused with the one after it while the matrices fused so far are a mask, which keeps or zeroes
+   * every component and so gives exactly the same pixels either way. Gray images are not fused, as
+   * their color matrices are already lookup tables.
+   */
+  private Image evaluate(Node node) {
+    Deque<Node> chain = new ArrayDeque<>();
+    Node curr = node;
+    while (curr.stored == null) {
+      chain.push(curr);
+      curr = curr.input;
+    }
+
+    Image image = this.images.get(curr.stored);
+    while (!chain.isEmpty()) {
+      Node next = chain.pop();
+      LookupTable table = next.operation.asLookupTable();
+      ColorMatrix matrix = next.operation.asColorMatrix();
+      if (table != null) {
+        while (!chain.isEmpty()
+            && next.consumers == 1
+            && chain.peek().operation.asLookupTable() != null) {
+          next = chain.pop();
+          table = table.andThen(next.operation.asLookupTable());
+        }
+        image = image.applyLookupTable(table);
+      } else if (matrix != null && !(image instanceof GrayScaleImage)) {
+        while (!chain.isEmpty()
+            && next.consumers == 1
+            && matrix.isMask()
+            && chain.peek().operation.asColorMatrix() != null) {
+          next = chain.pop();
+          matrix = matrix.andThen(next.operation.asColorMatrix());
+        }
+        image = image.colorMatrix(matrix);
+      } else {
+        image = next.operation.apply(image);
+      }
+      if (next.consumers > 1 && next != node) {
+        String kept = KEPT + this.kept++;
+        this.images.put(kept, image);
+        this.settle(next, kept);
+      }
+    }
+    return image;
   }
 
   @Override
@@ -51,33 +308,21 @@ public class Model implements IModel {
 
   @Override
   public void previewImage(String name, String destImageName, int percent, String operation) {
-    Image og = getImage(name).getLeftPercentageOfImage(percent);
     switch (operation) {
       case "blur":
-        Image blurImage = getImage(name).blur().getRightPercentageOfImage(100 - percent);
-        Image blurPreview = addImagesTogether(og, blurImage);
-        addImage(destImageName, blurPreview);
+        preview(name, destImageName, percent, Operations.BLUR);
         break;
       case "sharpen":
-        Image sharpenImage = getImage(name).sharpen().getRightPercentageOfImage(100 - percent);
-        Image sharpenPreview = addImagesTogether(og, sharpenImage);
-        addImage(destImageName, sharpenPreview);
+        preview(name, destImageName, percent, Operations.SHARPEN);
         break;
       case "sepia":
-        Image sepiaImage = getImage(name).sepia().getRightPercentageOfImage(100 - percent);
-        Image sepiaPreview = addImagesTogether(og, sepiaImage);
-        addImage(destImageName, sepiaPreview);
+        preview(name, destImageName, percent, Operations.SEPIA);
         break;
       case "luma":
-        Image lumaImage = getImage(name).calculateValue().getRightPercentageOfImage(100 - percent);
-        Image lumaPreview = addImagesTogether(og, lumaImage);
-        addImage(destImageName, lumaPreview);
+        preview(name, destImageName, percent, Operations.VALUE);
         break;
       case "color-correct":
-        Image colorCorrectImage =
-            getImage(name).colorCorrect().getRightPercentageOfImage(100 - percent);
-        Image colorCorrectPreview = addImagesTogether(og, colorCorrectImage);
-        addImage(destImageName, colorCorrectPreview);
+        preview(name, destImageName, percent, Operations.COLOR_CORRECT);
         break;
       case "level-adjust":
         break;
@@ -90,16 +335,29 @@ public class Model implements IModel {
   public void previewImage(
       String name, String destImageName, int percent, String operation, int b, int m, int w) {
     if ("level-adjust".equals(operation)) {
-      Image og = getImage(name).getLeftPercentageOfImage(percent);
-      Image levelAdjustImage =
-          getImage(name).levelAdjust(b, m, w).getRightPercentageOfImage(100 - percent);
-      Image levelAdjustPreview = addImagesTogether(og, levelAdjustImage);
-      addImage(destImageName, levelAdjustPreview);
+      preview(name, destImageName, percent, Operations.levelAdjust(b, m, w));
     } else {
       previewImage(name, destImageName, percent, operation);
     }
   }
 
+  /**
+   * Helper method to build a split preview: the left percentage of the image unchanged, and the
+   * rest with the operation applied. Only the columns shown on the right are computed.
+   *
+   * @param name the name of the image
+   * @param destImageName the name of the preview image
+   * @param percent the percentage of the image to keep unchanged
+   * @param operation the operation to preview
+   */
+  private void preview(String name, String destImageName, int percent, Operation operation) {
+    Image image = getImage(name);
+    Image og = image.getLeftPercentageOfImage(percent);
+    int newWidth = image.getWidth() * (100 - percent) / 100;
+    Image operated = operation.applyToColumns(image, image.getWidth() - newWidth, newWidth);
+    addImage(destImageName, addImagesTogether(og, operated));
+  }
+
   @Override
   public void histogram(String name, String destImageName) {
     Image image = getImage(name);
@@ -109,23 +367,17 @@ public class Model implements IModel {
 
   @Override
   public void colorCorrect(String name, String destImageName) {
-    Image image = getImage(name);
-    Image colorCorrect = image.colorCorrect();
-    addImage(destImageName, colorCorrect);
+    record(name, destImageName, Operations.COLOR_CORRECT);
   }
 
   @Override
   public void levelAdjust(int b, int m, int w, String name, String destImageName) {
-    Image image = getImage(name);
-    Image newImage = image.levelAdjust(b, m, w);
-    addImage(destImageName, newImage);
+    record(name, destImageName, Operations.levelAdjust(b, m, w));
   }
 
   @Override
   public void compressImage(String name, String destImageName, int factor) {
-    Image image = getImage(name);
-    Image newImage = image.compressImage(factor);
-    addImage(destImageName, newImage);
+    record(name, destImageName, Operations.compress(factor));
   }
 
   /**
@@ -136,119 +388,93 @@ public class Model implements IModel {
    * @return the new image
    */
   private static Image addImagesTogether(Image leftImage, Image rightImage) {
-    RGBPixel[][] leftMatrix = leftImage.getRGBPixelMatrix();
-    RGBPixel[][] rightMatrix = rightImage.getRGBPixelMatrix();
+    int[] leftPixels = leftImage.packedRGB();
+    int[] rightPixels = rightImage.packedRGB();
 
     int height = leftImage.getHeight();
-    int newWidth = leftImage.getWidth() + rightImage.getWidth();
+    int leftWidth = leftImage.getWidth();
+    int rightWidth = rightImage.getWidth();
+    int newWidth = leftWidth + rightWidth + 1;
 
-    RGBPixel[][] newMatrix = new RGBPixel[height][newWidth + 1];
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < leftImage.getWidth(); j++) {
-        newMatrix[i][j] = leftMatrix[i][j];
-      }
-    }
+    int[] newPixels = new int[height * newWidth];
 
     for (int i = 0; i < height; i++) {
+      int offset = i * newWidth;
+      System.arraycopy(leftPixels, i * leftWidth, newPixels, offset, leftWidth);
       if (i % 3 == 0) {
-        newMatrix[i][leftImage.getWidth()] = new RGBPixel(255, 255, 255);
+        newPixels[offset + leftWidth] = 0xFFFFFF;
       } else {
-        newMatrix[i][leftImage.getWidth()] = new RGBPixel(255, 0, 255);
-      }
-    }
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < rightImage.getWidth(); j++) {
-        newMatrix[i][leftImage.getWidth() + 1 + j] = rightMatrix[i][j];
+        newPixels[offset + leftWidth] = 0xFF00FF;
       }
+      System.arraycopy(rightPixels, i * rightWidth, newPixels, offset + leftWidth + 1, rightWidth);
     }
 
-    return new RGBImage(height, newWidth + 1, newMatrix);
+    return new RGBImage(height, newWidth, newPixels);
   }
 
   @Override
   public void brightenImage(int amount, String name, String destImageName) {
-    Image image = getImage(name);
-    Image newImage = image.brighten(amount);
-    addImage(destImageName, newImage);
+    record(name, destImageName, Operations.brighten(amount));
   }
 
   @Override
   public void blurImage(String name, String destImageName) {
-    Image image = getImage(name);
-    Image newImage = image.blur();
-    addImage(destImageName, newImage);
+    record(name, destImageName, Operations.BLUR);
   }
 
   @Override
   public void sharpenImage(String name, String destImageName) {
-    Image image = getImage(name);
-    Image newImage = image.sharpen();
-    addImage(destImageName, newImage);
+    record(name, destImageName, Operations.SHARPEN);
+  }
+
+  @Override
+  public void filterImage(Kernel kernel, String name, String destImageName) {
+    record(name, destImageName, Operations.filter(kernel));
   }
 
   @Override
   public void sepiaImage(String name, String destImageName) {
-    Image image = getImage(name);
-    Image newImage = image.sepia();
-    addImage(destImageName, newImage);
+    record(name, destImageName, Operations.SEPIA);
   }
 
   @Override
   public void redComponent(String name, String destImageName) {
-    Image image = getImage(name);
-    Image newImage = image.getRedComponent();
-    addImage(destImageName, newImage);
+    record(name, destImageName, Operations.RED_COMPONENT);
   }
 
   @Override
   public void greenComponent(String name, String destImageName) {
-    Image image = getImage(name);
-    Image newImage = image.getGreenComponent();
-    addImage(destImageName, newImage);
+    record(name, destImageName, Operations.GREEN_COMPONENT);
   }
 
   @Override
   public void blueComponent(String name, String destImageName) {
-    Image image = getImage(name);
-    Image newImage = image.getBlueComponent();
-    addImage(destImageName, newImage);
+    record(name, destImageName, Operations.BLUE_COMPONENT);
   }
 
   @Override
   public void calculateValue(String name, String destImageName) {
-    Image image = getImage(name);
-    Image newImage = image.calculateValue();
-    addImage(destImageName, newImage);
+    record(name, destImageName, Operations.VALUE);
   }
 
   @Override
   public void calculateIntensity(String name, String destImageName) {
-    Image image = getImage(name);
-    Image newImage = image.calculateIntensity();
-    addImage(destImageName, newImage);
+    record(name, destImageName, Operations.INTENSITY);
   }
 
   @Override
   public void calculateLuma(String name, String destImageName) {
-    Image image = getImage(name);
-    Image newImage = image.calculateLuma();
-    addImage(destImageName, newImage);
+    record(name, destImageName, Operations.LUMA);
   }
 
   @Override
   public void horizontalFlip(String name, String destImageName) {
-    Image image = getImage(name);
-    Image newImage = image.horizontalFlip();
-    addImage(destImageName, newImage);
+    record(name, destImageName, Operations.HORIZONTAL_FLIP);
   }
 
   @Override
   public void verticalFlip(String name, String destImageName) {
-    Image image = getImage(name);
-    Image newImage = image.verticalFlip();
-    addImage(destImageName, newImage);
+    record(name, destImageName, Operations.VERTICAL_FLIP);
   }
 
   @Override
@@ -292,8 +518,11 @@ public class Model implements IModel {
 
   @Override
   public void ditherImage(String currImage, String currImage1) {
-    Image image = getImage(currImage);
-    Image newImage = image.dither();
-    addImage(currImage1, newImage);
+    record(currImage, currImage1, Operations.DITHER);
+  }
+
+  @Override
+  public void ditherImage(DitherMode mode, String name, String destImageName) {
+    record(name, destImageName, Operations.dither(mode));
   }
 }
@@ -0,0 +1,153 @@
+package model;
+
+/**
+ * An operation that creates a new image from a single source image. The model records operations
+ * as steps of a graph when it runs in lazy mode, and only applies them once a result is read.
+ *
+ * <p>Operations can also be evaluated on a band of columns only. Column {@code c} of the result of
+ * an operation with halo {@code h} only depends on columns {@code c - h} to {@code c + h} of the
+ * source, so the band is computed from a slightly wider band of the source.
+ */
+public interface Operation {
+  /**
+   * Applies the operation.
+   *
+   * @param image the source image
+   * @return the new image
+   */
+  Image apply(Image image);
+
+  /**
+   * Returns the number of source columns on each side that a result column depends on.
+   *
+   * @return the halo, or -1 if a result column can depend on any column of the source
+   */
+  default int halo() {
+    return -1;
+  }
+
+  /**
+   * Returns this operation with everything it derives from the whole source image, like the
+   * histogram used by color correction, computed from the given image. The returned operation
+   * gives the same result on any band of the image as this operation gives on the whole image.
+   *
+   * @param source the whole source image
+   * @return the bound operation
+   */
+  default Operation bind(Image source) {
+    return this;
+  }
+
+  /**
+   * Applies the operation and keeps a band of columns of the result, computing only that band and
+   * its halo where the operation allows it.
+   *
+   * @param image the source image
+   * @param startCol the first column of the band
+   * @param width the number of columns of the band
+   * @return the band of the result
+   */
+  default Image applyToColumns(Image image, int startCol, int width) {
+    int halo = this.halo();
+    if (halo < 0) {
+      return this.apply(image).getColumns(startCol, width);
+    }
+    int from = Math.max(0, startCol - halo);
+    int to = Math.min(image.getWidth(), startCol + width + halo);
+    Image band = this.bind(image).apply(image.getColumns(from, to - from));
+    return band.getColumns(startCol - from, width);
+  }
+
+  /**
+   * Returns the lookup table with the same effect as this operation on every image, if there is
+   * one. Consecutive operations with lookup tables are fused into one pass over the image.
+   *
+   * @return the lookup table, or null if the operation is not a point operation
+   */
+  default LookupTable asLookupTable() {
+    return null;
+  }
+
+  /**
+   * Returns the color matrix with the same effect as this operation on color images, if there is
+   * one. Consecutive operations with color matrices are fused into one matrix where that gives the
+   * same pixels.
+   *
+   * @return the color matrix, or null if the operation is not a color matrix
+   */
+  default ColorMatrix asColorMatrix() {
+    return null;
+  }
+
+  /**
+   * Creates an operation from a function whose result columns only depend on nearby columns.
+   *
+   * @param halo the number of source columns on each side that a result column depends on
+   * @param operation the function to apply
+   * @return the operation
+   */
+  static Operation local(int halo, Operation operation) {
+    return new Operation() {
+      @Override
+      public Image apply(Image image) {
+        return operation.apply(image);
+      }
+
+      @Override
+      public int halo() {
+        return halo;
+      }
+    };
+  }
+
+  /**
+   * Creates the operation that applies the given lookup table.
+   *
+   * @param table the lookup table
+   * @return the point operation
+   */
+  static Operation pointOperation(LookupTable table) {
+    return new Operation() {
+      @Override
+      public Image apply(Image image) {
+        return image.applyLookupTable(table);
+      }
+
+      @Override
+      public int halo() {
+        return 0;
+      }
+
+      @Override
+      public LookupTable asLookupTable() {
+        return table;
+      }
+    };
+  }
+
+  /**
+   * Creates an operation that has the same effect on color images as a color matrix.
+   *
+   * @param matrix the color matrix
+   * @param operation the function to apply, which maps color images with the matrix
+   * @return the operation
+   */
+  static Operation matrixOperation(ColorMatrix matrix, Operation operation) {
+    return new Operation() {
+      @Override
+      public Image apply(Image image) {
+        return operation.apply(image);
+      }
+
+      @Override
+      public int halo() {
+        return 0;
+      }
+
+      @Override
+      public ColorMatrix asColorMatrix() {
+        return matrix;
+      }
+    };
+  }
+}
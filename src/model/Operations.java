@@ -0,0 +1,129 @@
+package model;
+
+/**
+ * The operations of the model as {@link Operation} values, so they can be deferred, fused and
+ * evaluated on a band of columns.
+ */
+public final class Operations {
+  /** Blurs the image. */
+  public static final Operation BLUR = filter(Kernel.BLUR);
+
+  /** Sharpens the image. */
+  public static final Operation SHARPEN = filter(Kernel.SHARPEN);
+
+  /** Applies a sepia tone. */
+  public static final Operation SEPIA =
+      Operation.matrixOperation(ColorMatrix.SEPIA, Image::sepia);
+
+  /** Keeps the red component. */
+  public static final Operation RED_COMPONENT =
+      Operation.matrixOperation(ColorMatrix.RED, Image::getRedComponent);
+
+  /** Keeps the green component. */
+  public static final Operation GREEN_COMPONENT =
+      Operation.matrixOperation(ColorMatrix.GREEN, Image::getGreenComponent);
+
+  /** Keeps the blue component. */
+  public static final Operation BLUE_COMPONENT =
+      Operation.matrixOperation(ColorMatrix.BLUE, Image::getBlueComponent);
+
+  /** Computes the value component. */
+  public static final Operation VALUE = Operation.local(0, Image::calculateValue);
+
+  /** Computes the intensity component. */
+  public static final Operation INTENSITY = Operation.local(0, Image::calculateIntensity);
+
+  /** Computes the luma component. */
+  public static final Operation LUMA =
+      Operation.matrixOperation(ColorMatrix.LUMA, Image::calculateLuma);
+
+  /** Flips the image horizontally, which moves every column. */
+  public static final Operation HORIZONTAL_FLIP = Image::horizontalFlip;
+
+  /** Flips the image vertically, which keeps every column in place. */
+  public static final Operation VERTICAL_FLIP = Operation.local(0, Image::verticalFlip);
+
+  /** Dithers the image, spreading the error of every pixel to later rows and columns. */
+  public static final Operation DITHER = Image::dither;
+
+  /** Color corrects the image by aligning the peaks of the channel histograms. */
+  public static final Operation COLOR_CORRECT =
+      new Operation() {
+        @Override
+        public Image apply(Image image) {
+          return image.colorCorrect();
+        }
+
+        @Override
+        public int halo() {
+          return 0;
+        }
+
+        @Override
+        public Operation bind(Image source) {
+          LookupTable correction = source.colorCorrection();
+          return Operation.local(
+              0,
+              image -> {
+                int height = image.getHeight();
+                int width = image.getWidth();
+                int[] result = correction.apply(image.packedRGB(), height, width);
+                return new RGBImage(height, width, result);
+              });
+        }
+      };
+
+  private Operations() {}
+
+  /**
+   * Creates the operation that dithers the image.
+   *
+   * @param mode the way of dithering
+   * @return the operation
+   */
+  public static Operation dither(DitherMode mode) {
+    return mode == DitherMode.FLOYD_STEINBERG ? DITHER : image -> image.dither(mode);
+  }
+
+  /**
+   * Creates the operation that brightens the image.
+   *
+   * @param value the amount to brighten by, negative to darken
+   * @return the operation
+   */
+  public static Operation brighten(int value) {
+    return Operation.pointOperation(LookupTable.brighten(value));
+  }
+
+  /**
+   * Creates the operation that adjusts the levels of the image.
+   *
+   * @param black the black value
+   * @param mid the mid value
+   * @param white the white value
+   * @return the operation
+   */
+  public static Operation levelAdjust(int black, int mid, int white) {
+    return Operation.pointOperation(LookupTable.levelAdjust(black, mid, white));
+  }
+
+  /**
+   * Creates the operation that convolves the image with a kernel.
+   *
+   * @param kernel the kernel
+   * @return the operation
+   */
+  public static Operation filter(Kernel kernel) {
+    return Operation.local(kernel.getSize() / 2, image -> image.filter(kernel));
+  }
+
+  /**
+   * Creates the operation that compresses the image.
+   *
+   * @param factor the percentage of coefficients to drop
+   * @return the operation
+   */
+  public static Operation compress(int factor) {
+    return image -> image.compressImage(factor);
+  }
+}
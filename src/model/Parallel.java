@@ -0,0 +1,96 @@
+package model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Helper to split row-based pixel work across the common ForkJoinPool. Small images are processed
+ * on the calling thread, so the overhead of forking only applies where it pays off. Work running
+ * under a {@link Progress} reports every band it finishes and stops once it is cancelled.
+ */
+final class Parallel {
+  /** Minimum number of pixels handed to one task. */
+  private static final int MIN_PIXELS_PER_TASK = 1 << 15;
+
+  /** Work to perform on a band of consecutive rows. */
+  interface RowBand {
+    /**
+     * Processes the rows from startRow (inclusive) to endRow (exclusive).
+     *
+     * @param startRow the first row of the band
+     * @param endRow the row after the last row of the band
+     */
+    void apply(int startRow, int endRow);
+  }
+
+  private Parallel() {}
+
+  /**
+   * Runs the given work over all rows of an image, splitting the rows into bands that are
+   * processed in parallel. Bands never overlap, so the work may write its own rows of a shared
+   * output array without synchronization.
+   *
+   * @param height the number of rows of the image
+   * @param width the number of columns of the image
+   * @param band the work to perform on each band of rows
+   */
+  static void forRows(int height, int width, RowBand band) {
+    int grain = Math.max(1, MIN_PIXELS_PER_TASK / Math.max(1, width));
+    Progress progress = Progress.current();
+    if (height <= grain || ForkJoinPool.getCommonPoolParallelism() < 2) {
+      if (progress == null) {
+        band.apply(0, height);
+        return;
+      }
+      // still in bands, so that the progress moves and cancelling takes effect
+      RowBand tracked = track(band, progress, height);
+      for (int startRow = 0; startRow < height; startRow += grain) {
+        tracked.apply(startRow, Math.min(height, startRow + grain));
+      }
+      return;
+    }
+    if (progress != null) {
+      band = track(band, progress, height);
+    }
+    ForkJoinPool.commonPool().invoke(new RowTask(band, 0, height, grain));
+  }
+
+  private static RowBand track(RowBand band, Progress progress, int height) {
+    AtomicInteger done = new AtomicInteger();
+    return (startRow, endRow) -> {
+      progress.check();
+      // nested row loops would report their own rows as if they were the whole work
+      Progress.untracked(() -> band.apply(startRow, endRow));
+      progress.report(done.addAndGet(endRow - startRow), height);
+    };
+  }
+
+  /** Recursive task that halves its band of rows until it is small enough to process directly. */
+  private static final class RowTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final RowBand band;
+    private final int startRow;
+    private final int endRow;
+    private final int grain;
+
+    RowTask(RowBand band, int startRow, int endRow, int grain) {
+      this.band = band;
+      this.startRow = startRow;
+      this.endRow = endRow;
+      this.grain = grain;
+    }
+
+    @Override
+    protected void compute() {
+      if (endRow - startRow <= grain) {
+        band.apply(startRow, endRow);
+        return;
+      }
+      int mid = (startRow + endRow) >>> 1;
+      invokeAll(
+          new RowTask(band, startRow, mid, grain), new RowTask(band, mid, endRow, grain));
+    }
+  }
+}
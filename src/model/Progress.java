@@ -0,0 +1,116 @@
+package model;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * The progress of the pixel work run on a thread. While work runs through {@link #run(Runnable)},
+ * the row loops of the images it processes report how many rows they have done, and stop with a
+ * {@link CancellationException} at their next band of rows once the work has been cancelled.
+ */
+public final class Progress {
+  /** Receives the progress of a row loop. */
+  public interface Listener {
+    /**
+     * Called when the share of the rows done by a row loop changes. Work that loops over the
+     * rows more than once starts from 0 for every loop.
+     *
+     * @param percent the percentage of the rows done, from 0 to 100
+     */
+    void update(int percent);
+  }
+
+  private static final ThreadLocal<Progress> CURRENT = new ThreadLocal<>();
+
+  private final Listener listener;
+  private volatile boolean cancelled;
+  private int percent = -1;
+
+  /**
+   * Creates the progress of a piece of work.
+   *
+   * @param listener receives the progress, possibly from several threads at once
+   */
+  public Progress(Listener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Runs work on the calling thread, reporting the progress of its row loops to the listener.
+   *
+   * @param work the work to run
+   * @throws CancellationException if the work is cancelled before it is done
+   */
+  public void run(Runnable work) {
+    Progress previous = CURRENT.get();
+    CURRENT.set(this);
+    try {
+      this.check();
+      work.run();
+    } finally {
+      CURRENT.set(previous);
+    }
+  }
+
+  /** Cancels the work, which stops at its next band of rows. */
+  public void cancel() {
+    this.cancelled = true;
+  }
+
+  /**
+   * Tells whether the work has been cancelled.
+   *
+   * @return true if the work has been cancelled
+   */
+  public boolean isCancelled() {
+    return this.cancelled;
+  }
+
+  /**
+   * Gets the progress of the work running on the calling thread.
+   *
+   * @return the progress, or null if the thread is not running tracked work
+   */
+  static Progress current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Runs work on the calling thread with no progress, such as a row loop nested in a band of
+   * another row loop, which already reports the rows of both.
+   *
+   * @param work the work to run
+   */
+  static void untracked(Runnable work) {
+    Progress previous = CURRENT.get();
+    CURRENT.remove();
+    try {
+      work.run();
+    } finally {
+      CURRENT.set(previous);
+    }
+  }
+
+  /** Throws a {@link CancellationException} if the work has been cancelled. */
+  void check() {
+    if (this.cancelled) {
+      throw new CancellationException("Operation cancelled.");
+    }
+  }
+
+  /**
+   * Reports the rows done by a row loop.
+   *
+   * @param done the number of rows done
+   * @param total the number of rows of the loop
+   */
+  void report(int done, int total) {
+    int percent = (int) (100L * done / Math.max(1, total));
+    synchronized (this) {
+      if (percent == this.percent) {
+        return;
+      }
+      this.percent = percent;
+    }
+    this.listener.update(percent);
+  }
+}
@@ -1,18 +1,17 @@
 package model;
 
-import java.awt.image.BufferedImage;
-import java.awt.Color;
-import java.awt.Graphics2D;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Objects;
-import java.util.HashMap;
-import java.util.TreeSet;
 
-/** Represents an image with RGB pixels. Extends Image to implement all the processing methods. */
+/**
+ * Represents an image with RGB pixels. Extends Image to implement all the processing methods.
+ *
+ * <p>Pixels are stored in a single packed {@code int[]} in row-major order, one {@code 0xRRGGBB}
+ * value per pixel, with a row stride equal to the width of the image. The {@link RGBPixel} view of
+ * a pixel is only created on request through {@link #getPixelRGB(int, int)}.
+ */
 public class RGBImage extends Image {
-  private RGBPixel[][] pixels;
+  private final int[] pixels;
 
   /**
    * Constructs an RGBImage with the given height, width, and a pre-determined matrix of pixels.
@@ -23,6 +22,30 @@ public class RGBImage extends Image {
    */
   public RGBImage(int height, int width, RGBPixel[][] pixels) {
     super(height, width);
+    this.pixels = new int[height * width];
+    for (int row = 0; row < this.height; row++) {
+      int offset = row * this.width;
+      for (int col = 0; col < this.width; col++) {
+        RGBPixel pixel = pixels[row][col];
+        this.pixels[offset + col] =
+            pack(pixel.getRedComponent(), pixel.getGreenComponent(), pixel.getBlueComponent());
+      }
+    }
+  }
+
+  /**
+   * Constructs an RGBImage with the given height, width, and packed pixels. Each pixel is a {@code
+   * 0xRRGGBB} value, stored in row-major order. The array is used as is and not copied.
+   *
+   * @param height the height of the image
+   * @param width the width of the image
+   * @param pixels the packed pixels of the image
+   */
+  public RGBImage(int height, int width, int[] pixels) {
+    super(height, width);
+    if (pixels.length != height * width) {
+      throw new IllegalArgumentException("Pixel data does not match the image dimensions.");
+    }
     this.pixels = pixels;
   }
 
@@ -34,12 +57,7 @@ public class RGBImage extends Image {
    */
   public RGBImage(int height, int width) {
     super(height, width);
-    this.pixels = new RGBPixel[height][width];
-    for (int row = 0; row < this.height; row++) {
-      for (int col = 0; col < this.width; col++) {
-        this.pixels[row][col] = new RGBPixel();
-      }
-    }
+    this.pixels = new int[height * width];
   }
 
   /**
@@ -52,55 +70,79 @@ public class RGBImage extends Image {
    */
   public RGBImage(Image red, Image green, Image blue) {
     super(red.getHeight(), red.getWidth());
-    this.pixels = new RGBPixel[red.getHeight()][red.getWidth()];
+    this.pixels = new int[this.height * this.width];
     for (int row = 0; row < this.height; row++) {
+      int offset = row * this.width;
       for (int col = 0; col < this.width; col++) {
-        this.pixels[row][col] =
-            new RGBPixel(red.getPixel(row, col), green.getPixel(row, col), blue.getPixel(row, col));
+        this.pixels[offset + col] =
+            pack(
+                clamp(red.getPixel(row, col)),
+                clamp(green.getPixel(row, col)),
+                clamp(blue.getPixel(row, col)));
       }
     }
   }
 
-  @Override
-  public Image horizontalFlip() {
-    Image newImage = new RGBImage(this.height, this.width);
-    for (int row = 0; row < this.height; row++) {
-      for (int col = 0; col < (this.width / 2) + 1; col++) {
-        // Swap the pixels on opposite sides of the middle column
+  /**
+   * Packs the given components into a single {@code 0xRRGGBB} value. Components must already be
+   * within 0-255.
+   *
+   * @param red red component
+   * @param green green component
+   * @param blue blue component
+   * @return the packed pixel
+   */
+  static int pack(int red, int green, int blue) {
+    return (red << 16) | (green << 8) | blue;
+  }
 
-        // get the pixels
-        RGBPixel pixel1 = this.pixels[row][col];
-        RGBPixel pixel2 = this.pixels[row][this.width - col - 1];
+  static int red(int pixel) {
+    return (pixel >> 16) & 0xFF;
+  }
 
-        // set the pixels
+  static int green(int pixel) {
+    return (pixel >> 8) & 0xFF;
+  }
 
-        newImage.setPixelRGB(row, col, pixel2);
-        newImage.setPixelRGB(row, this.width - col - 1, pixel1);
-      }
-    }
+  static int blue(int pixel) {
+    return pixel & 0xFF;
+  }
 
-    return newImage;
+  static int clamp(int value) {
+    return Math.max(0, Math.min(255, value));
   }
 
   @Override
-  public Image verticalFlip() {
-    Image newImage = new RGBImage(this.height, this.width);
-
-    for (int row = 0; row < (this.height / 2) + 1; row++) {
-      for (int col = 0; col < this.width; col++) {
-        // Swap the pixels on opposite sides of the middle row
+  int[] packedRGB() {
+    return this.pixels;
+  }
 
-        // Get the pixels
-        RGBPixel pixel1 = this.pixels[row][col];
-        RGBPixel pixel2 = this.pixels[this.height - row - 1][col];
+  @Override
+  public int[] getPackedPixels() {
+    return this.pixels.clone();
+  }
 
-        // Set the pixels
-        newImage.setPixelRGB(row, col, pixel2);
-        newImage.setPixelRGB(this.height - row - 1, col, pixel1);
+  @Override
+  public Image horizontalFlip() {
+    int[] flipped = new int[this.pixels.length];
+    for (int row = 0; row < this.height; row++) {
+      int offset = row * this.width;
+      int last = offset + this.width - 1;
+      for (int col = 0; col < this.width; col++) {
+        flipped[offset + col] = this.pixels[last - col];
       }
     }
+    return new RGBImage(this.height, this.width, flipped).deriveHistogram(this, h -> h);
+  }
 
-    return newImage;
+  @Override
+  public Image verticalFlip() {
+    int[] flipped = new int[this.pixels.length];
+    for (int row = 0; row < this.height; row++) {
+      System.arraycopy(
+          this.pixels, (this.height - row - 1) * this.width, flipped, row * this.width, this.width);
+    }
+    return new RGBImage(this.height, this.width, flipped).deriveHistogram(this, h -> h);
   }
 
   @Override
@@ -110,7 +152,9 @@ public class RGBImage extends Image {
 
   @Override
   protected void setPixelRGB(int row, int col, RGBPixel pixel) {
-    this.pixels[row][col] = pixel;
+    this.pixels[row * this.width + col] =
+        pack(pixel.getRedComponent(), pixel.getGreenComponent(), pixel.getBlueComponent());
+    this.invalidate();
   }
 
   @Override
@@ -120,7 +164,8 @@ public class RGBImage extends Image {
 
   @Override
   public RGBPixel getPixelRGB(int row, int col) {
-    return this.pixels[row][col];
+    int pixel = this.pixels[row * this.width + col];
+    return new RGBPixel(red(pixel), green(pixel), blue(pixel));
   }
 
   @Override
@@ -135,623 +180,363 @@ public class RGBImage extends Image {
     if (this.height != other.height || this.width != other.width) {
       return false;
     }
-    for (int row = 0; row < this.height; row++) {
-      for (int col = 0; col < this.width; col++) {
-        RGBPixel thisPixel = this.pixels[row][col];
-        RGBPixel otherPixel = other.pixels[row][col];
-
-        // Compare red, green, and blue values for each pixel
-        if (thisPixel.getRedComponent() != otherPixel.getRedComponent()
-            || thisPixel.getGreenComponent() != otherPixel.getGreenComponent()
-            || thisPixel.getBlueComponent() != otherPixel.getBlueComponent()) {
-          //          System.out.println("Pixel values not equal at (" + row + ", " + col + ")");
-          return false;
-        }
-      }
-    }
-    return true;
+    return Arrays.equals(this.pixels, other.pixels);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(this.height, this.width, this.pixels);
+    return Objects.hash(this.height, this.width, Arrays.hashCode(this.pixels));
   }
 
   @Override
   public Image brighten(int value) {
-    Image newImage = new RGBImage(this.height, this.width);
-    if (value > 0) {
-      this.brightenImage(value, newImage);
-    } else {
-      this.darkenImage(value, newImage);
-    }
-    return newImage;
-  }
-
-  private void brightenImage(int value, Image newImage) {
-    for (int row = 0; row < this.height; row++) {
-      for (int col = 0; col < this.width; col++) {
-        int redComponent = Math.min(255, this.getPixelRGB(row, col).getRedComponent() + value);
-        int greenComponent = Math.min(255, this.getPixelRGB(row, col).getGreenComponent() + value);
-        int blueComponent = Math.min(255, this.getPixelRGB(row, col).getBlueComponent() + value);
-        RGBPixel modifiedPixel = new RGBPixel(redComponent, greenComponent, blueComponent);
-        newImage.setPixelRGB(row, col, modifiedPixel);
-      }
-    }
+    return this.applyLookupTable(LookupTable.brighten(value));
   }
 
-  private void darkenImage(int value, Image newImage) {
-    for (int row = 0; row < this.height; row++) {
-      for (int col = 0; col < this.width; col++) {
-        int redComponent = Math.max(0, this.getPixelRGB(row, col).getRedComponent() + value);
-        int greenComponent = Math.max(0, this.getPixelRGB(row, col).getGreenComponent() + value);
-        int blueComponent = Math.max(0, this.getPixelRGB(row, col).getBlueComponent() + value);
-        RGBPixel modifiedPixel = new RGBPixel(redComponent, greenComponent, blueComponent);
-        newImage.setPixelRGB(row, col, modifiedPixel);
-      }
-    }
+  @Override
+  public Image applyLookupTable(LookupTable table) {
+    int[] result = table.apply(this.pixels, this.height, this.width);
+    return new RGBImage(this.height, this.width, result).deriveHistogram(this, h -> h.map(table));
   }
 
   @Override
   public Image blur() {
-    Image newImage = new RGBImage(this.height, this.width);
-
-    double[][] kernel = {
-      {0.0625, 0.125, 0.0625},
-      {0.125, 0.25, 0.125},
-      {0.0625, 0.125, 0.0625}
-    };
-    this.applyFilter(kernel, newImage);
-    return newImage;
-  }
-
-  /**
-   * Helper method to apply a filter of a specific kernel to an image.
-   *
-   * @param kernel the kernel to apply
-   * @param newImage the new image to apply the kernel to
-   */
-  private void applyFilter(double[][] kernel, Image newImage) {
-    int padding = (kernel.length - 1) / 2;
-    Image paddedImage = new RGBImage(this.height + 2 * padding, this.width + 2 * padding);
-    for (int row = padding; row < this.height + padding; row++) {
-      for (int col = padding; col < this.width + padding; col++) {
-        paddedImage.setPixelRGB(row, col, this.getPixelRGB(row - padding, col - padding));
-      }
-    }
-
-    for (int row = 0; row < newImage.height; row++) {
-      for (int col = 0; col < newImage.width; col++) {
-        double filteredSumRed = 0;
-        double filteredSumGreen = 0;
-        double filteredSumBlue = 0;
-
-        for (int kernelRow = 0; kernelRow < kernel.length; kernelRow++) {
-          for (int kernelCol = 0; kernelCol < kernel.length; kernelCol++) {
-            int currRow = row + kernelRow;
-            int currCol = col + kernelCol;
-
-            filteredSumRed +=
-                paddedImage.getPixelRGB(currRow, currCol).getRedComponent()
-                    * kernel[kernelRow][kernelCol];
-
-            filteredSumGreen +=
-                paddedImage.getPixelRGB(currRow, currCol).getGreenComponent()
-                    * kernel[kernelRow][kernelCol];
-
-            filteredSumBlue +=
-                paddedImage.getPixelRGB(currRow, currCol).getBlueComponent()
-                    * kernel[kernelRow][kernelCol];
-          }
-        }
-        filteredSumRed = Math.max(0, Math.min(255, filteredSumRed));
-        filteredSumGreen = Math.max(0, Math.min(255, filteredSumGreen));
-        filteredSumBlue = Math.max(0, Math.min(255, filteredSumBlue));
-
-        RGBPixel pixel =
-            new RGBPixel((int) filteredSumRed, (int) filteredSumGreen, (int) filteredSumBlue);
-        newImage.setPixelRGB(row, col, pixel);
-      }
-    }
+    return this.filter(Kernel.BLUR);
   }
 
   @Override
   public Image sharpen() {
-    Image newImage = new RGBImage(this.height, this.width);
+    return this.filter(Kernel.SHARPEN);
+  }
 
-    double[][] kernel = {
-      {-0.125, -0.125, -0.125, -0.125, -0.125},
-      {-0.125, 0.25, 0.25, 0.25, -0.125},
-      {-0.125, 0.25, 1.0, 0.25, -0.125},
-      {-0.125, 0.25, 0.25, 0.25, -0.125},
-      {-0.125, -0.125, -0.125, -0.125, -0.125}
-    };
-    this.applyFilter(kernel, newImage);
-    return newImage;
+  @Override
+  public Image filter(Kernel kernel) {
+    int[] result = kernel.compile().apply(this.pixels, this.height, this.width);
+    return new RGBImage(this.height, this.width, result);
   }
 
   @Override
   public Image sepia() {
-    Image sepiaImage = new RGBImage(this.getHeight(), this.getWidth());
-
-    for (int row = 0; row < this.getHeight(); row++) {
-      for (int col = 0; col < this.getWidth(); col++) {
-        int red =
-            (int)
-                (0.393 * this.getPixelRGB(row, col).getRedComponent()
-                    + 0.769 * this.getPixelRGB(row, col).getGreenComponent()
-                    + 0.189 * this.getPixelRGB(row, col).getBlueComponent());
-        int green =
-            (int)
-                (0.349 * this.getPixelRGB(row, col).getRedComponent()
-                    + 0.686 * this.getPixelRGB(row, col).getGreenComponent()
-                    + 0.168 * this.getPixelRGB(row, col).getBlueComponent());
-        int blue =
-            (int)
-                (0.272 * this.getPixelRGB(row, col).getRedComponent()
-                    + 0.534 * this.getPixelRGB(row, col).getGreenComponent()
-                    + 0.131 * this.getPixelRGB(row, col).getBlueComponent());
-
-        red = Math.min(255, red);
-        green = Math.min(255, green);
-        blue = Math.min(255, blue);
-
-        RGBPixel pixel = new RGBPixel(red, green, blue);
-        sepiaImage.setPixelRGB(row, col, pixel);
-      }
+    return this.colorMatrix(ColorMatrix.SEPIA);
+  }
+
+  @Override
+  public Image colorMatrix(ColorMatrix matrix) {
+    if (matrix.isDiagonal()) {
+      return this.applyLookupTable(matrix.asLookupTable());
+    }
+    if (matrix.isGray()) {
+      byte[] result = matrix.applyGray(this.pixels, this.height, this.width);
+      return new GrayScaleImage(this.height, this.width, result);
     }
-    return sepiaImage;
+    int[] result = matrix.apply(this.pixels, this.height, this.width);
+    return new RGBImage(this.height, this.width, result);
   }
 
   @Override
   public Image getRedComponent() {
-    Image redImage = new RGBImage(this.getHeight(), this.getWidth());
-
-    for (int row = 0; row < this.getHeight(); row++) {
-      for (int col = 0; col < this.getWidth(); col++) {
-        int red = this.getPixelRGB(row, col).getRedComponent();
-        int green = 0;
-        int blue = 0;
-
-        RGBPixel pixel = new RGBPixel(red, green, blue);
-        redImage.setPixelRGB(row, col, pixel);
-      }
-    }
-    return redImage;
+    return this.colorMatrix(ColorMatrix.RED);
   }
 
   @Override
   public Image getGreenComponent() {
-    Image greenImage = new RGBImage(this.getHeight(), this.getWidth());
-
-    for (int row = 0; row < this.getHeight(); row++) {
-      for (int col = 0; col < this.getWidth(); col++) {
-        int red = 0;
-        int green = this.getPixelRGB(row, col).getGreenComponent();
-        int blue = 0;
-
-        RGBPixel pixel = new RGBPixel(red, green, blue);
-        greenImage.setPixelRGB(row, col, pixel);
-      }
-    }
-    return greenImage;
+    return this.colorMatrix(ColorMatrix.GREEN);
   }
 
   @Override
   public Image getBlueComponent() {
-    Image blueImage = new RGBImage(this.getHeight(), this.getWidth());
-
-    for (int row = 0; row < this.getHeight(); row++) {
-      for (int col = 0; col < this.getWidth(); col++) {
-        int red = 0;
-        int green = 0;
-        int blue = this.getPixelRGB(row, col).getBlueComponent();
-
-        RGBPixel pixel = new RGBPixel(red, green, blue);
-        blueImage.setPixelRGB(row, col, pixel);
-      }
-    }
-    return blueImage;
+    return this.colorMatrix(ColorMatrix.BLUE);
   }
 
   @Override
   public Image calculateValue() {
-    Image valueImage = new GrayScaleImage(this.getHeight(), this.getWidth());
-    for (int row = 0; row < this.getHeight(); row++) {
-      for (int col = 0; col < this.getWidth(); col++) {
-        int red = this.getPixelRGB(row, col).getRedComponent();
-        int green = this.getPixelRGB(row, col).getGreenComponent();
-        int blue = this.getPixelRGB(row, col).getBlueComponent();
-        int value = Math.max(red, Math.max(green, blue));
-
-        valueImage.setPixel(row, col, value);
-      }
+    byte[] result = new byte[this.pixels.length];
+    for (int i = 0; i < this.pixels.length; i++) {
+      int pixel = this.pixels[i];
+      int value = Math.max(red(pixel), Math.max(green(pixel), blue(pixel)));
+      result[i] = (byte) value;
     }
-    return valueImage;
+    return new GrayScaleImage(this.height, this.width, result);
   }
 
   @Override
   public Image calculateIntensity() {
-    Image intensityImage = new GrayScaleImage(this.getHeight(), this.getWidth());
-    for (int row = 0; row < this.getHeight(); row++) {
-      for (int col = 0; col < this.getWidth(); col++) {
-        int red = this.getPixelRGB(row, col).getRedComponent();
-        int green = this.getPixelRGB(row, col).getGreenComponent();
-        int blue = this.getPixelRGB(row, col).getBlueComponent();
-        int value = (int) (red + green + blue) / 3;
-
-        intensityImage.setPixel(row, col, value);
-      }
+    return new GrayScaleImage(this.height, this.width, this.intensity());
+  }
+
+  private byte[] intensity() {
+    byte[] result = new byte[this.pixels.length];
+    for (int i = 0; i < this.pixels.length; i++) {
+      int pixel = this.pixels[i];
+      int value = (red(pixel) + green(pixel) + blue(pixel)) / 3;
+      result[i] = (byte) value;
     }
-    return intensityImage;
+    return result;
   }
 
   @Override
   public Image calculateLuma() {
-    Image lumaImage = new GrayScaleImage(this.getHeight(), this.getWidth());
-    for (int row = 0; row < this.getHeight(); row++) {
-      for (int col = 0; col < this.getWidth(); col++) {
-        int red = this.getPixelRGB(row, col).getRedComponent();
-        int green = this.getPixelRGB(row, col).getGreenComponent();
-        int blue = this.getPixelRGB(row, col).getBlueComponent();
-        int value = (int) (0.2126 * red + 0.7152 * green + 0.0722 * blue);
-
-        lumaImage.setPixel(row, col, value);
-      }
-    }
-    return lumaImage;
+    return this.colorMatrix(ColorMatrix.LUMA);
   }
 
   @Override
   public Image combineRGBComponents(Image greenImage, Image blueImage) {
-    Image newImage = new RGBImage(this.getHeight(), this.getWidth());
-    for (int row = 0; row < this.getHeight(); row++) {
-      for (int col = 0; col < this.getWidth(); col++) {
-
-        int red = this.getPixelRGB(row, col).getRedComponent();
-        int green = greenImage.getPixelRGB(row, col).getGreenComponent();
-        int blue = blueImage.getPixelRGB(row, col).getBlueComponent();
-
-        RGBPixel pixel = new RGBPixel(red, green, blue);
-        newImage.setPixelRGB(row, col, pixel);
+    int[] result = new int[this.pixels.length];
+    for (int row = 0; row < this.height; row++) {
+      int offset = row * this.width;
+      for (int col = 0; col < this.width; col++) {
+        int red = this.pixels[offset + col] & 0xFF0000;
+        int green = componentOf(greenImage, row, col) & 0x00FF00;
+        int blue = componentOf(blueImage, row, col) & 0x0000FF;
+        result[offset + col] = red | green | blue;
       }
     }
-    return newImage;
+    return new RGBImage(this.height, this.width, result);
   }
 
-  @Override
-  public Image getLeftPercentageOfImage(int percentage) {
-    int height = this.getHeight();
-    int newWidth = (int) (this.getWidth() * (percentage / 100.0));
-    RGBPixel[][] newMatrix = new RGBPixel[height][newWidth];
-
-    for (int i = 0; i < height; i++) {
-      System.arraycopy(this.pixels[i], 0, newMatrix[i], 0, newWidth);
+  /**
+   * Helper method to read a packed pixel of any image, following the semantics of {@link
+   * Image#getPixelRGB(int, int)}.
+   */
+  private static int componentOf(Image image, int row, int col) {
+    if (image instanceof RGBImage) {
+      return ((RGBImage) image).pixels[row * image.getWidth() + col];
     }
+    RGBPixel pixel = image.getPixelRGB(row, col);
+    return pack(pixel.getRedComponent(), pixel.getGreenComponent(), pixel.getBlueComponent());
+  }
 
-    return new RGBImage(height, newWidth, newMatrix);
+  @Override
+  public Image getLeftPercentageOfImage(int percentage) {
+    int newWidth = (int) (this.width * (percentage / 100.0));
+    return this.getColumns(0, newWidth);
   }
 
   @Override
   public Image getRightPercentageOfImage(int percentage) {
-    int height = this.getHeight();
-    int width = this.getWidth();
-    int newWidth = width * percentage / 100;
-    int startCol = width - newWidth;
-    RGBPixel[][] newMatrix = new RGBPixel[height][newWidth];
-
-    for (int i = 0; i < height; i++) {
-      System.arraycopy(this.pixels[i], startCol, newMatrix[i], 0, newWidth);
-    }
+    int newWidth = this.width * percentage / 100;
+    return this.getColumns(this.width - newWidth, newWidth);
+  }
 
-    return new RGBImage(height, newWidth, newMatrix);
+  @Override
+  public Image getColumns(int startCol, int newWidth) {
+    int[] newPixels = new int[this.height * newWidth];
+    for (int row = 0; row < this.height; row++) {
+      int offset = row * this.width + startCol;
+      System.arraycopy(this.pixels, offset, newPixels, row * newWidth, newWidth);
+    }
+    Image columns = new RGBImage(this.height, newWidth, newPixels);
+    if (2 * newWidth <= this.width) {
+      return columns;
+    }
+    // counting the columns cropped away is cheaper than counting the columns kept
+    int endCol = startCol + newWidth;
+    return columns.deriveHistogram(
+        this,
+        h -> {
+          Histogram left = Histogram.ofColumns(this.pixels, this.height, this.width, 0, startCol);
+          Histogram right =
+              Histogram.ofColumns(this.pixels, this.height, this.width, endCol, this.width);
+          return h.minus(left).minus(right);
+        });
   }
 
   @Override
-  public RGBPixel[][] getRGBPixelMatrix() {
-    return this.pixels;
+  public Image downscale(int factor) {
+    if (factor < 1) {
+      throw new IllegalArgumentException("Factor has to be at least 1.");
+    }
+    if (factor == 2) {
+      return this.getLevel(1);
+    }
+    int newHeight = (this.height + factor - 1) / factor;
+    int newWidth = (this.width + factor - 1) / factor;
+    int[] result = new int[newHeight * newWidth];
+    Parallel.forRows(
+        newHeight,
+        this.width * factor,
+        (startRow, endRow) -> {
+          int[] sums = new int[3 * newWidth];
+          for (int row = startRow; row < endRow; row++) {
+            Arrays.fill(sums, 0);
+            int top = row * factor;
+            int bottom = Math.min(this.height, top + factor);
+            for (int r = top; r < bottom; r++) {
+              int offset = r * this.width;
+              for (int col = 0; col < this.width; col++) {
+                int pixel = this.pixels[offset + col];
+                int block = 3 * (col / factor);
+                sums[block] += (pixel >> 16) & 0xFF;
+                sums[block + 1] += (pixel >> 8) & 0xFF;
+                sums[block + 2] += pixel & 0xFF;
+              }
+            }
+            for (int col = 0; col < newWidth; col++) {
+              int right = Math.min(this.width, (col + 1) * factor);
+              int count = (bottom - top) * (right - col * factor);
+              int red = (sums[3 * col] + count / 2) / count;
+              int green = (sums[3 * col + 1] + count / 2) / count;
+              int blue = (sums[3 * col + 2] + count / 2) / count;
+              result[row * newWidth + col] = pack(red, green, blue);
+            }
+          }
+        });
+    return new RGBImage(newHeight, newWidth, result);
   }
 
-  private GrayScaleImage[] splitChannel() {
-    GrayScaleImage redChannel = new GrayScaleImage(this.getHeight(), this.getWidth());
-    GrayScaleImage greenChannel = new GrayScaleImage(this.getHeight(), this.getWidth());
-    GrayScaleImage blueChannel = new GrayScaleImage(this.getHeight(), this.getWidth());
+  @Override
+  Image halve() {
+    int newHeight = (this.height + 1) / 2;
+    int newWidth = (this.width + 1) / 2;
+    int[] result = new int[newHeight * newWidth];
+    Parallel.forRows(
+        newHeight,
+        2 * this.width,
+        (startRow, endRow) -> {
+          for (int row = startRow; row < endRow; row++) {
+            int top = 2 * row * this.width;
+            int bottom = 2 * row + 1 < this.height ? top + this.width : top;
+            for (int col = 0; col < newWidth; col++) {
+              // a missing last column or row counts its neighbour twice, which averages the same
+              int left = 2 * col;
+              int right = left + 1 < this.width ? left + 1 : left;
+              int a = this.pixels[top + left];
+              int b = this.pixels[top + right];
+              int c = this.pixels[bottom + left];
+              int d = this.pixels[bottom + right];
+              // red and blue are summed side by side, as 4 values fit in 10 bits
+              int redBlue =
+                  (a & 0xFF00FF) + (b & 0xFF00FF) + (c & 0xFF00FF) + (d & 0xFF00FF) + 0x020002;
+              int green = (a & 0xFF00) + (b & 0xFF00) + (c & 0xFF00) + (d & 0xFF00) + 0x0200;
+              result[row * newWidth + col] = ((redBlue >> 2) & 0xFF00FF) | ((green >> 2) & 0xFF00);
+            }
+          }
+        });
+    return new RGBImage(newHeight, newWidth, result);
+  }
 
-    for (int row = 0; row < this.getHeight(); row++) {
-      for (int col = 0; col < this.getWidth(); col++) {
-        int red = this.getPixelRGB(row, col).getRedComponent();
-        int green = this.getPixelRGB(row, col).getGreenComponent();
-        int blue = this.getPixelRGB(row, col).getBlueComponent();
+  @Override
+  Image sample(int newHeight, int newWidth) {
+    int[] rows = sampling(this.height, newHeight);
+    int[] cols = sampling(this.width, newWidth);
+    int[] result = new int[newHeight * newWidth];
+    Parallel.forRows(
+        newHeight,
+        newWidth,
+        (startRow, endRow) -> {
+          for (int row = startRow; row < endRow; row++) {
+            int top = rows[3 * row] * this.width;
+            int bottom = rows[3 * row + 1] * this.width;
+            int y = rows[3 * row + 2];
+            for (int col = 0; col < newWidth; col++) {
+              int left = cols[3 * col];
+              int right = cols[3 * col + 1];
+              int x = cols[3 * col + 2];
+              int a = this.pixels[top + left];
+              int b = this.pixels[top + right];
+              int c = this.pixels[bottom + left];
+              int d = this.pixels[bottom + right];
+              int pixel = 0;
+              for (int shift = 16; shift >= 0; shift -= 8) {
+                int value =
+                    interpolate(
+                        (a >> shift) & 0xFF,
+                        (b >> shift) & 0xFF,
+                        (c >> shift) & 0xFF,
+                        (d >> shift) & 0xFF,
+                        x,
+                        y);
+                pixel |= value << shift;
+              }
+              result[row * newWidth + col] = pixel;
+            }
+          }
+        });
+    return new RGBImage(newHeight, newWidth, result);
+  }
 
-        redChannel.setPixel(row, col, red);
-        greenChannel.setPixel(row, col, green);
-        blueChannel.setPixel(row, col, blue);
+  @Override
+  public RGBPixel[][] getRGBPixelMatrix() {
+    RGBPixel[][] matrix = new RGBPixel[this.height][this.width];
+    for (int row = 0; row < this.height; row++) {
+      for (int col = 0; col < this.width; col++) {
+        matrix[row][col] = this.getPixelRGB(row, col);
       }
     }
-    GrayScaleImage[] channels = {redChannel, greenChannel, blueChannel};
-    return channels;
+    return matrix;
   }
 
   @Override
   public Image getHistogram() {
-    GrayScaleImage[] channels = this.splitChannel();
-    List<Integer> redValuesList = new ArrayList<>();
-    List<Integer> greenValuesList = new ArrayList<>();
-    List<Integer> blueValuesList = new ArrayList<>();
-
-    for (int ch = 0; ch < 3; ch++) {
-      for (int i = 0; i < channels[ch].getHeight(); i++) {
-        for (int j = 0; j < channels[ch].getWidth(); j++) {
-          if (ch == 0) {
-            redValuesList.add(channels[ch].getPixel(i, j));
-          } else if (ch == 1) {
-            greenValuesList.add(channels[ch].getPixel(i, j));
-          } else {
-            blueValuesList.add(channels[ch].getPixel(i, j));
-          }
-        }
-      }
-    }
-
-    Map<Integer, Integer> redFrequencyMap = getFrequency(redValuesList);
-    Map<Integer, Integer> greenFrequencyMap = getFrequency(greenValuesList);
-    Map<Integer, Integer> blueFrequencyMap = getFrequency(blueValuesList);
-
-    double[][] normalizedData =
-        getNormalizedColorData(redFrequencyMap, greenFrequencyMap, blueFrequencyMap);
-
-    double[] normalizedRed = normalizedData[0];
-    double[] normalizedGreen = normalizedData[1];
-    double[] normalizedBlue = normalizedData[2];
-
-    int width = 256;
-    int height = 256;
-    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-
-    Graphics2D g2d = image.createGraphics();
-    drawGrid(g2d, width, height);
-    plotNormalizedData(g2d, normalizedRed, Color.RED, width, height);
-    plotNormalizedData(g2d, normalizedGreen, Color.GREEN, width, height);
-    plotNormalizedData(g2d, normalizedBlue, Color.BLUE, width, height);
-
-    g2d.dispose();
-
-    Image newImage = new RGBImage(image.getHeight(), image.getWidth());
-
-    for (int i = 0; i < newImage.getHeight(); i++) {
-      for (int j = 0; j < newImage.getWidth(); j++) {
-        Color color = new Color(image.getRGB(j, i));
-        newImage.setPixelRGB(i, j, new RGBPixel(color.getRed(), color.getGreen(), color.getBlue()));
-      }
-    }
+    return this.histogram().render();
+  }
 
-    return newImage;
+  @Override
+  Histogram computeHistogram() {
+    return Histogram.of(this.pixels, this.height, this.width);
   }
 
   @Override
   public Image colorCorrect() {
-    GrayScaleImage[] channels = this.splitChannel();
-    List<Integer> redValuesList = new ArrayList<>();
-    List<Integer> greenValuesList = new ArrayList<>();
-    List<Integer> blueValuesList = new ArrayList<>();
-
-    for (int ch = 0; ch < 3; ch++) {
-      for (int i = 0; i < channels[ch].getHeight(); i++) {
-        for (int j = 0; j < channels[ch].getWidth(); j++) {
-          if (ch == 0) {
-            redValuesList.add(channels[ch].getPixel(i, j));
-          } else if (ch == 1) {
-            greenValuesList.add(channels[ch].getPixel(i, j));
-          } else {
-            blueValuesList.add(channels[ch].getPixel(i, j));
-          }
-        }
-      }
-    }
-
-    Map<Integer, Integer> redFrequencyMap = getFrequency(redValuesList);
-    Map<Integer, Integer> greenFrequencyMap = getFrequency(greenValuesList);
-    Map<Integer, Integer> blueFrequencyMap = getFrequency(blueValuesList);
-
-    int[] dataRed = new int[256];
-    int[] dataGreen = new int[256];
-    int[] dataBlue = new int[256];
-
-    for (int i = 0; i < 256; i++) {
-      dataRed[i] = redFrequencyMap.get(i);
-      dataGreen[i] = greenFrequencyMap.get(i);
-      dataBlue[i] = blueFrequencyMap.get(i);
-    }
-
-    int redMax = 0;
-    int redIndex = 0;
-    int greenMax = 0;
-    int greenIndex = 0;
-    int blueMax = 0;
-    int blueIndex = 0;
-
-    for (int i = 0; i < dataRed.length; i++) {
-      if (dataRed[i] > redMax) {
-        redMax = dataRed[i];
-        redIndex = i;
-      }
-    }
-
-    for (int i = 0; i < dataGreen.length; i++) {
-      if (dataGreen[i] > greenMax) {
-        greenMax = dataGreen[i];
-        greenIndex = i;
-      }
-    }
+    return this.applyLookupTable(this.colorCorrection());
+  }
 
-    for (int i = 0; i < dataBlue.length; i++) {
-      if (dataBlue[i] > blueMax) {
-        blueMax = dataBlue[i];
-        blueIndex = i;
-      }
-    }
+  @Override
+  LookupTable colorCorrection() {
+    Histogram histogram = this.histogram();
+    int redIndex = histogram.getPeak(0);
+    int greenIndex = histogram.getPeak(1);
+    int blueIndex = histogram.getPeak(2);
 
     int average = (redIndex + greenIndex + blueIndex) / 3;
     int[] corrections = {redIndex - average, greenIndex - average, blueIndex - average};
 
-    for (int ch = 0; ch < 3; ch++) {
-      for (int i = 0; i < channels[ch].getHeight(); i++) {
-        for (int j = 0; j < channels[ch].getWidth(); j++) {
-          if (ch == 0) {
-            int redValue = channels[ch].getPixel(i, j);
-            redValue -= corrections[0];
-            channels[ch].setPixel(i, j, redValue);
-          } else if (ch == 1) {
-            int greenValue = channels[ch].getPixel(i, j);
-            greenValue -= corrections[1];
-            channels[ch].setPixel(i, j, greenValue);
-          } else {
-            int blueValue = channels[ch].getPixel(i, j);
-            blueValue -= corrections[2];
-            channels[ch].setPixel(i, j, blueValue);
-          }
-        }
-      }
-    }
-
-    RGBPixel[][] newImage = new RGBPixel[channels[0].getHeight()][channels[0].getWidth()];
-    for (int i = 0; i < channels[0].getHeight(); i++) {
-      for (int j = 0; j < channels[0].getWidth(); j++) {
-        newImage[i][j] =
-            new RGBPixel(
-                channels[0].getPixel(i, j), channels[1].getPixel(i, j), channels[2].getPixel(i, j));
-      }
-    }
-
-    return new RGBImage(channels[0].getHeight(), channels[0].getWidth(), newImage);
-  }
-
-  private static Map<Integer, Integer> getFrequency(List<Integer> valuesList) {
-    Map<Integer, Integer> frequencyMap = new HashMap<>();
-
-    for (int i = 0; i <= 255; i++) {
-      frequencyMap.put(i, 0);
-    }
-
-    for (Integer redValue : valuesList) {
-      frequencyMap.put(redValue, frequencyMap.get(redValue) + 1);
-    }
-
-    return frequencyMap;
+    return LookupTable.shift(-corrections[0], -corrections[1], -corrections[2]);
   }
 
   @Override
   public Image levelAdjust(int black, int mid, int white) {
-    double aA =
-        black * black * (mid - white)
-            - black * ((mid * mid) - (white * white))
-            + (white * mid * mid)
-            - (mid * white * white);
-    double aAa = -black * (128 - 255) + 128 * white - 255 * mid;
-    double aAb = black * black * (128 - 255) + 255 * mid * mid - 128 * white * white;
-    double aAc =
-        black * black * (((255 * mid) - (128 * white)))
-            - black * (((255 * mid * mid) - (128 * white * white)));
-
-    double a = aAa / aA;
-    double b = aAb / aA;
-    double c = aAc / aA;
-
-    Image newImage = new RGBImage(this.getHeight(), this.getWidth());
-
-    for (int row = 0; row < this.getHeight(); row++) {
-      for (int col = 0; col < this.getWidth(); col++) {
-        RGBPixel rgb = this.getPixelRGB(row, col);
-
-        int red = (int) (a * Math.pow(rgb.getRedComponent(), 2) + b * rgb.getRedComponent() + c);
-        int green =
-            (int) (a * Math.pow(rgb.getGreenComponent(), 2) + b * rgb.getGreenComponent() + c);
-        int blue = (int) (a * Math.pow(rgb.getBlueComponent(), 2) + b * rgb.getBlueComponent() + c);
-
-        red = Math.min(255, Math.max(0, red));
-        green = Math.min(255, Math.max(0, green));
-        blue = Math.min(255, Math.max(0, blue));
-
-        newImage.setPixelRGB(row, col, new RGBPixel(red, green, blue));
-      }
-    }
-
-    return newImage;
+    return this.applyLookupTable(LookupTable.levelAdjust(black, mid, white));
   }
 
   @Override
   public Image dither() {
-    Image grayScaleImage = this.calculateIntensity();
-    for (int row = 0; row < this.getHeight(); row++) {
-      for (int col = 0; col < this.getWidth(); col++) {
-
-        int oldPixel = grayScaleImage.getPixel(row, col);
-        int newPixel = oldPixel < 128 ? 0 : 255;
-        grayScaleImage.setPixel(row, col, newPixel);
-
-        int error = oldPixel - newPixel;
-
-        if (col + 1 < this.getWidth()) {
-          int pixel = grayScaleImage.getPixel(row, col + 1);
-          pixel += (int) (error * (7.0 / 16.0));
-          pixel = Math.min(255, Math.max(0, pixel));
-          grayScaleImage.setPixel(row, col + 1, pixel);
-        }
-
-        if (row + 1 < this.getHeight() && col - 1 >= 0) {
-          int pixel = grayScaleImage.getPixel(row + 1, col - 1);
-          pixel += (int) (error * (3.0 / 16.0));
-          pixel = Math.min(255, Math.max(0, pixel));
-          grayScaleImage.setPixel(row + 1, col - 1, pixel);
-        }
-
-        if (row + 1 < this.getHeight()) {
-          int pixel = grayScaleImage.getPixel(row + 1, col);
-          pixel += (int) (error * (5.0 / 16.0));
-          pixel = Math.min(255, Math.max(0, pixel));
-          grayScaleImage.setPixel(row + 1, col, pixel);
-        }
-
-        if (row + 1 < this.getHeight() && col + 1 < this.getWidth()) {
-          int pixel = grayScaleImage.getPixel(row + 1, col + 1);
-          pixel += (int) (error * (1.0 / 16.0));
-          pixel = Math.min(255, Math.max(0, pixel));
-          grayScaleImage.setPixel(row + 1, col + 1, pixel);
-        }
-      }
-
+    byte[] values = this.intensity();
+    Dither.errorDiffusion(values, this.height, this.width);
+    return new GrayScaleImage(this.height, this.width, values);
+  }
 
+  @Override
+  public Image dither(DitherMode mode) {
+    if (mode == DitherMode.FLOYD_STEINBERG) {
+      return this.dither();
     }
-    return grayScaleImage;
+    byte[] values = Dither.ordered(this.pixels, this.height, this.width, mode);
+    return new GrayScaleImage(this.height, this.width, values);
   }
 
   @Override
   public Image compressImage(int threshold) {
-    GrayScaleImage[] channels = this.splitChannel();
-    int height = this.getHeight();
-    int width = this.getWidth();
-    // applyying the haar wavelet transformation on the image
-    double[][] compressedRedChannel = channels[0].haarWaveletTransformer();
-    double[][] compressedGreenChannel = channels[1].haarWaveletTransformer();
-    double[][] compressedBlueChannel = channels[2].haarWaveletTransformer();
-
-    // removing the threshold percent pixels from the transformed Image
-    TreeSet<double[]> thresholdMap =
-        GrayScaleImage.thresholdValues(
-            compressedRedChannel, compressedGreenChannel, compressedBlueChannel, threshold);
-    double[][] thresholdRedChannel =
-        GrayScaleImage.applyThreshold(compressedRedChannel, thresholdMap, 0.0);
-    double[][] thresholdGreenChannel =
-        GrayScaleImage.applyThreshold(compressedGreenChannel, thresholdMap, 1.0);
-    double[][] thresholdBlueChannel =
-        GrayScaleImage.applyThreshold(compressedBlueChannel, thresholdMap, 2.0);
-
-    // performing the inverse transformation
-    GrayScaleImage invertRed = GrayScaleImage.invertTransform(thresholdRedChannel, height, width);
-    GrayScaleImage invertGreen =
-        GrayScaleImage.invertTransform(thresholdGreenChannel, height, width);
-    GrayScaleImage invertBlue = GrayScaleImage.invertTransform(thresholdBlueChannel, height, width);
-    // how to create the RGB image from the compressed channels?
-    return new RGBImage(invertRed, invertGreen, invertBlue);
+    HaarWavelet red = HaarWavelet.transform(this.pixels, 16, this.height, this.width);
+    HaarWavelet green = HaarWavelet.transform(this.pixels, 8, this.height, this.width);
+    HaarWavelet blue = HaarWavelet.transform(this.pixels, 0, this.height, this.width);
+
+    // removing the threshold percent coefficients from the transformed channels
+    double cutoff = HaarWavelet.cutoff(threshold, red, green, blue);
+    red.threshold(cutoff);
+    green.threshold(cutoff);
+    blue.threshold(cutoff);
+
+    byte[] redValues = red.inverse();
+    byte[] greenValues = green.inverse();
+    byte[] blueValues = blue.inverse();
+    int[] result = new int[this.pixels.length];
+    for (int i = 0; i < result.length; i++) {
+      int r = redValues[i] & 0xFF;
+      int g = greenValues[i] & 0xFF;
+      int b = blueValues[i] & 0xFF;
+      result[i] = (r << 16) | (g << 8) | b;
+    }
+    return new RGBImage(this.height, this.width, result);
   }
 }
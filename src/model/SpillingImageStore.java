@@ -0,0 +1,128 @@
+package model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the images of a model on the heap up to a number of bytes, spilling the least recently
+ * used ones to scratch files when there are more. A spilled image is read back onto the heap the
+ * next time it is read, which may spill others in turn.
+ *
+ * <p>An image read back still has its scratch file, so it is not written again if it is spilled
+ * before being replaced. An image larger than the whole budget is spilled as soon as it is stored.
+ */
+final class SpillingImageStore implements ImageStore {
+  private final long budget;
+  private final MappedImageStore disk;
+  private final Map<String, Entry> heap = new LinkedHashMap<>(16, 0.75f, true);
+  private long bytes;
+  private long hits;
+
+  /**
+   * Creates an empty store.
+   *
+   * @param budget the number of bytes of pixels kept on the heap
+   * @param disk the store of the spilled images
+   * @throws IllegalArgumentException if the budget is negative
+   */
+  SpillingImageStore(long budget, MappedImageStore disk) {
+    if (budget < 0) {
+      throw new IllegalArgumentException("The memory budget cannot be negative.");
+    }
+    this.budget = budget;
+    this.disk = disk;
+  }
+
+  @Override
+  public Image get(String name) {
+    Entry entry = this.heap.get(name);
+    if (entry != null) {
+      this.hits++;
+      return entry.image;
+    }
+    Image image = this.disk.get(name);
+    if (image != null) {
+      this.keep(name, new Entry(image, false));
+    }
+    return image;
+  }
+
+  @Override
+  public void put(String name, Image image) {
+    // the scratch file of the image it replaces is stale
+    this.disk.remove(name);
+    this.keep(name, new Entry(image, true));
+  }
+
+  /** Puts an image on the heap and spills the least recently used images over the budget. */
+  private void keep(String name, Entry entry) {
+    Entry old = this.heap.put(name, entry);
+    if (old != null) {
+      this.bytes -= old.size;
+    }
+    this.bytes += entry.size;
+    Iterator<Map.Entry<String, Entry>> eldest = this.heap.entrySet().iterator();
+    while (this.bytes > this.budget) {
+      Map.Entry<String, Entry> spilled = eldest.next();
+      if (spilled.getValue().dirty) {
+        this.disk.put(spilled.getKey(), spilled.getValue().image);
+      }
+      this.bytes -= spilled.getValue().size;
+      eldest.remove();
+    }
+  }
+
+  @Override
+  public void rename(String name, String newName) {
+    Entry entry = this.heap.remove(name);
+    if (entry != null) {
+      this.heap.put(newName, entry);
+    }
+    this.disk.rename(name, newName);
+  }
+
+  @Override
+  public void remove(String name) {
+    Entry entry = this.heap.remove(name);
+    if (entry != null) {
+      this.bytes -= entry.size;
+    }
+    this.disk.remove(name);
+  }
+
+  @Override
+  public boolean contains(String name) {
+    return this.heap.containsKey(name) || this.disk.contains(name);
+  }
+
+  @Override
+  public long getHits() {
+    return this.hits;
+  }
+
+  @Override
+  public long getMisses() {
+    return this.disk.getMisses();
+  }
+
+  @Override
+  public long getSpills() {
+    return this.disk.getSpills();
+  }
+
+  /** An image on the heap, which is dirty if it has no up to date scratch file. */
+  private static final class Entry {
+    private final Image image;
+    private final long size;
+    private final boolean dirty;
+
+    Entry(Image image, boolean dirty) {
+      this.image = image;
+      // grayscale images take a byte per pixel and color images a packed int
+      long pixels = (long) image.getHeight() * image.getWidth();
+      this.size = image instanceof GrayScaleImage ? pixels : 4 * pixels;
+      this.dirty = dirty;
+    }
+  }
+}
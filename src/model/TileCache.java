@@ -0,0 +1,179 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the tiles of a tiled image, holding the most recently used ones in memory and paging the
+ * others to a scratch file. Every tile has a fixed slot in the file, so a tile is written back to
+ * its slot when it is evicted after a change and read from it when it is used again. Tiles that
+ * were never stored are black.
+ *
+ * <p>Tiles are packed 0xRRGGBB pixels in memory and take one byte per pixel in the file for
+ * grayscale images and three otherwise. A tile array is never changed once it is stored, so it can
+ * be read by several threads while it is being evicted.
+ */
+final class TileCache implements Closeable {
+  private final int slotPixels;
+  private final int bytesPerPixel;
+  private final int capacity;
+  private final FileChannel file;
+  private final Map<Integer, Tile> tiles = new LinkedHashMap<>(16, 0.75f, true);
+  private final BitSet written = new BitSet();
+
+  /**
+   * Creates an empty cache with a new scratch file, which is deleted when the cache is closed.
+   *
+   * @param slotPixels the largest number of pixels of a tile
+   * @param gray whether the tiles hold grayscale pixels, stored as one byte each
+   * @param capacity the number of tiles kept in memory
+   * @throws UncheckedIOException if the scratch file cannot be created
+   */
+  TileCache(int slotPixels, boolean gray, int capacity) {
+    this.slotPixels = slotPixels;
+    this.bytesPerPixel = gray ? 1 : 3;
+    this.capacity = Math.max(1, capacity);
+    try {
+      Path path = Files.createTempFile("tiles", ".scratch");
+      this.file =
+          FileChannel.open(
+              path,
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.DELETE_ON_CLOSE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Gets a tile, reading it back from the scratch file if it is not in memory.
+   *
+   * @param index the index of the tile
+   * @param length the number of pixels of the tile
+   * @return the pixels of the tile, which must not be modified
+   * @throws UncheckedIOException if the scratch file cannot be read
+   */
+  synchronized int[] get(int index, int length) {
+    Tile tile = this.tiles.get(index);
+    if (tile != null) {
+      return tile.pixels;
+    }
+    int[] pixels = new int[length];
+    if (this.written.get(index)) {
+      this.read(index, pixels);
+    }
+    // a tile read back is already in its slot, and a black one needs no slot
+    this.tiles.put(index, new Tile(pixels, false));
+    this.evict();
+    return pixels;
+  }
+
+  /**
+   * Stores a tile, which is written to the scratch file once it is evicted.
+   *
+   * @param index the index of the tile
+   * @param pixels the pixels of the tile, which must not be modified afterwards
+   * @throws UncheckedIOException if an evicted tile cannot be written
+   */
+  synchronized void put(int index, int[] pixels) {
+    this.tiles.put(index, new Tile(pixels, true));
+    this.evict();
+  }
+
+  private void evict() {
+    Iterator<Map.Entry<Integer, Tile>> eldest = this.tiles.entrySet().iterator();
+    while (this.tiles.size() > this.capacity) {
+      Map.Entry<Integer, Tile> entry = eldest.next();
+      if (entry.getValue().dirty) {
+        this.write(entry.getKey(), entry.getValue().pixels);
+      }
+      eldest.remove();
+    }
+  }
+
+  private void read(int index, int[] pixels) {
+    ByteBuffer buffer = ByteBuffer.allocate(pixels.length * this.bytesPerPixel);
+    long position = (long) index * this.slotPixels * this.bytesPerPixel;
+    try {
+      while (buffer.hasRemaining()) {
+        if (this.file.read(buffer, position + buffer.position()) < 0) {
+          throw new IOException("Tile " + index + " is cut short in the scratch file.");
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    byte[] bytes = buffer.array();
+    if (this.bytesPerPixel == 1) {
+      for (int i = 0; i < pixels.length; i++) {
+        int value = bytes[i] & 0xFF;
+        pixels[i] = (value << 16) | (value << 8) | value;
+      }
+    } else {
+      for (int i = 0; i < pixels.length; i++) {
+        int red = bytes[3 * i] & 0xFF;
+        int green = bytes[3 * i + 1] & 0xFF;
+        int blue = bytes[3 * i + 2] & 0xFF;
+        pixels[i] = (red << 16) | (green << 8) | blue;
+      }
+    }
+  }
+
+  private void write(int index, int[] pixels) {
+    byte[] bytes = new byte[pixels.length * this.bytesPerPixel];
+    if (this.bytesPerPixel == 1) {
+      for (int i = 0; i < pixels.length; i++) {
+        bytes[i] = (byte) pixels[i];
+      }
+    } else {
+      for (int i = 0; i < pixels.length; i++) {
+        bytes[3 * i] = (byte) (pixels[i] >> 16);
+        bytes[3 * i + 1] = (byte) (pixels[i] >> 8);
+        bytes[3 * i + 2] = (byte) pixels[i];
+      }
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    long position = (long) index * this.slotPixels * this.bytesPerPixel;
+    try {
+      while (buffer.hasRemaining()) {
+        this.file.write(buffer, position + buffer.position());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.written.set(index);
+  }
+
+  /**
+   * Drops the tiles and deletes the scratch file.
+   *
+   * @throws IOException if the scratch file cannot be closed
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    this.tiles.clear();
+    this.file.close();
+  }
+
+  /** A tile in memory, which is dirty if it is not in its slot of the scratch file yet. */
+  private static final class Tile {
+    private final int[] pixels;
+    private final boolean dirty;
+
+    Tile(int[] pixels, boolean dirty) {
+      this.pixels = pixels;
+      this.dirty = dirty;
+    }
+  }
+}
@@ -0,0 +1,504 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * An image split into square tiles, of which only the recently used ones are kept in memory while
+ * the others are paged to a scratch file, so that images larger than the heap can be processed.
+ * Operations go tile by tile, splitting the rows of tiles across threads, and write their result
+ * into a new tiled image with its own scratch file.
+ *
+ * <p>Filters read every tile with a halo of the pixels around it, as wide as the radius of the
+ * kernel, from the neighbouring tiles, and pixels outside the image are black, so every operation
+ * gives the same pixels as the same operation on the whole image in memory. Tiles on the right and
+ * bottom edges are cut to the size of the image.
+ *
+ * <p>A tiled image is not an {@link Image}: images in the model are whole rasters, with pixel
+ * access and cached histograms, so a tiled image is read from and written to a file directly, as
+ * the tiled command does. A tiled image should be closed once it is no longer needed, which
+ * deletes its scratch file.
+ */
+public final class TiledImage implements Closeable {
+  /** The default width and height of a tile. */
+  public static final int TILE_SIZE = 256;
+
+  /** The fewest tiles kept in memory by default. */
+  private static final int MIN_CACHED_TILES = 16;
+
+  /** The largest width and height of a tile, so that a tile fits in an array. */
+  private static final int MAX_TILE_SIZE = 1 << 14;
+
+  private final int height;
+  private final int width;
+  private final boolean gray;
+  private final int tileSize;
+  private final int tilesAcross;
+  private final int tilesDown;
+  private final int cachedTiles;
+  private final TileCache tiles;
+
+  private TiledImage(int height, int width, boolean gray, int tileSize, int cachedTiles) {
+    this.height = height;
+    this.width = width;
+    this.gray = gray;
+    this.tileSize = tileSize;
+    this.tilesAcross = (width + tileSize - 1) / tileSize;
+    this.tilesDown = (height + tileSize - 1) / tileSize;
+    this.cachedTiles = cachedTiles;
+    this.tiles = new TileCache(tileSize * tileSize, gray, cachedTiles);
+  }
+
+  /**
+   * Creates a black tiled image with tiles of the default size, keeping enough tiles in memory
+   * for the rows of tiles being processed at once and the rows above and below them.
+   *
+   * @param height the height of the image
+   * @param width the width of the image
+   * @param gray whether the image is grayscale
+   * @return the image
+   * @throws IllegalArgumentException if the image is empty
+   * @throws UncheckedIOException if the scratch file cannot be created
+   */
+  public static TiledImage create(int height, int width, boolean gray) {
+    int tilesAcross = (Math.max(width, 1) + TILE_SIZE - 1) / TILE_SIZE;
+    int rows = ForkJoinPool.getCommonPoolParallelism() + 2;
+    int cachedTiles = (int) Math.min(Integer.MAX_VALUE, (long) rows * tilesAcross);
+    return create(height, width, gray, TILE_SIZE, Math.max(MIN_CACHED_TILES, cachedTiles));
+  }
+
+  /**
+   * Creates a black tiled image.
+   *
+   * @param height the height of the image
+   * @param width the width of the image
+   * @param gray whether the image is grayscale
+   * @param tileSize the width and height of a tile
+   * @param cachedTiles the number of tiles kept in memory
+   * @return the image
+   * @throws IllegalArgumentException if the image is empty, or the tile size or the number of
+   *     cached tiles is not positive, or there are too many tiles
+   * @throws UncheckedIOException if the scratch file cannot be created
+   */
+  public static TiledImage create(
+      int height, int width, boolean gray, int tileSize, int cachedTiles) {
+    if (height < 1 || width < 1) {
+      throw new IllegalArgumentException("Size has to be at least 1 by 1.");
+    }
+    if (tileSize < 1 || tileSize > MAX_TILE_SIZE || cachedTiles < 1) {
+      throw new IllegalArgumentException("Invalid tile size or number of cached tiles.");
+    }
+    long tiles = (long) ((height + tileSize - 1) / tileSize) * ((width + tileSize - 1) / tileSize);
+    if (tiles > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many tiles, the tiles have to be larger.");
+    }
+    return new TiledImage(height, width, gray, tileSize, cachedTiles);
+  }
+
+  /**
+   * Splits an image into tiles of the default size.
+   *
+   * @param image the image
+   * @return the tiled image, grayscale if the image is
+   * @throws UncheckedIOException if the scratch file cannot be created or written
+   */
+  public static TiledImage of(Image image) {
+    TiledImage tiled = create(image.getHeight(), image.getWidth(), isGray(image));
+    tiled.setRows(0, image.getHeight(), image.packedRGB());
+    return tiled;
+  }
+
+  /**
+   * Splits an image into tiles.
+   *
+   * @param image the image
+   * @param tileSize the width and height of a tile
+   * @param cachedTiles the number of tiles kept in memory
+   * @return the tiled image, grayscale if the image is
+   * @throws IllegalArgumentException if the tile size or the number of cached tiles is invalid
+   * @throws UncheckedIOException if the scratch file cannot be created or written
+   */
+  public static TiledImage of(Image image, int tileSize, int cachedTiles) {
+    TiledImage tiled =
+        create(image.getHeight(), image.getWidth(), isGray(image), tileSize, cachedTiles);
+    tiled.setRows(0, image.getHeight(), image.packedRGB());
+    return tiled;
+  }
+
+  private static boolean isGray(Image image) {
+    return image instanceof GrayScaleImage;
+  }
+
+  /**
+   * Returns the height of the image.
+   *
+   * @return the height
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Returns the width of the image.
+   *
+   * @return the width
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Tells whether the image is grayscale.
+   *
+   * @return true if the image is grayscale
+   */
+  public boolean isGray() {
+    return this.gray;
+  }
+
+  /**
+   * Gets a band of whole rows of the image, such as to write the image out a band at a time.
+   *
+   * @param startRow the first row
+   * @param rows the number of rows
+   * @return the packed 0xRRGGBB pixels of the rows, row by row
+   * @throws IllegalArgumentException if the rows are not in the image
+   */
+  public int[] getRows(int startRow, int rows) {
+    this.checkRows(startRow, rows);
+    return this.getRegion(startRow, 0, rows, this.width);
+  }
+
+  /**
+   * Replaces a band of whole rows of the image, such as to read an image in a band at a time.
+   * Bands that start and end on the edges of the tiles replace whole tiles without reading them.
+   *
+   * @param startRow the first row
+   * @param rows the number of rows
+   * @param pixels the packed 0xRRGGBB pixels of the rows, row by row, which are gray if the image
+   *     is grayscale
+   * @throws IllegalArgumentException if the rows are not in the image or there are not enough
+   *     pixels
+   */
+  public void setRows(int startRow, int rows, int[] pixels) {
+    this.checkRows(startRow, rows);
+    if (pixels.length < (long) rows * this.width) {
+      throw new IllegalArgumentException("Not enough pixels for the rows.");
+    }
+    int endRow = startRow + rows;
+    for (int tileRow = startRow / this.tileSize; tileRow * this.tileSize < endRow; tileRow++) {
+      int top = tileRow * this.tileSize;
+      int tileHeight = this.tileHeight(tileRow);
+      int first = Math.max(startRow, top);
+      int last = Math.min(endRow, top + tileHeight);
+      for (int tileCol = 0; tileCol < this.tilesAcross; tileCol++) {
+        int left = tileCol * this.tileSize;
+        int tileWidth = this.tileWidth(tileCol);
+        int index = tileRow * this.tilesAcross + tileCol;
+        // stored tiles are never changed, so a partly replaced tile is a changed copy
+        int[] tile =
+            first == top && last == top + tileHeight
+                ? new int[tileHeight * tileWidth]
+                : this.tiles.get(index, tileHeight * tileWidth).clone();
+        for (int row = first; row < last; row++) {
+          System.arraycopy(
+              pixels,
+              (row - startRow) * this.width + left,
+              tile,
+              (row - top) * tileWidth,
+              tileWidth);
+        }
+        this.tiles.put(index, tile);
+      }
+    }
+  }
+
+  private void checkRows(int startRow, int rows) {
+    if (startRow < 0 || rows < 0 || startRow > this.height - rows) {
+      throw new IllegalArgumentException("Rows are not in the image.");
+    }
+  }
+
+  /**
+   * Gets a rectangle of pixels, which may reach outside the image, where the pixels are black.
+   *
+   * @param startRow the top row of the rectangle
+   * @param startCol the left column of the rectangle
+   * @param rows the height of the rectangle
+   * @param cols the width of the rectangle
+   * @return the packed pixels of the rectangle, row by row
+   */
+  int[] getRegion(int startRow, int startCol, int rows, int cols) {
+    int[] region = new int[rows * cols];
+    int top = Math.max(0, startRow);
+    int bottom = Math.min(this.height, startRow + rows);
+    int left = Math.max(0, startCol);
+    int right = Math.min(this.width, startCol + cols);
+    for (int tileRow = top / this.tileSize; tileRow * this.tileSize < bottom; tileRow++) {
+      int tileTop = tileRow * this.tileSize;
+      int tileHeight = this.tileHeight(tileRow);
+      int first = Math.max(top, tileTop);
+      int last = Math.min(bottom, tileTop + tileHeight);
+      for (int tileCol = left / this.tileSize; tileCol * this.tileSize < right; tileCol++) {
+        int tileLeft = tileCol * this.tileSize;
+        int tileWidth = this.tileWidth(tileCol);
+        int from = Math.max(left, tileLeft);
+        int to = Math.min(right, tileLeft + tileWidth);
+        int[] tile = this.tiles.get(tileRow * this.tilesAcross + tileCol, tileHeight * tileWidth);
+        for (int row = first; row < last; row++) {
+          System.arraycopy(
+              tile,
+              (row - tileTop) * tileWidth + from - tileLeft,
+              region,
+              (row - startRow) * cols + from - startCol,
+              to - from);
+        }
+      }
+    }
+    return region;
+  }
+
+  /** Gets the tile whose top left pixel is at the given row and column, without copying it. */
+  private int[] getTile(int row, int col, int rows, int cols) {
+    int index = row / this.tileSize * this.tilesAcross + col / this.tileSize;
+    return this.tiles.get(index, rows * cols);
+  }
+
+  private int tileHeight(int tileRow) {
+    return Math.min(this.tileSize, this.height - tileRow * this.tileSize);
+  }
+
+  private int tileWidth(int tileCol) {
+    return Math.min(this.tileSize, this.width - tileCol * this.tileSize);
+  }
+
+  /**
+   * Brings the whole image into memory.
+   *
+   * @return the image, grayscale if this image is
+   * @throws UncheckedIOException if the scratch file cannot be read
+   */
+  public Image toImage() {
+    int[] pixels = this.getRegion(0, 0, this.height, this.width);
+    if (this.gray) {
+      byte[] values = new byte[pixels.length];
+      for (int i = 0; i < pixels.length; i++) {
+        values[i] = (byte) pixels[i];
+      }
+      return new GrayScaleImage(this.height, this.width, values);
+    }
+    return new RGBImage(this.height, this.width, pixels);
+  }
+
+  /**
+   * Brightens the image tile by tile, like {@link IME#brighten(int)}.
+   *
+   * @param value the amount to add to every channel, negative to darken
+   * @return the brightened image
+   */
+  public TiledImage brighten(int value) {
+    return this.applyLookupTable(LookupTable.brighten(value));
+  }
+
+  /**
+   * Maps every pixel through a lookup table tile by tile, like
+   * {@link IME#applyLookupTable(LookupTable)}.
+   *
+   * @param table the lookup table
+   * @return the mapped image, grayscale if this image is and the table is uniform
+   */
+  public TiledImage applyLookupTable(LookupTable table) {
+    return this.map(
+        this.gray && table.isUniform(),
+        (row, col, rows, cols) -> table.apply(this.getTile(row, col, rows, cols), rows, cols));
+  }
+
+  /**
+   * Applies the sepia matrix tile by tile, like {@link IME#sepia()}.
+   *
+   * @return the sepia image
+   */
+  public TiledImage sepia() {
+    return this.colorMatrix(ColorMatrix.SEPIA);
+  }
+
+  /**
+   * Applies a color matrix tile by tile, like {@link IME#colorMatrix(ColorMatrix)}.
+   *
+   * @param matrix the color matrix
+   * @return the transformed image, grayscale if the matrix gives gray pixels
+   */
+  public TiledImage colorMatrix(ColorMatrix matrix) {
+    if (this.gray) {
+      return this.applyLookupTable(matrix.forGray());
+    }
+    if (matrix.isDiagonal()) {
+      return this.applyLookupTable(matrix.asLookupTable());
+    }
+    if (matrix.isGray()) {
+      return this.map(
+          true,
+          (row, col, rows, cols) -> {
+            byte[] values = matrix.applyGray(this.getTile(row, col, rows, cols), rows, cols);
+            int[] tile = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+              int value = values[i] & 0xFF;
+              tile[i] = (value << 16) | (value << 8) | value;
+            }
+            return tile;
+          });
+    }
+    return this.map(
+        false,
+        (row, col, rows, cols) -> matrix.apply(this.getTile(row, col, rows, cols), rows, cols));
+  }
+
+  /**
+   * Flips the image horizontally tile by tile. Every tile is made from the mirrored columns, which
+   * may lie in two tiles when the width is not a multiple of the tile size.
+   *
+   * @return the flipped image
+   */
+  public TiledImage horizontalFlip() {
+    return this.map(
+        this.gray,
+        (row, col, rows, cols) -> {
+          int[] region = this.getRegion(row, this.width - col - cols, rows, cols);
+          for (int offset = 0; offset < region.length; offset += cols) {
+            for (int left = offset, right = offset + cols - 1; left < right; left++, right--) {
+              int pixel = region[left];
+              region[left] = region[right];
+              region[right] = pixel;
+            }
+          }
+          return region;
+        });
+  }
+
+  /**
+   * Flips the image vertically tile by tile.
+   *
+   * @return the flipped image
+   */
+  public TiledImage verticalFlip() {
+    return this.map(
+        this.gray,
+        (row, col, rows, cols) -> {
+          int[] region = this.getRegion(this.height - row - rows, col, rows, cols);
+          int[] flipped = new int[region.length];
+          for (int r = 0; r < rows; r++) {
+            System.arraycopy(region, (rows - r - 1) * cols, flipped, r * cols, cols);
+          }
+          return flipped;
+        });
+  }
+
+  /**
+   * Blurs the image tile by tile, like {@link IME#blur()}.
+   *
+   * @return the blurred image
+   */
+  public TiledImage blur() {
+    return this.filter(Kernel.BLUR);
+  }
+
+  /**
+   * Sharpens the image tile by tile, like {@link IME#sharpen()}.
+   *
+   * @return the sharpened image
+   */
+  public TiledImage sharpen() {
+    return this.filter(Kernel.SHARPEN);
+  }
+
+  /**
+   * Convolves the image with a kernel tile by tile, like {@link IME#filter(Kernel)}. Every tile is
+   * convolved together with a halo of the pixels around it from its neighbours, which is then cut
+   * off again, so the pixels at the edges of the tiles are the same as in the whole image.
+   *
+   * @param kernel the kernel
+   * @return the filtered image
+   */
+  public TiledImage filter(Kernel kernel) {
+    Convolution convolution = kernel.compile();
+    int halo = kernel.getSize() / 2;
+    return this.map(
+        this.gray,
+        (row, col, rows, cols) -> {
+          int haloRows = rows + 2 * halo;
+          int haloCols = cols + 2 * halo;
+          int[] region = this.getRegion(row - halo, col - halo, haloRows, haloCols);
+          int[] filtered = convolution.apply(region, haloRows, haloCols);
+          int[] tile = new int[rows * cols];
+          for (int r = 0; r < rows; r++) {
+            System.arraycopy(filtered, (r + halo) * haloCols + halo, tile, r * cols, cols);
+          }
+          return tile;
+        });
+  }
+
+  /**
+   * Makes a new tiled image of the same size and tiles from a tile by tile operation. The rows of
+   * tiles are split across threads, and report their progress and stop if the work is cancelled.
+   */
+  private TiledImage map(boolean gray, TileOperation operation) {
+    TiledImage result =
+        new TiledImage(this.height, this.width, gray, this.tileSize, this.cachedTiles);
+    try {
+      Parallel.forRows(
+          this.tilesDown,
+          (int) Math.min(Integer.MAX_VALUE, (long) this.tileSize * this.width),
+          (startRow, endRow) -> {
+            for (int tileRow = startRow; tileRow < endRow; tileRow++) {
+              for (int tileCol = 0; tileCol < this.tilesAcross; tileCol++) {
+                int[] tile =
+                    operation.apply(
+                        tileRow * this.tileSize,
+                        tileCol * this.tileSize,
+                        this.tileHeight(tileRow),
+                        this.tileWidth(tileCol));
+                result.tiles.put(tileRow * this.tilesAcross + tileCol, tile);
+              }
+            }
+          });
+    } catch (RuntimeException e) {
+      result.closeQuietly();
+      throw e;
+    }
+    return result;
+  }
+
+  private void closeQuietly() {
+    try {
+      this.close();
+    } catch (IOException e) {
+      // the scratch file is deleted on exit anyway
+    }
+  }
+
+  /**
+   * Deletes the scratch file of the image, which cannot be used afterwards.
+   *
+   * @throws IOException if the scratch file cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    this.tiles.close();
+  }
+
+  /** Computes one tile of the result of an operation. */
+  private interface TileOperation {
+    /**
+     * Computes a tile.
+     *
+     * @param row the top row of the tile
+     * @param col the left column of the tile
+     * @param rows the height of the tile
+     * @param cols the width of the tile
+     * @return the packed pixels of the tile, row by row
+     */
+    int[] apply(int row, int col, int rows, int cols);
+  }
+}
@@ -0,0 +1,35 @@
+package view;
+
+import java.awt.Dimension;
+
+import javax.swing.ImageIcon;
+import javax.swing.JLabel;
+
+import controller.ImageUtil;
+import model.Image;
+
+/**
+ * A label that shows the plot of a histogram. The plot is converted to a buffered image once, so a
+ * repaint only draws that image, and an equal plot shown again keeps it.
+ */
+final class HistogramLabel extends JLabel {
+  private static final long serialVersionUID = 1L;
+
+  private Image histogram;
+
+  /**
+   * Shows the plot of a histogram, unless it is equal to the plot already shown.
+   *
+   * @param histogram the rendered histogram.
+   * @return true if the plot changed, false if the shown plot is kept.
+   */
+  boolean setHistogram(Image histogram) {
+    if (histogram.equals(this.histogram)) {
+      return false;
+    }
+    setIcon(new ImageIcon(ImageUtil.convertToBuffered(histogram)));
+    setPreferredSize(new Dimension(histogram.getWidth(), histogram.getHeight()));
+    this.histogram = histogram;
+    return true;
+  }
+}
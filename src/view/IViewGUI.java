@@ -18,4 +18,11 @@ public interface IViewGUI {
   boolean getSplitStatus();
 
   int getSplitPercentage();
+
+  /**
+   * Shows how far the running operation is.
+   *
+   * @param percent the percentage done, 0 when no operation is running.
+   */
+  void setProgress(int percent);
 }
@@ -1,15 +1,12 @@
 package view;
 
-import java.awt.Color;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.Component;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.awt.Graphics;
 import java.io.File;
-import java.io.IOException;
 
 import javax.swing.JButton;
 import javax.swing.JFrame;
@@ -25,13 +22,13 @@ import javax.swing.JFileChooser;
 import javax.swing.JScrollPane;
 import javax.swing.BorderFactory;
 import javax.swing.JOptionPane;
+import javax.swing.JProgressBar;
 import javax.swing.ImageIcon;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 import controller.GUIFeaturesInterface;
 import controller.ImageUtil;
 import model.Image;
-import model.RGBPixel;
 
 /**
  * Represents the JFrame view of the program. That supports the GUI.
@@ -62,6 +59,7 @@ public class JFrameView extends JFrame implements IViewGUI {
 
   private JScrollPane imageScrollPane;
   private JComboBox<String> rgbComponentDropdown;
+  private JComboBox<String> ditherModeDropdown;
   private JSpinner compressSpinner;
   private JSpinner bSpinner;
   private JSpinner mSpinner;
@@ -70,7 +68,8 @@ public class JFrameView extends JFrame implements IViewGUI {
   private JSpinner splitSpinner;
 
   private JLabel imageLabel;
-  private JLabel histogramLabel;
+  private HistogramLabel histogramLabel;
+  private JProgressBar progressBar;
 
   private boolean fileOpened;
   private boolean fileSaved;
@@ -93,6 +92,8 @@ public class JFrameView extends JFrame implements IViewGUI {
     fileSaveButton = new JButton("Save a file");
     fileOperationsPanel.add(fileOpenButton);
     fileOperationsPanel.add(fileSaveButton);
+    progressBar = new JProgressBar(0, 100);
+    fileOperationsPanel.add(progressBar);
 
     operationsPanel = new JPanel();
     operationsPanel.setBorder(BorderFactory.createTitledBorder("Operations"));
@@ -133,10 +134,6 @@ public class JFrameView extends JFrame implements IViewGUI {
 
     operationsPanel.add(Box.createRigidArea(new Dimension(0, 5)));
 
-    ditherButton = new JButton("Dither");
-    operationsPanel.add(ditherButton);
-    operationsPanel.add(Box.createRigidArea(new Dimension(0, 5)));
-
     multiOperationsPanel = new JPanel();
     multiOperationsPanel.setLayout(new BoxLayout(multiOperationsPanel, BoxLayout.PAGE_AXIS));
     operationsPanel.add(multiOperationsPanel);
@@ -153,6 +150,16 @@ public class JFrameView extends JFrame implements IViewGUI {
     rgbPanel.add(rgbButton);
     multiOperationsPanel.add(rgbPanel);
 
+    JPanel ditherPanel = new JPanel();
+    ditherPanel.setLayout(new FlowLayout(FlowLayout.LEFT));
+    ditherPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+    String[] ditherOptions = {"floyd-steinberg", "bayer-2", "bayer-4", "bayer-8", "blue-noise"};
+    ditherModeDropdown = new JComboBox<>(ditherOptions);
+    ditherButton = new JButton("Dither");
+    ditherPanel.add(ditherModeDropdown);
+    ditherPanel.add(ditherButton);
+    multiOperationsPanel.add(ditherPanel);
+
     JPanel compressPanel = new JPanel();
     compressPanel.setLayout(new FlowLayout(FlowLayout.LEFT));
     compressPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
@@ -241,6 +248,8 @@ public class JFrameView extends JFrame implements IViewGUI {
     histogramPanel.setPreferredSize(new Dimension(165, 165));
     histogramPanel.setBorder(BorderFactory.createTitledBorder("Histogram"));
     histogramPanel.setLayout(new BorderLayout());
+    histogramLabel = new HistogramLabel();
+    histogramPanel.add(histogramLabel);
     operationsPanel.add(histogramPanel);
 
     imagePanel = new JPanel();
@@ -275,11 +284,7 @@ public class JFrameView extends JFrame implements IViewGUI {
   @Override
   public void setImage(Image image) {
     imagePanel.removeAll();
-    try {
-      imageLabel = new JLabel(new ImageIcon(ImageUtil.convertToBuffered(image)));
-    } catch (IOException e) {
-      e.printStackTrace();
-    }
+    imageLabel = new JLabel(new ImageIcon(ImageUtil.convertToBuffered(image)));
     imageLabel.setPreferredSize(new Dimension(image.getWidth(), image.getHeight()));
     imageScrollPane =
         new JScrollPane(
@@ -293,32 +298,15 @@ public class JFrameView extends JFrame implements IViewGUI {
 
   @Override
   public void setHistogram(Image image) {
-    histogramPanel.removeAll();
-    histogramLabel =
-        new JLabel() {
-          @Override
-          protected void paintComponent(Graphics g) {
-            super.paintComponent(g);
-            RGBPixel[][] pixels = image.getRGBPixelMatrix();
-            int pixelSize = 1;
-            for (int i = 0; i < image.getHeight(); i++) {
-              for (int j = 0; j < image.getWidth(); j++) {
-                if (i < pixels.length && j < pixels[i].length) {
-                  g.setColor(
-                      new Color(
-                          pixels[i][j].getRedComponent(),
-                          pixels[i][j].getGreenComponent(),
-                          pixels[i][j].getBlueComponent()));
-                  g.fillRect(j * pixelSize, i * pixelSize, pixelSize, pixelSize);
-                }
-              }
-            }
-          }
-        };
-    histogramLabel.setPreferredSize(new Dimension(image.getWidth(), image.getHeight()));
-    histogramPanel.add(histogramLabel);
-    histogramPanel.revalidate();
-    histogramPanel.repaint();
+    if (histogramLabel.setHistogram(image)) {
+      histogramPanel.revalidate();
+      histogramPanel.repaint();
+    }
+  }
+
+  @Override
+  public void setProgress(int percent) {
+    progressBar.setValue(percent);
   }
 
   @Override
@@ -515,7 +503,7 @@ public class JFrameView extends JFrame implements IViewGUI {
     ditherButton.addActionListener(
         evt -> {
           if (fileOpened) {
-            guiFeatures.ditherOperation();
+            guiFeatures.ditherOperation((String) ditherModeDropdown.getSelectedItem());
           }
         });
   }
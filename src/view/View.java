@@ -57,11 +57,16 @@ public class View implements IView {
     out.println("vertical-flip: flip an image vertically");
     out.println("blur: blur an image");
     out.println("sharpen: sharpen an image");
+    out.println("filter: convolve an image with a named or inline kernel");
     out.println("sepia: apply a sepia filter to an image");
+    out.println(
+        "dither: dither an image to black and white, by error diffusion or a threshold map");
     out.println("histogram: create a histogram of color values of an image");
     out.println("color-correct: color correct an image by aligning the peaks of the histogram");
     out.println("level-adjust: adjust the levels of an image, by the given b m w values");
     out.println("compress: compresses an image by the given percentage");
+    out.println(
+        "tiled: apply an action to a ppm file tile by tile, for images larger than memory");
     out.println("run: runs a script of commands from a file");
   }
 
@@ -85,6 +90,17 @@ public class View implements IView {
     out.println(
         "level-adjust <value> <value> <value> <name> <destImageName> | action = level-adjust: "
             + "black value, mid value, white value respectively to adjust the levels of image");
+    out.println(
+        "filter <kernel> <name> <destImageName> | action = filter: "
+            + "<kernel> = blur | sharpen | box | gaussian | emboss | edge "
+            + "| inline rows like 0,1,0;1,-4,1;0,1,0");
+    out.println(
+        "dither [mode] <name> <destImageName> | action = dither: "
+            + "[mode] = floyd-steinberg | bayer-2 | bayer-4 | bayer-8 | blue-noise");
+    out.println(
+        "tiled <action> [increment] <fileName> <destFileName>: apply an action to a ppm file "
+            + "tile by tile, <action> = brighten | blur | sharpen | sepia | horizontal-flip "
+            + "| vertical-flip");
     out.println("<action> <name> <destImageName>: apply an action to an image");
     out.println(
         "<action> = red-component | green-component | blue-component | value-component "
@@ -1,5 +1,11 @@
 package controller;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import model.Image;
+import model.Model;
+import model.RGBImage;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -65,6 +71,20 @@ public void testSepia(){
           "getImage called with name: histImage\n",m.getLog().toString());
 }
 
+@Test
+public void testDitherMode(){
+  GUIFeaturesInterface c = new ControllerGUI(m);
+  c.setView(v);
+  c.ditherOperation("blue-noise");
+  assertEquals("ditherImage called with mode: blue-noise name: currImage "
+          + "destImageName: currImage\n" +
+          "getImage called with name: currImage\n" +
+          "addImage called with name: splitImage image: \n" +
+          "getImage called with name: currImage\n" +
+          "histogram called with name: currImage destImageName: histImage\n" +
+          "getImage called with name: histImage\n",m.getLog().toString());
+}
+
 @Test
 public void testRedComponent(){
   GUIFeaturesInterface c = new ControllerGUI(m);
@@ -221,4 +241,48 @@ public void testGrayScale(){
     c.saveImage("test/controller/MockImage.png");
     assertEquals("getImage called with name: currImage\n",m.getLog().toString());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testSkippedRefreshKeepsSplitImage() {
+    int[] pixels = new int[16];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = i * 0x0F1E2D;
+    }
+    Image image = new RGBImage(4, 4, pixels);
+    Model model = new Model();
+    model.addImage("currImage", image);
+    model.addImage("splitImage", image);
+    List<Runnable> work = new ArrayList<>();
+    List<Image> shown = new ArrayList<>();
+    boolean[] split = new boolean[1];
+    MockViewGUI view = new MockViewGUI() {
+      @Override
+      public void setImage(Image image) {
+        shown.add(image);
+      }
+
+      @Override
+      public boolean getSplitStatus() {
+        return split[0];
+      }
+
+      @Override
+      public int getSplitPercentage() {
+        return 50;
+      }
+    };
+    OperationExecutor executor = new OperationExecutor(work::add, Runnable::run);
+    GUIFeaturesInterface c = new ControllerGUI(model, executor);
+    c.setView(view);
+    c.blurOperation();
+    split[0] = true;
+    c.sepiaOperation();
+    c.saveSplitImage();
+    for (Runnable request : work) {
+      request.run();
+    }
+    // the refresh of the blur was cancelled by the preview, which still starts from the blur
+    assertEquals(1, shown.size());
+    assertEquals(image.blur().sepia(), model.getImage("currImage"));
+  }
+}
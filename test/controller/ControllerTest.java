@@ -5,13 +5,19 @@ import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.InputStream;
 import java.io.PrintStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import model.Image;
+import model.Model;
+import model.RGBImage;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /** Test class for Controller. */
 public class ControllerTest {
@@ -369,6 +375,104 @@ public class ControllerTest {
         mockView.getLastLog());
   }
 
+  @Test
+  public void testFilterCommand() throws Exception {
+    List<String> commands = new ArrayList<>();
+    commands.add("load test/controller/MockImage.png mock");
+    commands.add("filter gaussian mock mock-gaussian");
+    commands.add("filter 0,-1,0;-1,5,-1;0,-1,0 mock mock-custom");
+    commands.add("exit");
+    in = new ByteArrayInputStream(String.join("\n", commands).getBytes());
+
+    IController controller = new Controller(mockModel, mockView, in);
+    controller.execute();
+
+    assertEquals(
+        "filterImage called with size: 3 name: mock destImageName: mock-custom",
+        mockModel.getLastLog());
+    assertEquals(
+        "Command Success! for Image loaded successfully."
+            + "Command Success! for Filter operation executed successfully."
+            + "Command Success! for Filter operation executed successfully.",
+        mockView.getLastLog());
+  }
+
+  @Test
+  public void testFilterCommandInvalidKernel() throws Exception {
+    List<String> commands = new ArrayList<>();
+    commands.add("load test/controller/MockImage.png mock");
+    commands.add("filter 1,0;0,1 mock mock-custom");
+    commands.add("exit");
+    in = new ByteArrayInputStream(String.join("\n", commands).getBytes());
+
+    IController controller = new Controller(mockModel, mockView, in);
+    controller.execute();
+
+    assertEquals(
+        "Command Success! for Image loaded successfully."
+            + "Command Failure! for Invalid kernel.Show Option Error called!",
+        mockView.getLastLog());
+  }
+
+  @Test
+  public void testFilterCommandKernelTooLarge() throws Exception {
+    List<String> commands = new ArrayList<>();
+    commands.add("load test/controller/MockImage.png mock");
+    commands.add("filter 10000000 mock mock-custom");
+    commands.add("filter 1e300 mock mock-custom");
+    commands.add("exit");
+    in = new ByteArrayInputStream(String.join("\n", commands).getBytes());
+
+    IController controller = new Controller(mockModel, mockView, in);
+    controller.execute();
+
+    assertEquals(
+        "Show Options called!\n"
+            + "Command Success! for Image loaded successfully."
+            + "Command Failure! for Invalid kernel.Show Option Error called!\n"
+            + "Command Failure! for Invalid kernel.Show Option Error called!\n",
+        mockView.getLog().toString());
+  }
+
+  @Test
+  public void testDitherCommand() throws Exception {
+    List<String> commands = new ArrayList<>();
+    commands.add("load test/controller/MockImage.png mock");
+    commands.add("dither mock mock-dither");
+    commands.add("dither bayer-4 mock mock-bayer");
+    commands.add("exit");
+    in = new ByteArrayInputStream(String.join("\n", commands).getBytes());
+
+    IController controller = new Controller(mockModel, mockView, in);
+    controller.execute();
+
+    assertEquals(
+        "ditherImage called with mode: bayer-4 name: mock destImageName: mock-bayer",
+        mockModel.getLastLog());
+    assertEquals(
+        "Command Success! for Image loaded successfully."
+            + "Command Success! for Dither operation executed successfully."
+            + "Command Success! for Dither operation executed successfully.",
+        mockView.getLastLog());
+  }
+
+  @Test
+  public void testDitherCommandInvalidMode() throws Exception {
+    List<String> commands = new ArrayList<>();
+    commands.add("load test/controller/MockImage.png mock");
+    commands.add("dither bayer-3 mock mock-bayer");
+    commands.add("exit");
+    in = new ByteArrayInputStream(String.join("\n", commands).getBytes());
+
+    IController controller = new Controller(mockModel, mockView, in);
+    controller.execute();
+
+    assertEquals(
+        "Command Success! for Image loaded successfully."
+            + "Command Failure! for Invalid dither mode.Show Option Error called!",
+        mockView.getLastLog());
+  }
+
   @Test
   public void testSharpenCommand() throws Exception {
     List<String> commands = new ArrayList<>();
@@ -662,6 +766,39 @@ public class ControllerTest {
         mockView.getLastLog());
   }
 
+  @Test
+  public void testCompressionToFile() throws IOException {
+    int[] pixels = new int[9 * 7];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = i * 0x0A0B0C & 0xFFFFFF;
+    }
+    Model model = new Model();
+    model.addImage("image", new RGBImage(9, 7, pixels));
+    String fileName = "test/controller/tempCompressed.hwt";
+    String inPlaceName = "test/controller/tempCompressedInPlace.hwt";
+    String commands = "compress 60 image compressed " + fileName
+        + "\ncompress 60 image image " + inPlaceName + "\nexit";
+    in = new ByteArrayInputStream(commands.getBytes());
+
+    IController controller = new Controller(model, mockView, in);
+    controller.execute();
+
+    // the image in the model is the one saved to the file, and the one compress gives without it
+    Image saved = ImageUtil.loadImage(fileName, "hwt");
+    new File(fileName).delete();
+    assertTrue(saved.equals(model.getImage("compressed")));
+    assertTrue(saved.equals(new RGBImage(9, 7, pixels).compressImage(60)));
+    // compressing an image in place saves the coefficients of the image before it
+    Image inPlace = ImageUtil.loadImage(inPlaceName, "hwt");
+    new File(inPlaceName).delete();
+    assertTrue(inPlace.equals(model.getImage("image")));
+    assertTrue(inPlace.equals(saved));
+    assertEquals(
+        "Command Success! for Compressed image by 60  % successfully."
+            + "Command Success! for Compressed image by 60  % successfully.",
+        mockView.getLastLog());
+  }
+
   @Test
   public void testCompressionInvalid() throws IOException {
     List<String> commands = new ArrayList<>();
@@ -679,4 +816,49 @@ public class ControllerTest {
             + "Show Option Error called!",
         mockView.getLastLog());
   }
+
+  @Test
+  public void testTiledCommand() throws IOException {
+    // larger than a tile both ways, so the blur reads across the edges of the tiles
+    int[] pixels = new int[300 * 270];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = i * 0x0A0B0C & 0xFFFFFF;
+    }
+    Image image = new RGBImage(300, 270, pixels);
+    String fileName = "test/controller/tempTiled.ppm";
+    String destFileName = "test/controller/tempTiledBlur.ppm";
+    PPMCodec.writeBinary(image, fileName);
+    String commands = "tiled blur " + fileName + " " + destFileName + "\nexit";
+    in = new ByteArrayInputStream(commands.getBytes());
+
+    IController controller = new Controller(mockModel, mockView, in);
+    controller.execute();
+
+    Image blurred = PPMCodec.read(destFileName);
+    new File(fileName).delete();
+    new File(destFileName).delete();
+    assertTrue(image.blur().equals(blurred));
+    assertEquals("Command Success! for Tiled blur executed successfully.", mockView.getLastLog());
+    assertEquals("", mockModel.getLog().toString());
+  }
+
+  @Test
+  public void testTiledCommandInvalid() throws IOException {
+    List<String> commands = new ArrayList<>();
+    commands.add("tiled luma-component test/controller/MockImage.png out.ppm");
+    commands.add("tiled brighten test/controller/MockImage.png out.ppm");
+    commands.add("tiled blur test/controller/MockImage.png out.ppm");
+    commands.add("exit");
+    in = new ByteArrayInputStream(String.join("\n", commands).getBytes());
+
+    IController controller = new Controller(mockModel, mockView, in);
+    controller.execute();
+
+    assertEquals(
+        "Show Options called!\n"
+            + "Command Failure! for Invalid action.Show Option Error called!\n"
+            + "Command Failure! for Invalid number of arguments.Show Option Error called!\n"
+            + "Command Failure! for Invalid file.Show Option Error called!\n",
+        mockView.getLog().toString());
+  }
 }
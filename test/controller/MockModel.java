@@ -1,6 +1,8 @@
 package controller;
 
+import model.DitherMode;
 import model.Image;
+import model.Kernel;
 import model.Model;
 
 /** Mock model for testing. */
@@ -75,11 +77,40 @@ public class MockModel extends Model {
         "sharpenImage called with name: " + name + " destImageName: " + destImageName + "\n");
   }
 
+  @Override
+  public void filterImage(Kernel kernel, String name, String destImageName) {
+    log.append(
+        "filterImage called with size: "
+            + kernel.getSize()
+            + " name: "
+            + name
+            + " destImageName: "
+            + destImageName
+            + "\n");
+  }
+
   @Override
   public void sepiaImage(String name, String destImageName) {
     log.append("sepiaImage called with name: " + name + " destImageName: " + destImageName + "\n");
   }
 
+  @Override
+  public void ditherImage(String name, String destImageName) {
+    log.append("ditherImage called with name: " + name + " destImageName: " + destImageName + "\n");
+  }
+
+  @Override
+  public void ditherImage(DitherMode mode, String name, String destImageName) {
+    log.append(
+        "ditherImage called with mode: "
+            + mode.getName()
+            + " name: "
+            + name
+            + " destImageName: "
+            + destImageName
+            + "\n");
+  }
+
   @Override
   public void redComponent(String name, String destImageName) {
     log.append(
@@ -36,4 +36,9 @@ public class MockViewGUI implements IViewGUI {
   public int getSplitPercentage() {
     return 0;
   }
+
+  @Override
+  public void setProgress(int percent) {
+    // this is a mock view, so do nothing
+  }
 }
@@ -5,6 +5,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 import static controller.ImageUtil.convertToImage;
 import static org.junit.Assert.assertEquals;
@@ -93,6 +96,71 @@ public class GrayScaleImageTest {
     assertTrue(testImage.equals(flippedImage));
   }
 
+  @Test
+  public void dither() {
+    Image dithered = grayScaleSampleImage.dither();
+    Integer[][] ditheredPixels = {
+      {255, 255, 0, 255, 0},
+      {0, 255, 0, 0, 255},
+      {255, 0, 0, 0, 0},
+      {0, 0, 0, 0, 0},
+      {0, 0, 0, 0, 0}
+    };
+    IME testImage = createFromIntArray(ditheredPixels);
+    assertTrue(testImage.equals(dithered));
+  }
+
+  @Test
+  public void cancelledDitherStops() {
+    // wide enough for the rows to be diffused by several threads at once
+    int height = 512;
+    int width = 512;
+    int[][] values = new int[height][width];
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        values[row][col] = (row * 7 + col * 13) % 256;
+      }
+    }
+    Image image = new GrayScaleImage(height, width, values);
+    Progress[] progress = new Progress[1];
+    progress[0] = new Progress(percent -> progress[0].cancel());
+    boolean cancelled = false;
+    try {
+      progress[0].run(image::dither);
+    } catch (CancellationException e) {
+      cancelled = true;
+    }
+    assertTrue(cancelled);
+    // no thread is left waiting for a row that was given up
+    assertTrue(ForkJoinPool.commonPool().awaitQuiescence(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void orderedDither() {
+    Image dithered = grayScaleSampleImage.dither(DitherMode.BAYER_2);
+    Integer[][] ditheredPixels = {
+      {255, 255, 0, 255, 255},
+      {0, 255, 0, 255, 0},
+      {255, 0, 0, 0, 255},
+      {0, 0, 0, 0, 0},
+      {255, 0, 0, 0, 0}
+    };
+    IME testImage = createFromIntArray(ditheredPixels);
+    assertTrue(testImage.equals(dithered));
+    Image diffused = grayScaleSampleImage.dither(DitherMode.FLOYD_STEINBERG);
+    assertTrue(grayScaleSampleImage.dither().equals(diffused));
+
+    // every mode keeps black and white, and gives only black and white
+    Integer[][] extremes = {{0, 255, 0}, {255, 0, 255}};
+    IME extremesImage = createFromIntArray(extremes);
+    for (DitherMode mode : DitherMode.values()) {
+      assertTrue(extremesImage.equals(extremesImage.dither(mode)));
+      for (int pixel : grayScaleSampleImage.dither(mode).getPackedPixels()) {
+        assertTrue(pixel == 0 || pixel == 0xFFFFFF);
+      }
+    }
+  }
+
   @Test
   public void brightenImage() {
     // Brighten the grayScaleSampleImage with a parameter of 60
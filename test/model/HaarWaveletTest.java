@@ -0,0 +1,66 @@
+package model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Test class for HaarWavelet. */
+public class HaarWaveletTest {
+
+  /** Two 2 by 2 channels whose non-zero magnitudes are 3, 3, 1, 1, 2 and 2. */
+  private static HaarWavelet[] channels() {
+    return new HaarWavelet[] {
+      HaarWavelet.fromCoefficients(2, 2, new double[] {3, -3, 1, 0}),
+      HaarWavelet.fromCoefficients(2, 2, new double[] {-1, 2, -2, 0})
+    };
+  }
+
+  @Test
+  public void testCutoffRepeatedMagnitudes() {
+    // repeated magnitudes count once, so there are three distinct magnitudes to rank
+    assertEquals(1.0, HaarWavelet.cutoff(0, channels()), 0);
+    assertEquals(2.0, HaarWavelet.cutoff(34, channels()), 0);
+    assertEquals(2.0, HaarWavelet.cutoff(50, channels()), 0);
+    assertEquals(3.0, HaarWavelet.cutoff(67, channels()), 0);
+    assertEquals(Double.POSITIVE_INFINITY, HaarWavelet.cutoff(100, channels()), 0);
+  }
+
+  @Test
+  public void testCutoffNoCoefficients() {
+    HaarWavelet zero = HaarWavelet.fromCoefficients(1, 2, new double[2]);
+    assertEquals(Double.POSITIVE_INFINITY, HaarWavelet.cutoff(0, zero), 0);
+  }
+
+  @Test
+  public void testThresholdKeepsEqualMagnitudes() {
+    HaarWavelet[] channels = channels();
+    double cutoff = HaarWavelet.cutoff(50, channels);
+    for (HaarWavelet channel : channels) {
+      channel.threshold(cutoff);
+    }
+    assertArrayEquals(new double[] {3, -3, 0, 0}, channels[0].getCoefficients(), 0);
+    assertArrayEquals(new double[] {0, 2, -2, 0}, channels[1].getCoefficients(), 0);
+
+    for (HaarWavelet channel : channels) {
+      channel.threshold(HaarWavelet.cutoff(100, channel));
+    }
+    assertArrayEquals(new double[4], channels[0].getCoefficients(), 0);
+    assertArrayEquals(new double[4], channels[1].getCoefficients(), 0);
+  }
+
+  @Test
+  public void testNonSquareCompression() {
+    int[][] values = {{12, 200, 37, 90, 41}, {250, 3, 77, 180, 66}, {8, 140, 222, 19, 103}};
+    GrayScaleImage image = new GrayScaleImage(3, 5, values);
+
+    // each axis is padded to its own power of two
+    assertEquals(4 * 8, HaarWavelet.size(3, 5));
+    assertEquals(32, HaarWavelet.transform(image.values(), 3, 5).getCoefficients().length);
+    assertTrue(image.equals(image.compressImage(0)));
+
+    int[][] compressed = {{9, 179, 49, 139, 14}, {251, 0, 73, 163, 38}, {29, 142, 204, 13, 78}};
+    assertTrue(new GrayScaleImage(3, 5, compressed).equals(image.compressImage(50)));
+  }
+}
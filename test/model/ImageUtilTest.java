@@ -6,6 +6,9 @@ import javax.imageio.ImageIO;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -13,10 +16,13 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 
 import controller.ImageUtil;
+import controller.PPMCodec;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /** Test class for ImageLoader. */
@@ -54,6 +60,98 @@ public class ImageUtilTest {
     }
   }
 
+  /** Fills an image with distinct colors, returning the packed pixels that were set. */
+  private static int[] fill(BufferedImage image) {
+    int width = image.getWidth();
+    int[] pixels = new int[width * image.getHeight()];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = (40 * i % 256) << 16 | (70 * i % 256) << 8 | (110 * i % 256);
+      image.setRGB(i % width, i / width, pixels[i] | 0xFF000000);
+    }
+    return pixels;
+  }
+
+  /** Writes an image to a png file and loads it back with ImageUtil. */
+  private static Image writeAndLoad(BufferedImage image) throws IOException {
+    String fileName = "test/model/tempTestRaster.png";
+    ImageIO.write(image, "png", new File(fileName));
+    try {
+      return ImageUtil.loadImage(fileName, "png");
+    } finally {
+      new File(fileName).delete();
+    }
+  }
+
+  @Test
+  public void testLoadGrayPNG() throws IOException {
+    BufferedImage gray = new BufferedImage(4, 3, BufferedImage.TYPE_BYTE_GRAY);
+    int[] values = new int[12];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = 20 * i + 5;
+    }
+    gray.getRaster().setPixels(0, 0, 4, 3, values);
+
+    // the gray samples go through the color space of the image, as with getRGB
+    int[] expected = gray.getRGB(0, 0, 4, 3, null, 0, 4);
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] &= 0xFFFFFF;
+    }
+    Image loaded = writeAndLoad(gray);
+    assertTrue(loaded instanceof GrayScaleImage);
+    assertArrayEquals(expected, loaded.getPackedPixels());
+  }
+
+  @Test
+  public void testLoadColorPNG() throws IOException {
+    BufferedImage color = new BufferedImage(4, 3, BufferedImage.TYPE_3BYTE_BGR);
+    int[] pixels = fill(color);
+
+    Image loaded = writeAndLoad(color);
+    assertTrue(loaded instanceof RGBImage);
+    assertArrayEquals(pixels, loaded.getPackedPixels());
+  }
+
+  @Test
+  public void testLoadIndexedAndAlphaPNG() throws IOException {
+    // an indexed image only keeps the nearest colors of its palette
+    BufferedImage indexed = new BufferedImage(4, 3, BufferedImage.TYPE_BYTE_INDEXED);
+    fill(indexed);
+    int[] expected = indexed.getRGB(0, 0, 4, 3, null, 0, 4);
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] &= 0xFFFFFF;
+    }
+    assertArrayEquals(expected, writeAndLoad(indexed).getPackedPixels());
+
+    // the alpha channel is dropped
+    BufferedImage alpha = new BufferedImage(4, 3, BufferedImage.TYPE_INT_ARGB);
+    int[] pixels = fill(alpha);
+    alpha.setRGB(1, 1, 0x80000000 | pixels[5]);
+    Image loaded = writeAndLoad(alpha);
+    assertTrue(loaded instanceof RGBImage);
+    assertArrayEquals(pixels, loaded.getPackedPixels());
+  }
+
+  @Test
+  public void testConvertToBufferedRoundTrip() throws IOException {
+    int[] pixels = new int[12];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = 0x102030 * i & 0xFFFFFF;
+    }
+    Image color = new RGBImage(3, 4, pixels);
+    BufferedImage buffered = ImageUtil.convertToBuffered(color);
+    assertEquals(4, buffered.getWidth());
+    assertEquals(3, buffered.getHeight());
+    for (int i = 0; i < pixels.length; i++) {
+      assertEquals(pixels[i], buffered.getRGB(i % 4, i / 4) & 0xFFFFFF);
+    }
+    assertTrue(color.equals(writeAndLoad(buffered)));
+
+    Image gray = color.calculateLuma();
+    Image loaded = writeAndLoad(ImageUtil.convertToBuffered(gray));
+    assertTrue(loaded instanceof GrayScaleImage);
+    assertTrue(gray.equals(loaded));
+  }
+
   @Test
   public void testLoadPPM() throws IOException {
     String fileName = "test/model/tempTestPPM.ppm";
@@ -108,4 +206,162 @@ public class ImageUtilTest {
     // Delete the test file after testing
     new File(fileName).delete();
   }
+
+  @Test
+  public void testBinaryPPMRoundTrip() throws IOException {
+    int[] pixels = {0x654A3A, 0x675C3E, 0x6EFF42, 0x685B5A};
+    Image rgb = new RGBImage(2, 2, pixels);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PPMCodec.writeBinary(rgb, out);
+
+    assertEquals(11 + 12, out.size());
+    Image loaded = PPMCodec.read(new ByteArrayInputStream(out.toByteArray()));
+    assertTrue(rgb.equals(loaded));
+
+    Image gray = rgb.calculateLuma();
+    out.reset();
+    PPMCodec.writeBinary(gray, out);
+    assertEquals(11 + 4, out.size());
+    loaded = PPMCodec.read(new ByteArrayInputStream(out.toByteArray()));
+    assertTrue(loaded instanceof GrayScaleImage);
+    assertTrue(gray.equals(loaded));
+  }
+
+  @Test
+  public void testReadInvalidPPM() throws IOException {
+    String[] invalid = {"", "P4\n1 1\n255\n0", "P3\n1 1\n65535\n0 0 0", "P3\n2 1\n255\n1 2 x"};
+    for (String text : invalid) {
+      assertNull(PPMCodec.read(new ByteArrayInputStream(text.getBytes())));
+    }
+    assertNull(PPMCodec.read(new ByteArrayInputStream("P6 1 1 255\n\1".getBytes())));
+
+    Image image = PPMCodec.read(new ByteArrayInputStream("P2 2 1 255 7 300".getBytes()));
+    assertTrue(image instanceof GrayScaleImage);
+    assertEquals(0xFFFFFF, image.getPackedPixels()[1]);
+  }
+
+  @Test
+  public void testTiledPPMRoundTrip() throws IOException {
+    // taller than one band of rows
+    int[] pixels = new int[300 * 3];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = (i * 0x010203) & 0xFFFFFF;
+    }
+    Image rgb = new RGBImage(300, 3, pixels);
+    for (Image image : new Image[] {rgb, rgb.calculateLuma()}) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      PPMCodec.writeBinary(image, out);
+      try (TiledImage tiled = PPMCodec.readTiled(new ByteArrayInputStream(out.toByteArray()))) {
+        assertEquals(image instanceof GrayScaleImage, tiled.isGray());
+        assertTrue(image.equals(tiled.toImage()));
+        ByteArrayOutputStream tiledOut = new ByteArrayOutputStream();
+        PPMCodec.writeBinary(tiled, tiledOut);
+        assertEquals(out.toString("ISO-8859-1"), tiledOut.toString("ISO-8859-1"));
+      }
+    }
+
+    byte[] ascii = "P3 2 1 255 1 2 3 4 5 6".getBytes();
+    try (TiledImage tiled = PPMCodec.readTiled(new ByteArrayInputStream(ascii))) {
+      assertTrue(PPMCodec.read(new ByteArrayInputStream(ascii)).equals(tiled.toImage()));
+    }
+    assertNull(PPMCodec.readTiled(new ByteArrayInputStream("P6 2 1 255\n\1".getBytes())));
+  }
+
+  @Test
+  public void testSaveAndLoadCompressed() throws IOException {
+    int[] pixels = new int[48 * 64];
+    for (int i = 0; i < pixels.length; i++) {
+      int row = i / 64;
+      int col = i % 64;
+      pixels[i] = (4 * col << 16) | (5 * row << 8) | ((row * col) & 0xFF);
+    }
+    Image image = new RGBImage(48, 64, pixels);
+    String fileName = "test/model/tempTestCompressed.hwt";
+    String pngName = "test/model/tempTestCompressed.png";
+    ImageUtil.saveCompressed(image, 80, fileName);
+    ImageUtil.convertToImage(image, pngName, "png");
+
+    Image loaded = ImageUtil.loadImage(fileName, "hwt");
+    assertTrue(new File(fileName).length() < new File(pngName).length() / 2);
+    new File(fileName).delete();
+    new File(pngName).delete();
+
+    assertEquals(48, loaded.getHeight());
+    assertEquals(64, loaded.getWidth());
+    assertArrayEquals(image.compressImage(80).getPackedPixels(), loaded.getPackedPixels());
+
+    CompressedImage invalid = CompressedImage.read(new ByteArrayInputStream("HWT2".getBytes()));
+    assertNull(invalid);
+  }
+
+  @Test
+  public void testReadCompressedHeaderOnly() throws IOException {
+    // a header for three channels of 2^15 by 2^15 with no body does not allocate the channels
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream header = new DataOutputStream(bytes);
+    header.writeBytes("HWT2");
+    header.writeInt(1 << 15);
+    header.writeInt(1 << 15);
+    header.writeByte(3);
+    header.writeInt(0);
+    assertNull(CompressedImage.read(new ByteArrayInputStream(bytes.toByteArray())));
+  }
+
+  @Test
+  public void testCompressedRoundTrip() throws IOException {
+    int[] pixels = new int[13 * 6];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = i * 0x030507 & 0xFFFFFF;
+    }
+    Image image = new RGBImage(13, 6, pixels);
+    for (int threshold : new int[] {0, 70}) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      CompressedImage.compress(image, threshold).write(out);
+      CompressedImage read = CompressedImage.read(new ByteArrayInputStream(out.toByteArray()));
+      assertTrue(image.compressImage(threshold).equals(read.toImage()));
+    }
+    // without compression the file keeps the image as it is
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CompressedImage.compress(image, 0).write(out);
+    CompressedImage read = CompressedImage.read(new ByteArrayInputStream(out.toByteArray()));
+    assertArrayEquals(pixels, read.toImage().getPackedPixels());
+  }
+
+  @Test
+  public void testLoadReducedCompressed() throws IOException {
+    int[] pixels = new int[21 * 10];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = (i * 7 % 256) * 0x010101;
+    }
+    Image image = new GrayScaleImage(21, 10, toBytes(pixels));
+    String fileName = "test/model/tempTestReduced.hwt";
+    ImageUtil.saveCompressed(image, 0, fileName);
+
+    Image half = ImageUtil.loadCompressedImage(fileName, 1);
+    Image eighth = ImageUtil.loadCompressedImage(fileName, 3);
+    new File(fileName).delete();
+
+    assertTrue(half instanceof GrayScaleImage);
+    assertEquals(11, half.getHeight());
+    assertEquals(5, half.getWidth());
+    assertEquals(3, eighth.getHeight());
+    assertEquals(2, eighth.getWidth());
+
+    // the bottom row of the half size image averages a single row of the image
+    int[] reduced = half.getPackedPixels();
+    for (int col = 0; col < 5; col++) {
+      int expected = ((pixels[200 + 2 * col] & 0xFF) + (pixels[201 + 2 * col] & 0xFF) + 1) / 2;
+      assertTrue(Math.abs(expected - (reduced[50 + col] & 0xFF)) <= 1);
+    }
+    int sum = (pixels[0] & 0xFF) + (pixels[1] & 0xFF) + (pixels[10] & 0xFF) + (pixels[11] & 0xFF);
+    assertTrue(Math.abs((sum + 2) / 4 - (reduced[0] & 0xFF)) <= 1);
+  }
+
+  private static byte[] toBytes(int[] pixels) {
+    byte[] values = new byte[pixels.length];
+    for (int i = 0; i < pixels.length; i++) {
+      values[i] = (byte) pixels[i];
+    }
+    return values;
+  }
 }
@@ -0,0 +1,269 @@
+package model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/** Test class for Model. */
+public class ModelTest {
+  private Image image;
+  private final List<Path> scratchDirectories = new ArrayList<>();
+
+  @Before
+  public void setup() {
+    int[] pixels = {
+      0x1C4B86, 0x084B75, 0x253767, 0x19596D,
+      0x14617F, 0x23506E, 0x245093, 0x233F8A,
+      0x265B70, 0x2F496E, 0x2D4471, 0x243E7A
+    };
+    image = new RGBImage(3, 4, pixels);
+  }
+
+  @After
+  public void deleteScratch() throws IOException {
+    for (Path scratch : scratchDirectories) {
+      try (Stream<Path> files = Files.walk(scratch)) {
+        for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  private Path newScratch() throws IOException {
+    Path scratch = Files.createTempDirectory("model-test");
+    scratchDirectories.add(scratch);
+    return scratch;
+  }
+
+  private static void runChain(IModel model) {
+    model.brightenImage(30, "image", "bright");
+    model.levelAdjust(20, 100, 200, "bright", "level");
+    model.blurImage("level", "blur");
+    model.brightenImage(-10, "blur", "dark");
+    model.sepiaImage("dark", "sepia");
+    model.horizontalFlip("bright", "flip");
+  }
+
+  @Test
+  public void testLazyMatchesEager() {
+    Model eager = new Model();
+    eager.addImage("image", image);
+    runChain(eager);
+
+    Model lazy = new Model();
+    lazy.setLazy(true);
+    lazy.addImage("image", image);
+    runChain(lazy);
+
+    assertTrue(lazy.isLazy());
+    assertTrue(lazy.isInModel("sepia"));
+    assertTrue(eager.getImage("sepia").equals(lazy.getImage("sepia")));
+    assertTrue(eager.getImage("flip").equals(lazy.getImage("flip")));
+    assertTrue(eager.getImage("level").equals(lazy.getImage("level")));
+  }
+
+  @Test
+  public void testLazyReassignment() {
+    Model lazy = new Model();
+    lazy.setLazy(true);
+    lazy.addImage("image", image);
+    lazy.brightenImage(40, "image", "image");
+    lazy.brightenImage(40, "image", "image");
+
+    assertTrue(image.brighten(40).brighten(40).equals(lazy.getImage("image")));
+    lazy.removeImage("image");
+    assertFalse(lazy.isInModel("image"));
+  }
+
+  @Test
+  public void testLazyMatrixFusion() {
+    Model lazy = new Model();
+    lazy.setLazy(true);
+    lazy.addImage("image", image);
+    lazy.sepiaImage("image", "sepia");
+    lazy.calculateLuma("sepia", "luma");
+
+    lazy.redComponent("image", "red");
+    lazy.calculateLuma("red", "redLuma");
+
+    // fusing sepia and luma would skip the clamping of sepia, so they are applied in turn
+    assertTrue(lazy.isGrayScale("luma"));
+    assertEquals(image.sepia().calculateLuma(), lazy.getImage("luma"));
+    assertEquals(image.sepia(), lazy.getImage("sepia"));
+    // a component only keeps or zeroes values, so fusing it with luma gives the same pixels
+    assertEquals(image.getRedComponent().calculateLuma(), lazy.getImage("redLuma"));
+  }
+
+  @Test
+  public void testApplyToColumns() {
+    Operation[] operations = {
+      Operations.BLUR, Operations.SHARPEN, Operations.SEPIA, Operations.COLOR_CORRECT,
+      Operations.brighten(25), Operations.HORIZONTAL_FLIP
+    };
+    for (Operation operation : operations) {
+      for (int startCol = 0; startCol < 4; startCol++) {
+        Image expected = operation.apply(image).getColumns(startCol, 4 - startCol);
+        Image band = operation.applyToColumns(image, startCol, 4 - startCol);
+        assertTrue(expected.equals(band));
+      }
+    }
+  }
+
+  @Test
+  public void testPreview() {
+    Model model = new Model();
+    model.addImage("image", image);
+    model.previewImage("image", "preview", 50, "sharpen");
+
+    Image preview = model.getImage("preview");
+    assertEquals(5, preview.getWidth());
+    assertTrue(image.getColumns(0, 2).equals(preview.getColumns(0, 2)));
+    assertTrue(image.sharpen().getColumns(2, 2).equals(preview.getColumns(3, 2)));
+  }
+
+  @Test
+  public void testLazyGrayScale() {
+    Model lazy = new Model();
+    lazy.setLazy(true);
+    lazy.addImage("image", image);
+    lazy.calculateLuma("image", "luma");
+    lazy.brightenImage(20, "luma", "bright");
+
+    assertTrue(lazy.isGrayScale("bright"));
+    assertEquals(image.calculateLuma().brighten(20), lazy.getImage("bright"));
+  }
+
+  @Test
+  public void testScratchStore() throws IOException {
+    Path scratch = newScratch();
+    Model eager = new Model();
+    eager.addImage("image", image);
+    runChain(eager);
+    Model mapped = new Model(scratch.toString());
+    mapped.addImage("image", image);
+    runChain(mapped);
+    mapped.calculateLuma("sepia", "luma");
+
+    assertTrue(eager.getImage("sepia").equals(mapped.getImage("sepia")));
+    assertTrue(eager.getImage("flip").equals(mapped.getImage("flip")));
+    assertTrue(mapped.getImage("luma") instanceof GrayScaleImage);
+    assertTrue(image.equals(mapped.getImage("image")));
+    assertEquals(8, countFiles(scratch));
+
+    mapped.brightenImage(10, "image", "image");
+    mapped.removeImage("luma");
+    assertFalse(mapped.isInModel("luma"));
+    assertTrue(image.brighten(10).equals(mapped.getImage("image")));
+    assertEquals(7, countFiles(scratch));
+  }
+
+  @Test
+  public void testScratchStoreKeepsRecentImages() throws IOException {
+    Model mapped = new Model(newScratch().toString());
+    mapped.addImage("image", image);
+    Histogram histogram = mapped.getImage("image").histogram();
+    assertSame(image, mapped.getImage("image"));
+    assertSame(histogram, mapped.getImage("image").histogram());
+    assertEquals(3, mapped.getHits());
+    assertEquals(0, mapped.getMisses());
+
+    // four newer images push it off the heap, so it is read back as a copy
+    for (int i = 0; i < 4; i++) {
+      mapped.addImage("image" + i, image.brighten(i));
+    }
+    Image copy = mapped.getImage("image");
+    assertNotSame(image, copy);
+    assertTrue(image.equals(copy));
+    assertEquals(1, mapped.getMisses());
+    assertSame(copy, mapped.getImage("image"));
+  }
+
+  @Test
+  public void testSpillingStore() throws IOException {
+    Path scratch = newScratch();
+    Model eager = new Model();
+    eager.addImage("image", image);
+    runChain(eager);
+    // room for two of the 3 by 4 color images, 48 bytes each
+    Model spilling = new Model(scratch.toString(), 100);
+    spilling.addImage("image", image);
+    runChain(spilling);
+    assertTrue(spilling.getSpills() > 0);
+
+    // flipping read bright back, so bright and flip are on the heap and the others were spilled
+    long hits = spilling.getHits();
+    long misses = spilling.getMisses();
+    assertTrue(eager.getImage("flip").equals(spilling.getImage("flip")));
+    assertTrue(eager.getImage("bright").equals(spilling.getImage("bright")));
+    assertEquals(hits + 2, spilling.getHits());
+    assertTrue(image.equals(spilling.getImage("image")));
+    assertEquals(misses + 1, spilling.getMisses());
+    assertTrue(image.equals(spilling.getImage("image")));
+    assertEquals(hits + 3, spilling.getHits());
+
+    // an image read back is not written again when it is spilled
+    long spills = spilling.getSpills();
+    assertTrue(eager.getImage("sepia").equals(spilling.getImage("sepia")));
+    assertTrue(eager.getImage("bright").equals(spilling.getImage("bright")));
+    assertEquals(spills, spilling.getSpills());
+
+    spilling.removeImage("image");
+    assertFalse(spilling.isInModel("image"));
+    assertTrue(eager.getImage("bright").equals(spilling.getImage("bright")));
+  }
+
+  @Test
+  public void testLazyReadsStoredImagesByName() throws IOException {
+    Path scratch = newScratch();
+    // every image is spilled as soon as it is stored
+    Model lazy = new Model(scratch.toString(), 0);
+    lazy.setLazy(true);
+    lazy.addImage("image", image);
+    lazy.brightenImage(10, "image", "bright");
+    lazy.blurImage("bright", "blur");
+    lazy.sepiaImage("bright", "sepia");
+    // the operations still read the image they were given, which is renamed rather than read
+    lazy.addImage("image", image.verticalFlip());
+    assertEquals(0, lazy.getMisses());
+
+    Image bright = image.brighten(10);
+    assertEquals(bright.blur(), lazy.getImage("blur"));
+    assertEquals(bright.sepia(), lazy.getImage("sepia"));
+    // the image was read back for blur, and the bright image kept for both for sepia
+    assertEquals(2, lazy.getMisses());
+    assertEquals(bright, lazy.getImage("bright"));
+    assertEquals(image.verticalFlip(), lazy.getImage("image"));
+    // the images kept for the operations are gone once nothing reads them
+    assertEquals(4, countFiles(scratch));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeBudget() throws IOException {
+    new Model(newScratch().toString(), -1);
+  }
+
+  /** Counts the scratch files in the directory made by a model. */
+  private static long countFiles(Path scratch) throws IOException {
+    try (Stream<Path> directories = Files.list(scratch)) {
+      Path directory = directories.findFirst().orElseThrow();
+      try (Stream<Path> files = Files.list(directory)) {
+        return files.count();
+      }
+    }
+  }
+}
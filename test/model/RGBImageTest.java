@@ -4,9 +4,12 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import static controller.ImageUtil.convertToImage;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /** Test class for RGBImage. */
@@ -266,6 +269,135 @@ public class RGBImageTest {
     assertTrue(blurImage.equals(testImage));
   }
 
+  @Test
+  public void testFilter() {
+    Kernel difference = new Kernel(new double[][] {{0, 0, 0}, {-1, 1, 0}, {0, 0, 0}});
+    IME filterImage = rgbScaleSampleImage.filter(difference);
+    int[][][] filterPixels = {
+      {{200, 0, 0}, {0, 0, 0}, {0, 0, 0}, {160, 0, 0}, {0, 0, 0}},
+      {{160, 0, 0}, {0, 0, 0}, {0, 0, 0}, {120, 0, 0}, {0, 0, 0}},
+      {{120, 0, 0}, {0, 0, 0}, {0, 0, 0}, {80, 0, 0}, {0, 0, 0}},
+      {{80, 0, 0}, {0, 0, 0}, {0, 0, 0}, {40, 0, 0}, {0, 0, 0}},
+      {{40, 0, 0}, {0, 0, 0}, {0, 0, 0}, {0, 0, 0}, {0, 0, 0}}
+    };
+    IME testImage = createRGBFromPixelArray(filterPixels);
+    assertTrue(filterImage.equals(testImage));
+
+    Kernel blur =
+        new Kernel(
+            new double[][] {
+              {0.0625, 0.125, 0.0625},
+              {0.125, 0.25, 0.125},
+              {0.0625, 0.125, 0.0625}
+            });
+    assertEquals(Kernel.BLUR, blur);
+    assertTrue(rgbScaleSampleImage.filter(blur).equals(rgbScaleSampleImage.blur()));
+  }
+
+  @Test
+  public void testGaussianIsSeparable() {
+    assertTrue(Kernel.gaussian(5, 1.0).compile().isSeparable());
+    assertTrue(Kernel.gaussian(3, 0.8).compile().isSeparable());
+    assertTrue(Kernel.BLUR.compile().isSeparable());
+    assertFalse(Kernel.SHARPEN.compile().isSeparable());
+  }
+
+  @Test
+  public void testFilterTinySeparableKernel() {
+    // both vectors need every fractional bit, more than a shift of the sum can take
+    Kernel tiny =
+        new Kernel(
+            new double[][] {
+              {0.000001, 0.000002, 0.000001},
+              {0.000002, 0.000004, 0.000002},
+              {0.000001, 0.000002, 0.000001}
+            });
+    assertTrue(tiny.compile().isSeparable());
+    int[] gray = new int[4 * 5];
+    Arrays.fill(gray, 0x646464);
+    Image filtered = new RGBImage(4, 5, gray).filter(tiny);
+    assertArrayEquals(new int[gray.length], filtered.getPackedPixels());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFilterHugeWeight() {
+    rgbScaleSampleImage.filter(new Kernel(new double[][] {{1e300}}));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFilterEvenKernel() {
+    rgbScaleSampleImage.filter(new Kernel(new double[][] {{1, 0}, {0, 1}}));
+  }
+
+  @Test
+  public void testLookupTable() {
+    LookupTable brighten = LookupTable.brighten(30);
+    LookupTable level = LookupTable.levelAdjust(20, 100, 200);
+    IME sequential = boundedImage.brighten(30).levelAdjust(20, 100, 200);
+    IME composed = boundedImage.applyLookupTable(brighten.andThen(level));
+    assertTrue(sequential.equals(composed));
+
+    assertEquals(255, brighten.lookup(0, 240));
+    assertEquals(0, LookupTable.brighten(-30).lookup(2, 10));
+    assertTrue(brighten.isUniform());
+    assertTrue(!LookupTable.RED.isUniform());
+    assertTrue(
+        rgbScaleSampleImage.applyLookupTable(LookupTable.IDENTITY).equals(rgbScaleSampleImage));
+  }
+
+  @Test
+  public void testColorMatrix() {
+    assertTrue(boundedImage.colorMatrix(ColorMatrix.SEPIA).equals(boundedImage.sepia()));
+    assertTrue(boundedImage.colorMatrix(ColorMatrix.LUMA) instanceof GrayScaleImage);
+
+    ColorMatrix swap = new ColorMatrix(new double[][] {{0, 0, 1}, {0, 1, 0}, {1, 0, 0}});
+    Image swapped = boundedImage.colorMatrix(swap);
+    assertEquals(134, swapped.getPixelRGB(0, 0).getRedComponent());
+    assertEquals(75, swapped.getPixelRGB(0, 0).getGreenComponent());
+    assertEquals(28, swapped.getPixelRGB(0, 0).getBlueComponent());
+    assertTrue(swapped.colorMatrix(swap).equals(boundedImage));
+
+    ColorMatrix fused = ColorMatrix.SEPIA.andThen(ColorMatrix.LUMA);
+    assertTrue(fused.isGray());
+    double expected = 0.2126 * 0.393 + 0.7152 * 0.349 + 0.0722 * 0.272;
+    assertEquals(expected, fused.getCoefficient(0, 0), 1e-9);
+  }
+
+  @Test
+  public void testFusedMaskMatchesSteps() {
+    int[] pixels = new int[256 * 3];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = i % 256 * 0x010101 ^ i / 256 * 0x3F1F7F;
+    }
+    Image colors = new RGBImage(3, 256, pixels);
+    ColorMatrix[] masks = {ColorMatrix.RED, ColorMatrix.GREEN, ColorMatrix.BLUE};
+    ColorMatrix[] next = {ColorMatrix.SEPIA, ColorMatrix.LUMA, ColorMatrix.GREEN};
+    for (ColorMatrix mask : masks) {
+      assertTrue(mask.isMask());
+      for (ColorMatrix matrix : next) {
+        assertEquals(
+            colors.colorMatrix(mask).colorMatrix(matrix),
+            colors.colorMatrix(mask.andThen(matrix)));
+      }
+    }
+    assertFalse(ColorMatrix.SEPIA.isMask());
+    assertFalse(ColorMatrix.LUMA.isMask());
+  }
+
+  @Test
+  public void testPackedPixels() {
+    int[] packed = {0xC80000, 0x00B400, 0x0000A0, 0x102030};
+    Image packedImage = new RGBImage(2, 2, packed);
+    int[][][] pixels = {
+      {{200, 0, 0}, {0, 180, 0}},
+      {{0, 0, 160}, {16, 32, 48}}
+    };
+    IME testImage = createRGBFromPixelArray(pixels);
+    assertTrue(testImage.equals(packedImage));
+    assertEquals(testImage.hashCode(), packedImage.hashCode());
+    assertEquals(48, packedImage.getPixelRGB(1, 1).getBlueComponent());
+  }
+
   @Test
   public void testZeroCompression() {
     IME compressedImage = rgbScaleSampleImage.compressImage(0);
@@ -333,6 +465,114 @@ public class RGBImageTest {
     }
   }
 
+  @Test
+  public void testHistogramCounts() {
+    Histogram histogram = rgbScaleSampleImage.histogram();
+    assertEquals(2, histogram.getCount(0, 160));
+    assertEquals(7, histogram.getCount(0, 0));
+    assertEquals(25, histogram.getCount(1, 0));
+    assertEquals(0, histogram.getPeak(0));
+    assertEquals(25, histogram.getMaxCount());
+
+    int[][] counts = boundedImage.histogram().getCounts();
+    assertEquals(2, counts[1][75]);
+    counts[1][75] = 0;
+    assertEquals(2, boundedImage.histogram().getCount(1, 75));
+  }
+
+  @Test
+  public void testHistogramRenderCopies() {
+    Histogram histogram = boundedImage.histogram();
+    Image plot = histogram.render();
+    Image again = histogram.render();
+    assertTrue(plot != again);
+    assertTrue(plot.equals(again));
+
+    // changing a rendered plot does not change the next one
+    ((RGBImage) plot).setPixelRGB(0, 0, new RGBPixel(1, 2, 3));
+    assertFalse(plot.equals(histogram.render()));
+    assertTrue(again.equals(histogram.render()));
+  }
+
+  @Test
+  public void testDownscale() {
+    Image small = rgbScaleSampleImage.downscale(2);
+    assertEquals(3, small.getHeight());
+    assertEquals(3, small.getWidth());
+    assertEquals(170, small.getPixelRGB(0, 0).getRedComponent());
+    assertEquals(70, small.getPixelRGB(0, 1).getRedComponent());
+    assertEquals(120, small.getPixelRGB(0, 2).getRedComponent());
+    assertEquals(30, small.getPixelRGB(1, 1).getRedComponent());
+    assertEquals(30, small.getPixelRGB(2, 0).getRedComponent());
+    assertEquals(0, small.getPixelRGB(2, 2).getRedComponent());
+    assertTrue(rgbScaleSampleImage.equals(rgbScaleSampleImage.downscale(1)));
+
+    Image gray = rgbScaleSampleImage.calculateLuma();
+    assertTrue(gray.downscale(2) instanceof GrayScaleImage);
+    int sum = 0;
+    for (int row = 0; row < 5; row++) {
+      for (int col = 0; col < 5; col++) {
+        sum += gray.getPixel(row, col);
+      }
+    }
+    assertEquals((sum + 12) / 25, gray.downscale(5).getPixel(0, 0));
+  }
+
+  @Test
+  public void testPyramidAndResize() {
+    Image half = rgbScaleSampleImage.getLevel(1);
+    assertTrue(half == rgbScaleSampleImage.getLevel(1));
+    assertTrue(half.equals(rgbScaleSampleImage.downscale(2)));
+    assertTrue(half.getLevel(1).equals(rgbScaleSampleImage.getLevel(2)));
+    Image pixel = rgbScaleSampleImage.getLevel(10);
+    assertEquals(1, pixel.getHeight());
+    assertEquals(1, pixel.getWidth());
+
+    assertTrue(rgbScaleSampleImage.equals(rgbScaleSampleImage.resize(5, 5)));
+    assertTrue(half.equals(rgbScaleSampleImage.resize(3, 3)));
+    Image large = pixel.resize(4, 6);
+    assertEquals(4, large.getHeight());
+    assertEquals(6, large.getWidth());
+    assertEquals(pixel.getPackedPixels()[0], large.getPackedPixels()[23]);
+
+    Image gray = rgbScaleSampleImage.calculateLuma().resize(2, 8);
+    assertTrue(gray instanceof GrayScaleImage);
+    assertEquals(8, gray.getWidth());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testResizeEmpty() {
+    rgbScaleSampleImage.resize(0, 3);
+  }
+
+  @Test
+  public void testDerivedHistograms() {
+    Image[] sources = {boundedImage, boundedImage.calculateLuma()};
+    for (Image source : sources) {
+      assertTrue(source.histogram() == source.histogram());
+      Image[] derived = {
+        source.horizontalFlip(),
+        source.verticalFlip(),
+        source.brighten(40),
+        source.levelAdjust(20, 100, 200),
+        source.colorCorrect(),
+        source.getLeftPercentageOfImage(80),
+        source.getRightPercentageOfImage(60),
+        source.getColumns(1, source.getWidth() - 2)
+      };
+      for (Image image : derived) {
+        Histogram counted = image.computeHistogram();
+        for (int channel = 0; channel < Histogram.CHANNELS; channel++) {
+          for (int value = 0; value < Histogram.LEVELS; value++) {
+            assertEquals(
+                counted.getCount(channel, value),
+                image.histogram().getCount(channel, value));
+          }
+        }
+      }
+    }
+  }
+
   // the test will create a histogram after color correction
   // the modified image will have pixels pushed in middle
   // we can check visually  in histogram if all the channels are pushed to middle
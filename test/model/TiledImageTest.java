@@ -0,0 +1,116 @@
+package model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Test class for TiledImage. */
+public class TiledImageTest {
+  private final List<TiledImage> opened = new ArrayList<>();
+  private Image rgbImage;
+  private Image grayImage;
+
+  @Before
+  public void setup() {
+    // the sizes are not multiples of the tiles, so the edge tiles are cut
+    Random random = new Random(7);
+    int[] pixels = new int[23 * 19];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = random.nextInt(1 << 24);
+    }
+    rgbImage = new RGBImage(23, 19, pixels);
+    grayImage = rgbImage.calculateLuma();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    for (TiledImage image : opened) {
+      image.close();
+    }
+  }
+
+  /** Tiles an image into 5 by 5 tiles with only two of them in memory, so most are paged out. */
+  private TiledImage tile(Image image) {
+    return keep(TiledImage.of(image, 5, 2));
+  }
+
+  /** Keeps a tiled image to close after the test. */
+  private TiledImage keep(TiledImage tiled) {
+    opened.add(tiled);
+    return tiled;
+  }
+
+  private Image result(TiledImage tiled) {
+    return keep(tiled).toImage();
+  }
+
+  @Test
+  public void testRoundTrip() {
+    assertTrue(rgbImage.equals(tile(rgbImage).toImage()));
+    assertTrue(tile(grayImage).toImage() instanceof GrayScaleImage);
+    assertTrue(grayImage.equals(tile(grayImage).toImage()));
+  }
+
+  @Test
+  public void testRows() {
+    TiledImage tiled = tile(rgbImage);
+    int[] pixels = rgbImage.getPackedPixels();
+    int[] band = new int[4 * 19];
+    System.arraycopy(pixels, 0, band, 0, band.length);
+    // a band across the edge of two rows of tiles only changes its own rows
+    tiled.setRows(8, 4, band);
+    System.arraycopy(band, 0, pixels, 8 * 19, band.length);
+    assertArrayEquals(pixels, tiled.toImage().getPackedPixels());
+    assertArrayEquals(band, tiled.getRows(8, 4));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRowsOutside() {
+    tile(rgbImage).getRows(20, 4);
+  }
+
+  @Test
+  public void testPointOperations() {
+    for (Image image : new Image[] {rgbImage, grayImage}) {
+      TiledImage tiled = tile(image);
+      assertTrue(image.brighten(40).equals(result(tiled.brighten(40))));
+      LookupTable table = LookupTable.levelAdjust(20, 100, 200);
+      assertTrue(image.applyLookupTable(table).equals(result(tiled.applyLookupTable(table))));
+      assertTrue(image.sepia().equals(result(tiled.sepia())));
+      ColorMatrix luma = ColorMatrix.LUMA;
+      assertTrue(image.colorMatrix(luma).equals(result(tiled.colorMatrix(luma))));
+    }
+    assertFalse(keep(tile(grayImage).applyLookupTable(LookupTable.RED)).isGray());
+    assertTrue(keep(tile(rgbImage).colorMatrix(ColorMatrix.LUMA)).isGray());
+  }
+
+  @Test
+  public void testFlips() {
+    for (Image image : new Image[] {rgbImage, grayImage}) {
+      TiledImage tiled = tile(image);
+      assertTrue(image.horizontalFlip().equals(result(tiled.horizontalFlip())));
+      assertTrue(image.verticalFlip().equals(result(tiled.verticalFlip())));
+    }
+  }
+
+  @Test
+  public void testFilters() {
+    for (Image image : new Image[] {rgbImage, grayImage}) {
+      TiledImage tiled = tile(image);
+      assertTrue(image.blur().equals(result(tiled.blur())));
+      assertTrue(image.sharpen().equals(result(tiled.sharpen())));
+      // a halo wider than a tile reaches past the neighbouring tiles
+      Kernel gaussian = Kernel.gaussian(13, 3);
+      assertTrue(image.filter(gaussian).equals(result(tiled.filter(gaussian))));
+    }
+  }
+}
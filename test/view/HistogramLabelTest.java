@@ -0,0 +1,46 @@
+package view;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+
+import model.Image;
+import model.RGBImage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Test class for HistogramLabel. */
+public class HistogramLabelTest {
+
+  private static Image plot(int color) {
+    int[] pixels = new int[4 * 3];
+    Arrays.fill(pixels, color);
+    pixels[5] = 0xFF0000;
+    return new RGBImage(4, 3, pixels);
+  }
+
+  @Test
+  public void testRendersOnce() {
+    HistogramLabel label = new HistogramLabel();
+    assertTrue(label.setHistogram(plot(0xFFFFFF)));
+    Icon icon = label.getIcon();
+    assertEquals(3, icon.getIconWidth());
+    assertEquals(4, icon.getIconHeight());
+    BufferedImage rendered = (BufferedImage) ((ImageIcon) icon).getImage();
+    assertEquals(0xFF0000, rendered.getRGB(2, 1) & 0xFFFFFF);
+    assertEquals(0xFFFFFF, rendered.getRGB(0, 0) & 0xFFFFFF);
+
+    // an equal plot, even a new copy, keeps the rendered one
+    assertFalse(label.setHistogram(plot(0xFFFFFF)));
+    assertTrue(icon == label.getIcon());
+
+    assertTrue(label.setHistogram(plot(0x00FF00)));
+    assertTrue(icon != label.getIcon());
+  }
+}
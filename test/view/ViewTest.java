@@ -57,11 +57,16 @@ public class ViewTest {
             + "vertical-flip: flip an image vertically\n"
             + "blur: blur an image\n"
             + "sharpen: sharpen an image\n"
+            + "filter: convolve an image with a named or inline kernel\n"
             + "sepia: apply a sepia filter to an image\n"
+            + "dither: dither an image to black and white, by error diffusion or a threshold "
+            + "map\n"
             + "histogram: create a histogram of color values of an image\n"
             + "color-correct: color correct an image by aligning the peaks of the histogram\n"
             + "level-adjust: adjust the levels of an image, by the given b m w values\n"
             + "compress: compresses an image by the given percentage\n"
+            + "tiled: apply an action to a ppm file tile by tile, for images larger than "
+            + "memory\n"
             + "run: runs a script of commands from a file\n";
 
     assertEquals(expectedDetails, normalizeNewLines(outContent.toString()));
@@ -85,6 +90,13 @@ public class ViewTest {
             + "level-adjust <value> <value> <value> <name> <destImageName> |"
             + " action = level-adjust: "
             + "black value, mid value, white value respectively to adjust the levels of image\n"
+            + "filter <kernel> <name> <destImageName> | action = filter: <kernel> = blur | "
+            + "sharpen | box | gaussian | emboss | edge | inline rows like 0,1,0;1,-4,1;0,1,0\n"
+            + "dither [mode] <name> <destImageName> | action = dither: [mode] = floyd-steinberg "
+            + "| bayer-2 | bayer-4 | bayer-8 | blue-noise\n"
+            + "tiled <action> [increment] <fileName> <destFileName>: apply an action to a ppm "
+            + "file tile by tile, <action> = brighten | blur | sharpen | sepia | horizontal-flip "
+            + "| vertical-flip\n"
             + "<action> <name> <destImageName>: apply an action to an image\n"
             + "<action> = red-component | green-component | blue-component | value-component "
             + "| luma-component | intensity-component | horizontal-flip | vertical-flip "